@@ -0,0 +1,75 @@
+package ru.gruzhub.tools;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.env.MockEnvironment;
+import ru.gruzhub.tools.env.EnvVariables;
+import ru.gruzhub.users.models.User;
+
+/**
+ * Compares token verification with the shared parser against the previous implementation,
+ * which derived the key and built a new parser on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3,
+        time = 2)
+@Measurement(iterations = 5,
+             time = 2)
+@Fork(1)
+public class JwtTokenUtilBenchmark {
+    private static final String SECRET = "benchmark-secret-key-which-is-long-enough-for-hs256";
+
+    private JwtTokenUtil jwtTokenUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        MockEnvironment env = new MockEnvironment().withProperty("app.telegram_bot_token", "token")
+                                                   .withProperty("app.telegram_bot_username", "bot")
+                                                   .withProperty("app.mode", "test")
+                                                   .withProperty("app.admin_tg_id", "1")
+                                                   .withProperty("app.email_host", "localhost")
+                                                   .withProperty("app.email_port", "465")
+                                                   .withProperty("app.email_login", "login")
+                                                   .withProperty("app.email_password", "password")
+                                                   .withProperty("app.application_server",
+                                                                 "http://localhost")
+                                                   .withProperty("app.jwt_secret_key", SECRET)
+                                                   .withProperty("sentry.dsn", "");
+        this.jwtTokenUtil = new JwtTokenUtil(new EnvVariables(env));
+
+        User user = new User();
+        user.setId(1L);
+        user.setPasswordCreationTime(System.currentTimeMillis());
+        this.token = this.jwtTokenUtil.generateToken(user);
+    }
+
+    @Benchmark
+    public Claims verifyWithSharedParser() {
+        return this.jwtTokenUtil.getClaimsFromToken(this.token);
+    }
+
+    @Benchmark
+    public Claims verifyWithParserPerCall() {
+        return Jwts.parserBuilder()
+                   .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                   .build()
+                   .parseClaimsJws(this.token)
+                   .getBody();
+    }
+}
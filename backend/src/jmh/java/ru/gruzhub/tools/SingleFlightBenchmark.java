@@ -0,0 +1,86 @@
+package ru.gruzhub.tools;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.gruzhub.orders.orders.statistics.dto.OrderCreationDto;
+import ru.gruzhub.orders.orders.statistics.enums.OrderStatisticsPeriod;
+import ru.gruzhub.tools.concurrent.SingleFlight;
+
+/**
+ * Admins open the statistics dashboard at once, as in OrderStatisticsService: 8 requests of
+ * the same period, the statistics query takes about 20 ms and the admin pool of 2 connections
+ * allows at most 2 queries in parallel. The "queries" counter reports how many queries
+ * reached the "database".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2,
+        time = 2)
+@Measurement(iterations = 5,
+             time = 2)
+@Threads(8)
+@Fork(1)
+public class SingleFlightBenchmark {
+    private static final long QUERY_MILLIS = 20;
+    private static final int ADMIN_POOL_SIZE = 2;
+
+    private final Semaphore adminPool = new Semaphore(ADMIN_POOL_SIZE);
+    private final SingleFlight<OrderStatisticsPeriod, List<OrderCreationDto>> statisticsFlight =
+        new SingleFlight<>();
+
+    @Benchmark
+    public List<OrderCreationDto> getStatisticsWithoutCoalescing(Queries queries)
+        throws InterruptedException {
+        return this.queryOrderCreationDates(queries);
+    }
+
+    @Benchmark
+    public List<OrderCreationDto> getStatisticsWithSingleFlight(Queries queries) {
+        return this.statisticsFlight.execute(OrderStatisticsPeriod.DAY, () -> {
+            try {
+                return this.queryOrderCreationDates(queries);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private List<OrderCreationDto> queryOrderCreationDates(Queries queries)
+        throws InterruptedException {
+        this.adminPool.acquire();
+        try {
+            queries.queries++;
+            Thread.sleep(QUERY_MILLIS);
+            return List.of(new OrderCreationDto("2024-01-01", 3L));
+        } finally {
+            this.adminPool.release();
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Queries {
+        public long queries;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.queries = 0;
+        }
+    }
+}
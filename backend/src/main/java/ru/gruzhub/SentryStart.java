@@ -7,6 +7,7 @@ import java.util.Arrays;
 import org.springframework.stereotype.Component;
 import ru.gruzhub.tools.env.EnvVariables;
 import ru.gruzhub.tools.env.enums.AppMode;
+import ru.gruzhub.tools.exceptions.DomainException;
 
 @Component
 public class SentryStart {
@@ -17,6 +18,11 @@ public class SentryStart {
             options.setBeforeSend((SentryEvent event, Hint hint) -> {
                 Throwable throwable = event.getThrowable();
 
+                // expected outcomes like 403 for a foreign region order
+                if (throwable instanceof DomainException) {
+                    return null;
+                }
+
                 if (throwable != null) {
                     Throwable rootCause = throwable;
 
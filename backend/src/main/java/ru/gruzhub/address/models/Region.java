@@ -12,6 +12,8 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.ColumnDefault;
 
 @Entity
 @Table(name = "region")
@@ -19,6 +21,7 @@ import lombok.Setter;
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
+@BatchSize(size = 100)
 public class Region {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -37,4 +40,12 @@ public class Region {
     @JoinColumn(name = "country_code",
                 referencedColumnName = "code")
     private Country country;
+
+    // bumped by OrdersVersionsService only, never written from the entity
+    @ColumnDefault("0")
+    @Column(name = "orders_change_version",
+            nullable = false,
+            insertable = false,
+            updatable = false)
+    private Long ordersChangeVersion;
 }
@@ -2,8 +2,20 @@ package ru.gruzhub.address.repositories;
 
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 import ru.gruzhub.address.models.Region;
 
 public interface RegionRepository extends JpaRepository<Region, Long> {
     Optional<Region> findByName(String name);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Region r SET r.ordersChangeVersion = r.ordersChangeVersion + 1 " +
+           "WHERE r.id = :regionId")
+    int incrementOrdersChangeVersion(Long regionId);
+
+    @Query("SELECT r.ordersChangeVersion FROM Region r WHERE r.id = :regionId")
+    Optional<Long> findOrdersChangeVersionById(Long regionId);
 }
@@ -3,10 +3,11 @@ package ru.gruzhub.orders.auto;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import ru.gruzhub.orders.auto.dto.AutoResponseDto;
+import ru.gruzhub.users.auth.AuthorizedUser;
+import ru.gruzhub.users.models.User;
 
 @RestController
 @RequestMapping("/auto")
@@ -16,7 +17,7 @@ public class AutoController {
 
     @GetMapping("/{autoId}")
     public AutoResponseDto getAutoById(@PathVariable Long autoId,
-                                       @RequestHeader("Authorization") String authorization) {
-        return this.autoService.getAutoByIdWithAuth(authorization, autoId);
+                                       @AuthorizedUser User user) {
+        return this.autoService.getAutoByIdWithAuth(user, autoId);
     }
 }
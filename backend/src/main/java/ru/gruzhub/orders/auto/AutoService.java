@@ -2,12 +2,11 @@ package ru.gruzhub.orders.auto;
 
 import java.util.Optional;
 import lombok.RequiredArgsConstructor;
-import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.web.server.ResponseStatusException;
 import ru.gruzhub.orders.auto.dto.AutoResponseDto;
 import ru.gruzhub.orders.auto.models.Auto;
-import ru.gruzhub.users.UsersService;
+import ru.gruzhub.tools.exceptions.ForbiddenException;
+import ru.gruzhub.tools.exceptions.NotFoundException;
 import ru.gruzhub.users.dto.UserResponseDto;
 import ru.gruzhub.users.enums.UserRole;
 import ru.gruzhub.users.models.User;
@@ -15,7 +14,6 @@ import ru.gruzhub.users.models.User;
 @Service
 @RequiredArgsConstructor
 public class AutoService {
-    private final UsersService usersService;
     private final AutoRepository autoRepository;
 
     public Auto createAuto(Auto auto) {
@@ -83,18 +81,16 @@ public class AutoService {
 
     public Auto getAutoById(Long autoId) {
         return this.autoRepository.findById(autoId)
-                                  .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
-                                                                                 "Auto not found"));
+                                  .orElseThrow(() -> new NotFoundException("Auto not found"));
     }
 
-    public AutoResponseDto getAutoByIdWithAuth(String authorization, Long autoId) {
-        User user = this.usersService.getUserFromToken(authorization);
+    public AutoResponseDto getAutoByIdWithAuth(User user, Long autoId) {
         Auto auto = this.getAutoById(autoId);
 
         if ((auto.getDriver() != null && !auto.getDriver().getId().equals(user.getId())) &&
             (auto.getCustomer() != null && !auto.getCustomer().getId().equals(user.getId())) &&
             user.getRole() != UserRole.ADMIN) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+            throw new ForbiddenException();
         }
 
         return this.convertToAutoDto(auto);
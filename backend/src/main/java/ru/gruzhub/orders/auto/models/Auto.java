@@ -15,6 +15,7 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 import ru.gruzhub.orders.auto.enums.AutoType;
 import ru.gruzhub.users.models.User;
 
@@ -25,6 +26,7 @@ import ru.gruzhub.users.models.User;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@BatchSize(size = 100)
 public class Auto {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
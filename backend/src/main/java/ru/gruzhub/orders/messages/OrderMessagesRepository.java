@@ -2,6 +2,8 @@ package ru.gruzhub.orders.messages;
 
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.EntityGraph.EntityGraphType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -21,6 +23,7 @@ public interface OrderMessagesRepository extends JpaRepository<OrderMessage, Lon
            nativeQuery = true)
     List<OrderMessage> findLastMessagesPerOrder(Long userId, List<Long> ordersIds);
 
+    @EntityGraph(value = OrderMessage.WITH_FILE_GRAPH, type = EntityGraphType.LOAD)
     @Query("SELECT om FROM OrderMessage om " +
            "WHERE om.order.id = :orderId " +
            "ORDER BY om.date ASC")
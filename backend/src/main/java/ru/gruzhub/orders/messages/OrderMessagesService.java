@@ -4,13 +4,13 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
-import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.web.server.ResponseStatusException;
 import ru.gruzhub.orders.messages.dto.OrderMessageDto;
 import ru.gruzhub.orders.messages.models.OrderMessage;
 import ru.gruzhub.orders.orders.models.Order;
 import ru.gruzhub.orders.orders.services.OrdersDataService;
+import ru.gruzhub.tools.exceptions.BadRequestException;
+import ru.gruzhub.tools.exceptions.ForbiddenException;
 import ru.gruzhub.tools.files.FilesService;
 import ru.gruzhub.tools.files.models.File;
 import ru.gruzhub.users.UsersService;
@@ -50,7 +50,7 @@ public class OrderMessagesService {
         if (text != null && !text.isEmpty()) {
             final int MAX_TEXT_SIZE = 10_000;
             if (text.length() > MAX_TEXT_SIZE) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Слишком много текста");
+                throw new BadRequestException("Слишком много текста");
             }
 
             message.setText(text);
@@ -59,8 +59,7 @@ public class OrderMessagesService {
             message.setFile(fileModel);
             message.setFileCode(fileModel.getCode());
         } else {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                                              "Text or file must be provided with the message.");
+            throw new BadRequestException("Text or file must be provided with the message.");
         }
 
         message.setDate(System.currentTimeMillis());
@@ -130,9 +129,7 @@ public class OrderMessagesService {
         }
 
         if (user.getRole() != UserRole.ADMIN && !isUserInOrder) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN,
-                                              "You do not have permission to access these " +
-                                              "messages.");
+            throw new ForbiddenException("You do not have permission to access these messages.");
         }
     }
 }
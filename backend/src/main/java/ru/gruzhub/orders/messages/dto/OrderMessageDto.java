@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.Hibernate;
 import ru.gruzhub.orders.messages.models.OrderMessage;
 import ru.gruzhub.tools.files.models.File;
 import ru.gruzhub.users.enums.UserRole;
@@ -40,7 +41,8 @@ public class OrderMessageDto {
         this.isViewedByDriver = orderMessage.isViewedByDriver();
         this.isViewedByCustomer = orderMessage.isViewedByCustomer();
 
-        File file = orderMessage.getFile();
+        // the file is a lazy proxy, Jackson can serialize the entity only
+        File file = (File) Hibernate.unproxy(orderMessage.getFile());
         if (file != null) {
             this.fileCode = file.getCode();
             this.file = file;
@@ -10,6 +10,8 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -23,12 +25,16 @@ import ru.gruzhub.users.models.User;
 
 @Entity
 @Table(name = "order_messages")
+@NamedEntityGraph(name = OrderMessage.WITH_FILE_GRAPH,
+                  attributeNodes = @NamedAttributeNode("file"))
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class OrderMessage {
+    public static final String WITH_FILE_GRAPH = "OrderMessage.withFile";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -38,12 +44,12 @@ public class OrderMessage {
             columnDefinition = "TEXT")
     private String guaranteeId;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "order_id",
                 nullable = false)
     private Order order;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id",
                 nullable = false)
     private User user;
@@ -66,7 +72,7 @@ public class OrderMessage {
             columnDefinition = "TEXT")
     private String fileCode;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "file_code",
                 referencedColumnName = "code",
                 insertable = false,
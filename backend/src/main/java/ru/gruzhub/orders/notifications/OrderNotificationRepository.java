@@ -0,0 +1,34 @@
+package ru.gruzhub.orders.notifications;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+import ru.gruzhub.orders.notifications.enums.OrderNotificationType;
+import ru.gruzhub.orders.notifications.models.OrderNotification;
+
+@Repository
+public interface OrderNotificationRepository extends JpaRepository<OrderNotification, Long> {
+    String LOCK_TIMEOUT_HINT = "jakarta.persistence.lock.timeout";
+    // Hibernate's LockOptions.SKIP_LOCKED, rows locked by another dispatcher are skipped
+    String SKIP_LOCKED = "-2";
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = LOCK_TIMEOUT_HINT,
+                           value = SKIP_LOCKED))
+    @Query("SELECT n FROM OrderNotification n WHERE n.nextAttemptAt <= :time " +
+           "ORDER BY n.nextAttemptAt, n.id")
+    List<OrderNotification> findDueForUpdate(Long time, Pageable pageable);
+
+    @Query("SELECT COUNT(n) FROM OrderNotification n WHERE n.nextAttemptAt IS NOT NULL")
+    long countPending();
+
+    @Query("SELECT COUNT(n) > 0 FROM OrderNotification n " +
+           "WHERE n.orderId = :orderId AND n.type = :type AND n.nextAttemptAt IS NOT NULL")
+    boolean existsPending(Long orderId, OrderNotificationType type);
+}
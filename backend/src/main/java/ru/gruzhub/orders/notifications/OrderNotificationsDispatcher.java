@@ -0,0 +1,454 @@
+package ru.gruzhub.orders.notifications;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.sentry.Sentry;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
+import ru.gruzhub.orders.auto.enums.AutoType;
+import ru.gruzhub.orders.auto.models.Auto;
+import ru.gruzhub.orders.notifications.enums.OrderNotificationType;
+import ru.gruzhub.orders.notifications.models.OrderNotification;
+import ru.gruzhub.orders.orders.models.Order;
+import ru.gruzhub.orders.orders.repositories.OrderRepository;
+import ru.gruzhub.telegram.models.TelegramChat;
+import ru.gruzhub.telegram.services.TelegramSenderService;
+import ru.gruzhub.tools.concurrent.BackgroundScheduler;
+import ru.gruzhub.users.UsersService;
+import ru.gruzhub.users.auth.OrderLinksService;
+import ru.gruzhub.users.models.User;
+import ru.gruzhub.users.subscriptions.TelegramSubscriptionsIndex;
+
+/**
+ * Sends the notifications of {@link OrderNotificationsOutbox} from one background thread,
+ * in batches of app.notifications_batch_size. A batch is claimed with SKIP LOCKED and
+ * postponed by {@link #CLAIM_TIMEOUT_MS} in a short transaction, so several instances
+ * share the outbox and no connection is held while Telegram is called. A notification which
+ * could not be sent is retried with exponential backoff, after {@link #MAX_ATTEMPTS} it is
+ * kept in the outbox with the last error and not retried anymore.
+ * <p>
+ * A new order is sent to the recipients of {@link TelegramSubscriptionsIndex} at once, only
+ * the recipients it failed for get their own notifications to retry.
+ */
+@Service
+public class OrderNotificationsDispatcher {
+    // a claimed notification is taken again only when its dispatcher died while sending
+    private static final long CLAIM_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final long FIRST_RETRY_DELAY_MS = TimeUnit.SECONDS.toMillis(10);
+    private static final long MAX_RETRY_DELAY_MS = TimeUnit.HOURS.toMillis(1);
+    private static final int MAX_ATTEMPTS = 10;
+    // shorter than the claim, so that a batch is never sent twice by two dispatchers
+    private static final long SEND_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(2);
+
+    private final OrderNotificationRepository orderNotificationRepository;
+    private final OrderRepository orderRepository;
+    private final UsersService usersService;
+    private final TelegramSubscriptionsIndex telegramSubscriptionsIndex;
+    private final OrderLinksService orderLinksService;
+    private final TelegramSenderService telegramSenderService;
+    private final TransactionTemplate transactionTemplate;
+    private final String appUrl;
+    private final int batchSize;
+    private final long pollIntervalMs;
+
+    private final Counter sentCounter;
+    private final Counter retriedCounter;
+    private final Counter droppedCounter;
+    private final Timer deliveryDelayTimer;
+    private final Timer fanOutDurationTimer;
+    private final AtomicLong pendingCount = new AtomicLong();
+    private final BackgroundScheduler scheduler =
+        new BackgroundScheduler("order-notifications-dispatcher");
+
+    public OrderNotificationsDispatcher(
+        OrderNotificationRepository orderNotificationRepository,
+        OrderRepository orderRepository,
+        UsersService usersService,
+        TelegramSubscriptionsIndex telegramSubscriptionsIndex,
+        OrderLinksService orderLinksService,
+        TelegramSenderService telegramSenderService,
+        TransactionTemplate transactionTemplate,
+        MeterRegistry meterRegistry,
+        @Value("${app.url}") String appUrl,
+        @Value("${app.notifications_batch_size:50}") int batchSize,
+        @Value("${app.notifications_poll_interval_ms:1000}") long pollIntervalMs) {
+        this.orderNotificationRepository = orderNotificationRepository;
+        this.orderRepository = orderRepository;
+        this.usersService = usersService;
+        this.telegramSubscriptionsIndex = telegramSubscriptionsIndex;
+        this.orderLinksService = orderLinksService;
+        this.telegramSenderService = telegramSenderService;
+        this.transactionTemplate = transactionTemplate;
+        this.appUrl = appUrl;
+        this.batchSize = batchSize;
+        this.pollIntervalMs = pollIntervalMs;
+
+        this.sentCounter =
+            Counter.builder("order.notifications").tag("result", "sent").register(meterRegistry);
+        this.retriedCounter =
+            Counter.builder("order.notifications").tag("result", "retried").register(meterRegistry);
+        this.droppedCounter =
+            Counter.builder("order.notifications").tag("result", "dropped").register(meterRegistry);
+        this.deliveryDelayTimer =
+            Timer.builder("order.notifications.delivery.delay").register(meterRegistry);
+        // from the creation of an order to its last recipient notified
+        this.fanOutDurationTimer =
+            Timer.builder("order.notifications.fanout.duration").register(meterRegistry);
+        Gauge.builder("order.notifications.pending", this.pendingCount::get)
+             .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        this.scheduler.repeat(this::dispatchDueNotifications, 0, this.pollIntervalMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.scheduler.shutdown();
+    }
+
+    /**
+     * Sends a batch of the due notifications.
+     *
+     * @return the number of the notifications taken
+     */
+    public int dispatchNotifications() {
+        List<OrderNotification> notifications = this.claimDueNotifications();
+
+        // the messages of the batch are sent in parallel, as fast as Telegram allows
+        Map<OrderNotification, CompletableFuture<Void>> messagesSendings = new LinkedHashMap<>();
+        List<CreatedOrderSending> createdOrdersSendings = new ArrayList<>();
+        for (OrderNotification notification : notifications) {
+            switch (notification.getType()) {
+                case ORDER_CREATED -> {
+                    try {
+                        createdOrdersSendings.add(this.sendCreatedOrder(notification));
+                    } catch (Exception e) {
+                        this.scheduleRetry(notification, e);
+                    }
+                }
+                case MESSAGE, ORDER_CREATED_MESSAGE ->
+                    messagesSendings.put(notification, this.sendMessage(notification));
+            }
+        }
+
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SEND_TIMEOUT_MS);
+        try {
+            this.awaitMessages(messagesSendings, deadlineNanos);
+            this.awaitCreatedOrders(createdOrdersSendings, deadlineNanos);
+        } catch (InterruptedException e) {
+            // the claims expire and the rest is retried then
+            Thread.currentThread().interrupt();
+        }
+
+        if (notifications.size() < this.batchSize) {
+            this.pendingCount.set(this.orderNotificationRepository.countPending());
+        }
+
+        return notifications.size();
+    }
+
+    private void dispatchDueNotifications() {
+        // a full batch means there may be more, they are taken right away
+        int takenCount;
+        do {
+            takenCount = this.dispatchNotifications();
+        } while (takenCount == this.batchSize && !Thread.currentThread().isInterrupted());
+    }
+
+    private List<OrderNotification> claimDueNotifications() {
+        long now = System.currentTimeMillis();
+        PageRequest batch = PageRequest.ofSize(this.batchSize);
+
+        return this.transactionTemplate.execute(status -> {
+            List<OrderNotification> notifications =
+                this.orderNotificationRepository.findDueForUpdate(now, batch);
+            for (OrderNotification notification : notifications) {
+                notification.setAttempts(notification.getAttempts() + 1);
+                notification.setNextAttemptAt(now + CLAIM_TIMEOUT_MS);
+            }
+            return notifications;
+        });
+    }
+
+    private void awaitMessages(Map<OrderNotification, CompletableFuture<Void>> sendings,
+                               long deadlineNanos) throws InterruptedException {
+        for (Map.Entry<OrderNotification, CompletableFuture<Void>> sending : sendings.entrySet()) {
+            OrderNotification notification = sending.getKey();
+            Throwable error = awaitSending(sending.getValue(), deadlineNanos);
+            if (error != null) {
+                this.scheduleRetry(notification, error);
+                continue;
+            }
+
+            try {
+                this.orderNotificationRepository.deleteById(notification.getId());
+            } catch (Exception e) {
+                this.scheduleRetry(notification, e);
+                continue;
+            }
+
+            this.recordSent(notification.getCreatedAt());
+            if (notification.getType() == OrderNotificationType.ORDER_CREATED_MESSAGE) {
+                this.recordFanOutIfCompleted(notification);
+            }
+        }
+    }
+
+    /**
+     * Sends the new order to the masters of its region and the admins by the subscriptions
+     * index, every recipient with its own link, all of them as one batch.
+     */
+    private CreatedOrderSending sendCreatedOrder(OrderNotification notification) {
+        CreatedOrder createdOrder = this.transactionTemplate.execute(status -> {
+            Order order = this.orderRepository.findWithAutosById(notification.getOrderId())
+                                              .orElseThrow();
+            return new CreatedOrder(order.getRegionId(), this.getCreatedOrderMessage(order));
+        });
+
+        Map<Long, List<Long>> recipientsChats =
+            this.telegramSubscriptionsIndex.getRegionRecipientsChats(createdOrder.regionId());
+        Map<Long, String> links =
+            this.orderLinksService.getOrderLinksByUsersIds(List.copyOf(recipientsChats.keySet()),
+                                                           notification.getOrderId());
+
+        Map<Long, CompletableFuture<Void>> recipientsSendings = new LinkedHashMap<>();
+        for (Map.Entry<Long, String> link : links.entrySet()) {
+            recipientsSendings.put(link.getKey(),
+                                   this.sendToChats(recipientsChats.get(link.getKey()),
+                                                    createdOrder.message(),
+                                                    link.getValue()));
+        }
+
+        return new CreatedOrderSending(notification, createdOrder.message(), recipientsSendings);
+    }
+
+    /**
+     * Replaces the notification about a new order by a notification for each recipient the
+     * message could not be sent to, so that it is retried only for them.
+     */
+    private void awaitCreatedOrders(List<CreatedOrderSending> sendings, long deadlineNanos)
+        throws InterruptedException {
+        for (CreatedOrderSending sending : sendings) {
+            OrderNotification notification = sending.notification();
+
+            long now = System.currentTimeMillis();
+            List<OrderNotification> retries = new ArrayList<>();
+            for (Map.Entry<Long, CompletableFuture<Void>> recipientSending :
+                sending.recipientsSendings().entrySet()) {
+                Throwable error = awaitSending(recipientSending.getValue(), deadlineNanos);
+                if (error == null) {
+                    this.recordSent(notification.getCreatedAt());
+                    continue;
+                }
+
+                retries.add(new OrderNotification(null,
+                                                  OrderNotificationType.ORDER_CREATED_MESSAGE,
+                                                  notification.getOrderId(),
+                                                  recipientSending.getKey(),
+                                                  sending.message(),
+                                                  1,
+                                                  now + FIRST_RETRY_DELAY_MS,
+                                                  String.valueOf(error.getMessage()),
+                                                  notification.getCreatedAt()));
+                this.retriedCounter.increment();
+            }
+
+            try {
+                this.transactionTemplate.executeWithoutResult(status -> {
+                    this.orderNotificationRepository.saveAll(retries);
+                    this.orderNotificationRepository.deleteById(notification.getId());
+                });
+            } catch (Exception e) {
+                // the order is sent out again, also to the recipients who have got it
+                this.scheduleRetry(notification, e);
+                continue;
+            }
+
+            if (retries.isEmpty()) {
+                this.recordFanOut(notification.getCreatedAt());
+            }
+        }
+    }
+
+    private CompletableFuture<Void> sendMessage(OrderNotification notification) {
+        try {
+            User recipient =
+                this.usersService.getUserWithTelegramChats(notification.getRecipientId());
+            String authLink =
+                this.orderLinksService.getOrderLink(recipient, notification.getOrderId());
+            List<Long> chatsIds = recipient.getConnectedTelegramChats()
+                                           .stream()
+                                           .map(TelegramChat::getTelegramChatId)
+                                           .toList();
+
+            return this.sendToChats(chatsIds, notification.getMessage(), authLink);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private CompletableFuture<Void> sendToChats(List<Long> chatsIds,
+                                                String message,
+                                                String authLink) {
+        InlineKeyboardMarkup keyboardMarkup = new InlineKeyboardMarkup();
+        InlineKeyboardButton button = new InlineKeyboardButton();
+        button.setText("Посмотреть");
+        button.setUrl(authLink);
+        keyboardMarkup.setKeyboard(List.of(List.of(button)));
+
+        List<CompletableFuture<Void>> chatsSendings = new ArrayList<>();
+        for (Long chatId : chatsIds) {
+            chatsSendings.add(this.telegramSenderService.sendMessageAsync(chatId,
+                                                                          message,
+                                                                          keyboardMarkup));
+        }
+        CompletableFuture<Void> sending =
+            CompletableFuture.allOf(chatsSendings.toArray(CompletableFuture[]::new));
+        // a cancelled sending takes its messages out of the queue of the dispatcher
+        sending.whenComplete((ignored, error) -> {
+            if (error instanceof CancellationException) {
+                chatsSendings.forEach(chatSending -> chatSending.cancel(false));
+            }
+        });
+        return sending;
+    }
+
+    /**
+     * Cancels the sending when it has not completed by the deadline, so that the messages still
+     * queued are not sent besides the retry. A message being sent at that moment may still
+     * reach its chat.
+     *
+     * @return the reason the sending has failed, null when it has succeeded
+     */
+    @Nullable
+    private static Throwable awaitSending(CompletableFuture<Void> sending, long deadlineNanos)
+        throws InterruptedException {
+        try {
+            sending.get(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        } catch (TimeoutException e) {
+            sending.cancel(false);
+            return e;
+        }
+    }
+
+    private void recordSent(long createdAt) {
+        this.sentCounter.increment();
+        this.deliveryDelayTimer.record(System.currentTimeMillis() - createdAt,
+                                       TimeUnit.MILLISECONDS);
+    }
+
+    private void recordFanOut(long createdAt) {
+        this.fanOutDurationTimer.record(System.currentTimeMillis() - createdAt,
+                                        TimeUnit.MILLISECONDS);
+    }
+
+    // the order has reached its last recipient when no other retry of it is pending
+    private void recordFanOutIfCompleted(OrderNotification notification) {
+        try {
+            if (!this.orderNotificationRepository.existsPending(
+                notification.getOrderId(),
+                OrderNotificationType.ORDER_CREATED_MESSAGE)) {
+                this.recordFanOut(notification.getCreatedAt());
+            }
+        } catch (Exception e) {
+            Sentry.captureException(e);
+        }
+    }
+
+    private void scheduleRetry(OrderNotification notification, Throwable error) {
+        notification.setLastError(String.valueOf(error.getMessage()));
+
+        if (notification.getAttempts() >= MAX_ATTEMPTS) {
+            notification.setNextAttemptAt(null);
+            this.droppedCounter.increment();
+            Sentry.captureException(error);
+        } else {
+            long delayMs = Math.min(FIRST_RETRY_DELAY_MS << (notification.getAttempts() - 1),
+                                    MAX_RETRY_DELAY_MS);
+            notification.setNextAttemptAt(System.currentTimeMillis() + delayMs);
+            this.retriedCounter.increment();
+        }
+
+        try {
+            this.orderNotificationRepository.save(notification);
+        } catch (Exception e) {
+            // the claim expires and the notification is retried then
+            Sentry.captureException(e);
+        }
+    }
+
+    private String getCreatedOrderMessage(Order order) {
+        StringBuilder message = new StringBuilder("Создан заказ #").append(order.getId())
+                                                                   .append(" в регионе ")
+                                                                   .append(order.getAddress()
+                                                                                .getRegion()
+                                                                                .getName());
+
+        for (Auto auto : order.getAutos()) {
+            if (auto.getType() == AutoType.TRUCK) {
+                message.append("\n\nГрузовик").append("\nМарка: ").append(auto.getBrand());
+                if (auto.getModel() != null) {
+                    message.append("\nМодель: ").append(auto.getModel());
+                }
+            }
+            if (auto.getType() == AutoType.TRAILER && auto.getModel() != null) {
+                message.append("\n\nПрицеп").append("\nТип: ").append(auto.getModel());
+            }
+        }
+
+        message.append("\n\n").append(order.getDescription());
+
+        if (order.isNeedEvacuator() || order.isNeedMobileTeam()) {
+            message.append("\n");
+            if (order.isNeedEvacuator()) {
+                message.append("\n- Требуется эвакуатор");
+            }
+            if (order.isNeedMobileTeam()) {
+                message.append("\n- Требуется выездная бригада");
+            }
+        }
+
+        message.append("\n\nСрочность: ")
+               .append(order.getUrgency())
+               .append("\n\nДля просмотра - ")
+               .append(this.appUrl);
+
+        return message.toString();
+    }
+
+    private record CreatedOrder(Long regionId, String message) {
+    }
+
+    /**
+     * @param recipientsSendings by recipient id
+     */
+    private record CreatedOrderSending(OrderNotification notification,
+                                       String message,
+                                       Map<Long, CompletableFuture<Void>> recipientsSendings) {
+    }
+}
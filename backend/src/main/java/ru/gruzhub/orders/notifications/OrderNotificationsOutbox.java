@@ -0,0 +1,42 @@
+package ru.gruzhub.orders.notifications;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.gruzhub.orders.notifications.enums.OrderNotificationType;
+import ru.gruzhub.orders.notifications.models.OrderNotification;
+
+/**
+ * Telegram notifications about orders. They are saved in the transaction of the order change,
+ * so a notification is sent only when the change is committed and is not lost on a restart.
+ * {@link OrderNotificationsDispatcher} sends them.
+ */
+@Service
+@RequiredArgsConstructor
+public class OrderNotificationsOutbox {
+    private final OrderNotificationRepository orderNotificationRepository;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void orderCreated(Long orderId) {
+        this.add(OrderNotificationType.ORDER_CREATED, orderId, null, null);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void sendMessage(Long orderId, Long recipientId, String message) {
+        this.add(OrderNotificationType.MESSAGE, orderId, recipientId, message);
+    }
+
+    private void add(OrderNotificationType type, Long orderId, Long recipientId, String message) {
+        long now = System.currentTimeMillis();
+        this.orderNotificationRepository.save(new OrderNotification(null,
+                                                                    type,
+                                                                    orderId,
+                                                                    recipientId,
+                                                                    message,
+                                                                    0,
+                                                                    now,
+                                                                    null,
+                                                                    now));
+    }
+}
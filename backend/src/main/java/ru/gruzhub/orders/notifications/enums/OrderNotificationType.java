@@ -0,0 +1,11 @@
+package ru.gruzhub.orders.notifications.enums;
+
+public enum OrderNotificationType {
+    // a new order for the masters of its region and the admins, replaced by an
+    // ORDER_CREATED_MESSAGE notification for each of them it could not be sent to
+    ORDER_CREATED,
+    // the new order message to the recipient, sent again
+    ORDER_CREATED_MESSAGE,
+    // the message to the recipient
+    MESSAGE
+}
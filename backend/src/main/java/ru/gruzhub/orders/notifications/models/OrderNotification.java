@@ -0,0 +1,61 @@
+package ru.gruzhub.orders.notifications.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ru.gruzhub.orders.notifications.enums.OrderNotificationType;
+
+@Entity
+@Table(name = "order_notifications_outbox")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderNotification {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type",
+            nullable = false,
+            columnDefinition = "TEXT")
+    private OrderNotificationType type;
+
+    @Column(name = "order_id",
+            nullable = false)
+    private Long orderId;
+
+    @Column(name = "recipient_id")
+    private Long recipientId;
+
+    @Column(name = "message",
+            columnDefinition = "TEXT")
+    private String message;
+
+    @Column(name = "attempts",
+            nullable = false)
+    private int attempts;
+
+    // null when the notification is given up on
+    @Column(name = "next_attempt_at")
+    private Long nextAttemptAt;
+
+    @Column(name = "last_error",
+            columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "created_at",
+            nullable = false)
+    private Long createdAt;
+}
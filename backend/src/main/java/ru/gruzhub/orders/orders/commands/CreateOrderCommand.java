@@ -1,19 +1,16 @@
 package ru.gruzhub.orders.orders.commands;
 
-import io.sentry.Sentry;
 import jakarta.annotation.Nullable;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
-import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
+import org.springframework.transaction.annotation.Transactional;
 import ru.gruzhub.address.AddressesService;
 import ru.gruzhub.address.RegionsService;
 import ru.gruzhub.address.models.Address;
 import ru.gruzhub.address.models.Region;
 import ru.gruzhub.orders.auto.AutoService;
-import ru.gruzhub.orders.auto.enums.AutoType;
 import ru.gruzhub.orders.auto.models.Auto;
+import ru.gruzhub.orders.notifications.OrderNotificationsOutbox;
 import ru.gruzhub.orders.orders.dto.CreateOrderRequestDto;
 import ru.gruzhub.orders.orders.dto.CreateOrderResponseDto;
 import ru.gruzhub.orders.orders.dto.OrderAutoDto;
@@ -22,10 +19,10 @@ import ru.gruzhub.orders.orders.models.Order;
 import ru.gruzhub.orders.orders.models.OrderStatusChange;
 import ru.gruzhub.orders.orders.repositories.OrderRepository;
 import ru.gruzhub.orders.orders.repositories.OrderStatusChangeRepository;
-import ru.gruzhub.telegram.models.TelegramChat;
-import ru.gruzhub.telegram.services.TelegramSenderService;
+import ru.gruzhub.orders.orders.services.OrderEventsService;
+import ru.gruzhub.orders.orders.services.OrdersVersionsService;
+import ru.gruzhub.tools.transactions.TransactionCallbacks;
 import ru.gruzhub.users.UsersService;
-import ru.gruzhub.users.dto.SignInUserResponseDto;
 import ru.gruzhub.users.dto.UpdateUserRequestDto;
 import ru.gruzhub.users.enums.UserRole;
 import ru.gruzhub.users.models.User;
@@ -43,18 +40,13 @@ public class CreateOrderCommand {
     private final AddressesService addressesService;
     private final AutoService autoService;
     private final RegionsService regionsService;
-    private final TelegramSenderService telegramSenderService;
+    private final OrderNotificationsOutbox orderNotificationsOutbox;
+    private final OrdersVersionsService ordersVersionsService;
+    private final OrderEventsService orderEventsService;
 
-    @Value("${app.url}")
-    private String appUrl;
-
-    public CreateOrderResponseDto createOrder(@Nullable String authorization,
+    @Transactional
+    public CreateOrderResponseDto createOrder(@Nullable User authorizedUser,
                                               CreateOrderRequestDto createOrderRequest) {
-        User authorizedUser = null;
-        if (authorization != null) {
-            authorizedUser = this.usersService.getUserFromToken(authorization);
-        }
-
         CreateOrderResponseDto createOrderResponseDto =
                 this.getResponseIfDuplicatedOrder(createOrderRequest);
         if (createOrderResponseDto != null) {
@@ -94,9 +86,11 @@ public class CreateOrderCommand {
                         driver)
                 .build();
         this.orderStatusChangeRepository.save(orderStatusChange);
+        this.orderNotificationsOutbox.orderCreated(order.getId());
+        this.ordersVersionsService.orderChanged(order);
 
         Order finalOrder = order;
-        Thread.startVirtualThread(() -> this.sendNotificationToRegionMasters(finalOrder.getId()));
+        TransactionCallbacks.afterCommit(() -> this.orderEventsService.orderCreated(finalOrder));
 
         if (driver != null && authorizedUser == null) {
             return new CreateOrderResponseDto(finalOrder.getId(),
@@ -216,93 +210,4 @@ public class CreateOrderCommand {
 
         return autos;
     }
-
-    private void sendNotificationToRegionMasters(Long orderId) {
-        Order order = this.orderRepository.findById(orderId).orElseThrow();
-        List<User> mastersInRegion =
-                this.usersService.getMastersWithTelegramInRegion(order.getAddress()
-                        .getRegion()
-                        .getId());
-        List<User> admins = this.usersService.getAdmins();
-
-        List<User> mastersAndAdmins = new ArrayList<>();
-        mastersAndAdmins.addAll(mastersInRegion);
-        mastersAndAdmins.addAll(admins);
-
-        String message = this.getCreatedOrderMessage(order);
-
-        for (User masterOrAdmin : mastersAndAdmins) {
-            if (masterOrAdmin.getConnectedTelegramChats().isEmpty()) {
-                continue;
-            }
-
-            SignInUserResponseDto masterAuth =
-                    this.usersService.getUserAccessNoAuth(masterOrAdmin.getId());
-            String authLink = appUrl + "?userId=" +
-                    masterAuth.getId() +
-                    "&accessToken=" +
-                    masterAuth.getAccessToken() +
-                    "&orderId=" +
-                    order.getId();
-
-            try {
-                InlineKeyboardMarkup keyboardMarkup = new InlineKeyboardMarkup();
-                List<List<InlineKeyboardButton>> rows = new ArrayList<>();
-                keyboardMarkup.setKeyboard(rows);
-
-                InlineKeyboardButton button = new InlineKeyboardButton();
-                button.setText("Посмотреть");
-                button.setUrl(authLink);
-                rows.add(List.of(button));
-
-                if (masterOrAdmin.getConnectedTelegramChats() != null) {
-                    for (TelegramChat chat : masterOrAdmin.getConnectedTelegramChats()) {
-                        this.telegramSenderService.sendMessage(chat.getTelegramChatId(),
-                                message,
-                                keyboardMarkup);
-                    }
-                }
-            } catch (Exception e) {
-                Sentry.captureException(e);
-            }
-        }
-    }
-
-    private String getCreatedOrderMessage(Order order) {
-        StringBuilder message = new StringBuilder("Создан заказ #").append(order.getId())
-                .append(" в регионе ")
-                .append(order.getAddress()
-                        .getRegion()
-                        .getName());
-
-        for (Auto auto : order.getAutos()) {
-            if (auto.getType() == AutoType.TRUCK) {
-                message.append("\n\nГрузовик").append("\nМарка: ").append(auto.getBrand());
-                if (auto.getModel() != null) {
-                    message.append("\nМодель: ").append(auto.getModel());
-                }
-            }
-            if (auto.getType() == AutoType.TRAILER && auto.getModel() != null) {
-                message.append("\n\nПрицеп").append("\nТип: ").append(auto.getModel());
-            }
-        }
-
-        message.append("\n\n").append(order.getDescription());
-
-        if (order.isNeedEvacuator() || order.isNeedMobileTeam()) {
-            message.append("\n");
-            if (order.isNeedEvacuator()) {
-                message.append("\n- Требуется эвакуатор");
-            }
-            if (order.isNeedMobileTeam()) {
-                message.append("\n- Требуется выездная бригада");
-            }
-        }
-
-        message.append("\n\nСрочность: ")
-                .append(order.getUrgency())
-                .append("\n\nДля просмотра - " + appUrl);
-
-        return message.toString();
-    }
 }
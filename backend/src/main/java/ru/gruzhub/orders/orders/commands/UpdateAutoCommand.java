@@ -7,13 +7,18 @@ import ru.gruzhub.orders.auto.AutoService;
 import ru.gruzhub.orders.auto.models.Auto;
 import ru.gruzhub.orders.orders.models.Order;
 import ru.gruzhub.orders.orders.repositories.OrderRepository;
+import ru.gruzhub.orders.orders.services.OrdersVersionsService;
 
 @Service
 @RequiredArgsConstructor
 public class UpdateAutoCommand {
     private final AutoService autoService;
     private final OrderRepository orderRepository;
+    private final OrdersVersionsService ordersVersionsService;
 
+    /**
+     * Must be called in a transaction, the orders versions are bumped together with the auto.
+     */
     public void updateAuto(Auto autoToUpdate) {
         Auto updatedAuto = this.autoService.updateAuto(autoToUpdate);
 
@@ -21,6 +26,10 @@ public class UpdateAutoCommand {
             this.moveOrdersFromDuplicatedAutoToOriginalAuto(autoToUpdate, updatedAuto);
         }
 
+        // the auto is shown in every order of it
+        for (Order order : this.orderRepository.findOrdersByAuto(updatedAuto.getId())) {
+            this.ordersVersionsService.orderChanged(order);
+        }
     }
 
     private void moveOrdersFromDuplicatedAutoToOriginalAuto(Auto duplicatedAuto,
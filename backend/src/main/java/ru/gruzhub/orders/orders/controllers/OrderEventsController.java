@@ -0,0 +1,46 @@
+package ru.gruzhub.orders.orders.controllers;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.gruzhub.orders.orders.dto.OrderEventsTokenResponseDto;
+import ru.gruzhub.orders.orders.services.OrderEventsService;
+import ru.gruzhub.users.auth.AuthorizedUser;
+import ru.gruzhub.users.auth.OrderEventsTokensService;
+import ru.gruzhub.users.models.User;
+
+@RestController
+@RequestMapping("/orders/events")
+@RequiredArgsConstructor
+public class OrderEventsController {
+    private final OrderEventsService orderEventsService;
+    private final OrderEventsTokensService orderEventsTokensService;
+
+    /**
+     * Short-lived single-use token for {@link #subscribe(User, String)}, the client requests
+     * a new one before each (re)connection.
+     */
+    @PostMapping("/token")
+    public OrderEventsTokenResponseDto createToken(@AuthorizedUser User user) {
+        return new OrderEventsTokenResponseDto(this.orderEventsTokensService.createToken(user));
+    }
+
+    /**
+     * EventSource cannot set headers, so it passes a token from {@link #createToken(User)}
+     * as a parameter instead of the session token.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@AuthorizedUser(required = false) User user,
+                                @RequestParam(required = false) String token) {
+        if (user == null) {
+            user = this.orderEventsTokensService.useToken(token);
+        }
+
+        return this.orderEventsService.subscribe(user);
+    }
+}
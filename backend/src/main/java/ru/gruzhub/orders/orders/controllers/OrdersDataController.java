@@ -1,8 +1,11 @@
 package ru.gruzhub.orders.orders.controllers;
 
+import jakarta.annotation.Nullable;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -13,81 +16,189 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import ru.gruzhub.orders.auto.dto.AutoResponseDto;
+import ru.gruzhub.orders.orders.dto.GetOrdersByIdsRequestDto;
 import ru.gruzhub.orders.orders.dto.GetOrdersRequestDto;
 import ru.gruzhub.orders.orders.dto.OrderResponseDto;
+import ru.gruzhub.orders.orders.dto.OrderStatusChangeDto;
+import ru.gruzhub.orders.orders.dto.OrdersCursor;
+import ru.gruzhub.orders.orders.dto.OrdersSearchResult;
+import ru.gruzhub.orders.orders.dto.SearchOrdersRequestDto;
 import ru.gruzhub.orders.orders.dto.UpdateOrderAutoRequestDto;
 import ru.gruzhub.orders.orders.models.Order;
-import ru.gruzhub.orders.orders.models.OrderStatusChange;
 import ru.gruzhub.orders.orders.services.OrdersDataService;
-import ru.gruzhub.users.UsersService;
+import ru.gruzhub.orders.orders.services.OrdersVersionsService;
+import ru.gruzhub.tools.admin.AdminBulkhead;
+import ru.gruzhub.users.auth.AuthorizedUser;
+import ru.gruzhub.users.dto.UserInfoChangeDto;
+import ru.gruzhub.users.enums.UserRole;
 import ru.gruzhub.users.models.User;
-import ru.gruzhub.users.models.UserInfoChange;
 
 @RestController
 @RequestMapping("/orders")
 @RequiredArgsConstructor
 public class OrdersDataController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final OrdersDataService dataService;
-    private final UsersService usersService;
+    private final AdminBulkhead adminBulkhead;
+    private final OrdersVersionsService ordersVersionsService;
 
+    /**
+     * Admin lists run on {@link AdminBulkhead}, the other roles get an already completed
+     * future.
+     */
     @PostMapping("/orders")
-    public List<OrderResponseDto> getOrders(
-        @RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
-        @RequestBody GetOrdersRequestDto getOrdersRequest) {
-        User user = this.usersService.getUserFromToken(authorization);
-        List<Order> orders = this.dataService.getOrders(user, getOrdersRequest);
-        return orders.stream().map(OrderResponseDto::new).toList();
+    public CompletableFuture<ResponseEntity<List<OrderResponseDto>>> getOrders(
+        @AuthorizedUser User user,
+        @RequestBody GetOrdersRequestDto getOrdersRequest,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH,
+                       required = false) String ifNoneMatch) {
+        // taken before the query, so a change during it only makes the next poll reload
+        String etag = this.ordersVersionsService.getFeedEtag(user, getOrdersRequest);
+        if (isNotModified(ifNoneMatch, etag)) {
+            return CompletableFuture.completedFuture(
+                ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build());
+        }
+
+        if (user.getRole() == UserRole.ADMIN) {
+            return this.adminBulkhead.submit(() -> this.getOrdersPage(user,
+                                                                      getOrdersRequest,
+                                                                      etag));
+        }
+
+        return CompletableFuture.completedFuture(this.getOrdersPage(user,
+                                                                    getOrdersRequest,
+                                                                    etag));
+    }
+
+    @PostMapping("/batch")
+    public List<OrderResponseDto> getOrdersByIds(
+        @AuthorizedUser User user,
+        @RequestBody GetOrdersByIdsRequestDto getOrdersRequest) {
+        return this.dataService.getOrdersByIds(user, getOrdersRequest.getOrdersIds())
+                               .stream()
+                               .map(OrderResponseDto::new)
+                               .toList();
+    }
+
+    @PostMapping("/search")
+    public CompletableFuture<ResponseEntity<List<OrderResponseDto>>> searchOrders(
+        @AuthorizedUser User user,
+        @RequestBody SearchOrdersRequestDto request) {
+        if (user.getRole() == UserRole.ADMIN) {
+            return this.adminBulkhead.submit(() -> this.searchOrdersPage(user, request));
+        }
+
+        return CompletableFuture.completedFuture(this.searchOrdersPage(user, request));
     }
 
     @GetMapping("/auto")
     public AutoResponseDto getOrderAuto(
-        @RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+        @AuthorizedUser User user,
         @RequestParam Long orderId,
         @RequestParam Long autoId) {
-        User user = this.usersService.getUserFromToken(authorization);
         return this.dataService.getOrderAuto(user, orderId, autoId);
     }
 
     @PostMapping("/auto")
     public ResponseEntity<Void> updateOrderAuto(
-        @RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+        @AuthorizedUser User user,
         @RequestBody UpdateOrderAutoRequestDto updateAutoRequest) {
-        User user = this.usersService.getUserFromToken(authorization);
         this.dataService.updateOrderAuto(user, updateAutoRequest);
         return ResponseEntity.ok().build();
     }
 
     @GetMapping("/auto/{autoId}")
     public List<OrderResponseDto> getAutoOrders(
-        @RequestHeader(HttpHeaders.AUTHORIZATION) String authorization, @PathVariable Long autoId) {
-        User user = this.usersService.getUserFromToken(authorization);
+        @AuthorizedUser User user, @PathVariable Long autoId) {
         return this.dataService.getAutoOrders(user, autoId);
     }
 
     @GetMapping("/{orderId}")
-    public OrderResponseDto getOrderById(@PathVariable Long orderId,
-                                         @RequestHeader(HttpHeaders.AUTHORIZATION)
-                                         String authorization) {
+    public ResponseEntity<OrderResponseDto> getOrderById(
+        @PathVariable Long orderId,
+        @AuthorizedUser User user,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH,
+                       required = false) String ifNoneMatch) {
+        String etag = this.ordersVersionsService.getOrderEtag(user, orderId);
+        if (isNotModified(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
 
-        User user = this.usersService.getUserFromToken(authorization);
-        Order order = this.dataService.getOrderById(user, orderId);
-        return new OrderResponseDto(order);
+        Order order = this.dataService.getOrderDetailsById(user, orderId);
+        return ResponseEntity.ok().eTag(etag).body(new OrderResponseDto(order));
     }
 
     @GetMapping("/order-status-changes/{orderId}")
-    public List<OrderStatusChange> getOrderStatusChanges(@PathVariable Long orderId,
-                                                         @RequestHeader(HttpHeaders.AUTHORIZATION)
-                                                         String authorization) {
-        User user = this.usersService.getUserFromToken(authorization);
-        return this.dataService.getOrderStatusChanges(user, orderId);
+    public ResponseEntity<List<OrderStatusChangeDto>> getOrderStatusChanges(
+        @PathVariable Long orderId,
+        @AuthorizedUser User user,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH,
+                       required = false) String ifNoneMatch) {
+        String etag = this.ordersVersionsService.getOrderEtag(user, orderId);
+        if (isNotModified(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        return ResponseEntity.ok()
+                             .eTag(etag)
+                             .body(this.dataService.getOrderStatusChanges(user, orderId));
     }
 
     @GetMapping("/user-changes")
-    public List<UserInfoChange> getUserChangesByOrderId(
-        @RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+    public List<UserInfoChangeDto> getUserChangesByOrderId(
+        @AuthorizedUser User user,
         @RequestParam Long orderId,
         @RequestParam Long userId) {
-        User user = this.usersService.getUserFromToken(authorization);
         return this.dataService.getUserInfoChanges(user, orderId, userId);
     }
+
+    private ResponseEntity<List<OrderResponseDto>> getOrdersPage(
+        User user,
+        GetOrdersRequestDto getOrdersRequest,
+        String etag) {
+        List<OrderResponseDto> ordersResponse = this.dataService.getOrders(user, getOrdersRequest);
+
+        Integer limit = getOrdersRequest.getLimit();
+        if (limit == null || limit <= 0 || ordersResponse.size() < limit) {
+            return ResponseEntity.ok().eTag(etag).body(ordersResponse);
+        }
+
+        String nextCursor =
+            OrdersCursor.after(ordersResponse.get(ordersResponse.size() - 1)).encode();
+        return ResponseEntity.ok()
+                             .eTag(etag)
+                             .header(NEXT_CURSOR_HEADER, nextCursor)
+                             .body(ordersResponse);
+    }
+
+    private ResponseEntity<List<OrderResponseDto>> searchOrdersPage(
+        User user,
+        SearchOrdersRequestDto request) {
+        OrdersSearchResult result = this.dataService.searchOrders(user, request);
+        List<OrderResponseDto> ordersResponse =
+            result.orders().stream().map(OrderResponseDto::new).toList();
+
+        if (result.nextCursor() == null) {
+            return ResponseEntity.ok(ordersResponse);
+        }
+
+        return ResponseEntity.ok()
+                             .header(NEXT_CURSOR_HEADER, result.nextCursor().encode())
+                             .body(ordersResponse);
+    }
+
+    private static boolean isNotModified(String ifNoneMatch, @Nullable String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+
+        for (String requestEtag : ifNoneMatch.split(",")) {
+            if (requestEtag.trim().equals(etag)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
 }
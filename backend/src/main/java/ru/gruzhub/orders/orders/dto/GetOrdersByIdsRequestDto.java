@@ -0,0 +1,9 @@
+package ru.gruzhub.orders.orders.dto;
+
+import java.util.List;
+import lombok.Data;
+
+@Data
+public class GetOrdersByIdsRequestDto {
+    private List<Long> ordersIds;
+}
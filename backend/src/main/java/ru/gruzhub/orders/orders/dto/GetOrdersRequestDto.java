@@ -14,4 +14,22 @@ public class GetOrdersRequestDto {
     private List<Long> regionsIds;
     private Long userId;
     private Integer limit;
+    // "X-Next-Cursor" header of the previous page, empty for the first page
+    private String cursor;
+
+    /**
+     * Every field of the request in a fixed order, the feed ETag is built from it, so a new
+     * field must be added here too.
+     */
+    public String toCanonicalQuery() {
+        return "statuses=" + this.statuses +
+               "&masterId=" + this.masterId +
+               "&customerId=" + this.customerId +
+               "&driverId=" + this.driverId +
+               "&autoId=" + this.autoId +
+               "&regionsIds=" + this.regionsIds +
+               "&userId=" + this.userId +
+               "&limit=" + this.limit +
+               "&cursor=" + this.cursor;
+    }
 }
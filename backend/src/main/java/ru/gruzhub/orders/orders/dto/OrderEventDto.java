@@ -0,0 +1,20 @@
+package ru.gruzhub.orders.orders.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.gruzhub.orders.orders.enums.OrderEventType;
+import ru.gruzhub.orders.orders.enums.OrderStatus;
+
+/**
+ * Pushed to the events stream, clients reload the order when they need more than the status.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderEventDto {
+    private OrderEventType type;
+    private Long orderId;
+    private OrderStatus status;
+    private Long updatedAt;
+}
@@ -0,0 +1,14 @@
+package ru.gruzhub.orders.orders.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderEventsTokenResponseDto {
+    private String token;
+}
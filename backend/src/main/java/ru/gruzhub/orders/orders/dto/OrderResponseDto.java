@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.List;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.Hibernate;
 import ru.gruzhub.address.models.Address;
 import ru.gruzhub.orders.auto.dto.AutoResponseDto;
 import ru.gruzhub.orders.auto.models.Auto;
@@ -36,7 +37,7 @@ public class OrderResponseDto {
     @JsonProperty("isNeedMobileTeam")
     private boolean isNeedMobileTeam;
     private String urgency;
-    private List<Long> declinedMastersIds;
+    private long[] declinedMastersIds;
 
     public OrderResponseDto(Order order) {
         this.id = order.getId();
@@ -68,7 +69,8 @@ public class OrderResponseDto {
         this.updatedAt = order.getUpdatedAt();
         this.status = order.getStatus();
         this.lastStatusUpdateTime = order.getLastStatusUpdateTime();
-        this.address = order.getAddress();
+        // the address is a lazy proxy, Jackson can serialize the entity only
+        this.address = (Address) Hibernate.unproxy(order.getAddress());
         this.isNeedEvacuator = order.isNeedEvacuator();
         this.isNeedMobileTeam = order.isNeedMobileTeam();
         this.urgency = order.getUrgency();
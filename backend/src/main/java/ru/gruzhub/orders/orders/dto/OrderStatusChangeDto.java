@@ -1,10 +1,13 @@
 package ru.gruzhub.orders.orders.dto;
 
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import ru.gruzhub.orders.orders.enums.OrderStatus;
+import ru.gruzhub.orders.orders.models.OrderStatusChange;
 import ru.gruzhub.users.dto.UserResponseDto;
 
 @Data
+@NoArgsConstructor
 public class OrderStatusChangeDto {
     private Long id;
     private Long updatedAt;
@@ -13,4 +16,16 @@ public class OrderStatusChangeDto {
     private UserResponseDto updatedBy;
     private UserResponseDto master;
     private String comment;
+
+    public OrderStatusChangeDto(OrderStatusChange statusChange) {
+        this.id = statusChange.getId();
+        this.updatedAt = statusChange.getUpdatedAt();
+        this.orderId = statusChange.getOrder().getId();
+        this.newStatus = statusChange.getNewStatus();
+        this.updatedBy = new UserResponseDto(statusChange.getUpdatedBy());
+        this.master = statusChange.getMaster() != null
+                      ? new UserResponseDto(statusChange.getMaster())
+                      : null;
+        this.comment = statusChange.getComment();
+    }
 }
@@ -0,0 +1,49 @@
+package ru.gruzhub.orders.orders.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import ru.gruzhub.orders.orders.models.Order;
+import ru.gruzhub.tools.exceptions.BadRequestException;
+
+/**
+ * Position in an orders list right after the given order. Lists are sorted by
+ * (status rank, id DESC), so the next page starts where the previous one ended
+ * without skipping rows. Clients get it encoded in the "X-Next-Cursor" header and send it
+ * back as is.
+ */
+public record OrdersCursor(int statusRank, long id) {
+    public static OrdersCursor after(Order order) {
+        return new OrdersCursor(order.getStatusRank(), order.getId());
+    }
+
+    public static OrdersCursor after(OrderResponseDto order) {
+        return new OrdersCursor(order.getStatus().getRank(), order.getId());
+    }
+
+    /**
+     * @return null for an empty cursor, that is the first page
+     */
+    public static OrdersCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+
+        try {
+            byte[] decodedCursor = Base64.getUrlDecoder().decode(cursor);
+            String[] parts = new String(decodedCursor, StandardCharsets.UTF_8).split(":");
+            if (parts.length == 2) {
+                return new OrdersCursor(Integer.parseInt(parts[0]), Long.parseLong(parts[1]));
+            }
+        } catch (IllegalArgumentException e) {
+            // invalid base64 or numbers, handled below
+        }
+
+        throw new BadRequestException("Некорректный курсор");
+    }
+
+    public String encode() {
+        byte[] cursor = (this.statusRank + ":" + this.id).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor);
+    }
+
+}
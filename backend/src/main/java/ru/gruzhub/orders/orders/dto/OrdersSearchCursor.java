@@ -0,0 +1,41 @@
+package ru.gruzhub.orders.orders.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import ru.gruzhub.tools.exceptions.BadRequestException;
+
+/**
+ * Position in search results right after the order with the given rank. Results are sorted by
+ * (rank DESC, id DESC), the same as {@link OrdersCursor} for the orders lists.
+ */
+public record OrdersSearchCursor(float rank, long id) {
+    /**
+     * @return null for an empty cursor, that is the first page
+     */
+    public static OrdersSearchCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+
+        try {
+            byte[] decodedCursor = Base64.getUrlDecoder().decode(cursor);
+            String[] parts = new String(decodedCursor, StandardCharsets.UTF_8).split(":");
+            if (parts.length == 2) {
+                // the rank is sent as its bits, so that it compares equal to the database value
+                return new OrdersSearchCursor(Float.intBitsToFloat(Integer.parseInt(parts[0])),
+                                              Long.parseLong(parts[1]));
+            }
+        } catch (IllegalArgumentException e) {
+            // invalid base64 or numbers, handled below
+        }
+
+        throw new BadRequestException("Некорректный курсор");
+    }
+
+    public String encode() {
+        String cursor = Float.floatToIntBits(this.rank) + ":" + this.id;
+        return Base64.getUrlEncoder()
+                     .withoutPadding()
+                     .encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+}
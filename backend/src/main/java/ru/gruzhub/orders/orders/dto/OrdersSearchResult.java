@@ -0,0 +1,12 @@
+package ru.gruzhub.orders.orders.dto;
+
+import jakarta.annotation.Nullable;
+import java.util.List;
+import ru.gruzhub.orders.orders.models.Order;
+
+/**
+ * @param orders     the best matches first
+ * @param nextCursor null on the last page
+ */
+public record OrdersSearchResult(List<Order> orders, @Nullable OrdersSearchCursor nextCursor) {
+}
@@ -0,0 +1,12 @@
+package ru.gruzhub.orders.orders.dto;
+
+import lombok.Data;
+
+@Data
+public class SearchOrdersRequestDto {
+    // words of descriptions and notes, parts of VINs, plate numbers, driver phones
+    private String query;
+    private Integer limit;
+    // "X-Next-Cursor" header of the previous page, empty for the first page
+    private String cursor;
+}
@@ -0,0 +1,5 @@
+package ru.gruzhub.orders.orders.enums;
+
+public enum OrderEventType {
+    ORDER_CREATED, ORDER_STATUS_CHANGED
+}
@@ -1,5 +1,18 @@
 package ru.gruzhub.orders.orders.enums;
 
+import lombok.Getter;
+
+/**
+ * The rank is the position of the status in orders lists, it is stored in orders.status_rank.
+ * Changing a rank requires a migration that updates the stored values.
+ */
+@Getter
 public enum OrderStatus {
-    CREATED, CALCULATING, REVIEWING, ACCEPTED, COMPLETED, CANCEL
+    CREATED(1), CALCULATING(2), REVIEWING(3), ACCEPTED(4), COMPLETED(5), CANCEL(6);
+
+    private final int rank;
+
+    OrderStatus(int rank) {
+        this.rank = rank;
+    }
 }
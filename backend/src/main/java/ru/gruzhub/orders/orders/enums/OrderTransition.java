@@ -0,0 +1,47 @@
+package ru.gruzhub.orders.orders.enums;
+
+import java.util.EnumSet;
+import java.util.Set;
+import lombok.Getter;
+
+/**
+ * Status transitions of the orders workflow. A transition is applied by one conditional
+ * UPDATE (see OrderTransitionRepository), so when two requests change an order at once,
+ * only the first one succeeds.
+ */
+@Getter
+public enum OrderTransition {
+    TAKE_INTO_WORK(EnumSet.of(OrderStatus.CREATED), OrderStatus.CALCULATING, MasterChange.ASSIGN),
+    SEND_FOR_CONFIRMATION(EnumSet.of(OrderStatus.CALCULATING),
+                          OrderStatus.REVIEWING,
+                          MasterChange.KEEP),
+    ACCEPT(EnumSet.of(OrderStatus.REVIEWING), OrderStatus.ACCEPTED, MasterChange.KEEP),
+    COMPLETE(EnumSet.allOf(OrderStatus.class), OrderStatus.COMPLETED, MasterChange.KEEP),
+    // the customer changes the master, the order is new again for the other masters
+    DECLINE_MASTER(EnumSet.allOf(OrderStatus.class), OrderStatus.CREATED, MasterChange.DECLINE),
+    CANCEL(EnumSet.allOf(OrderStatus.class), OrderStatus.CANCEL, MasterChange.REMOVE);
+
+    private final Set<OrderStatus> fromStatuses;
+    private final OrderStatus toStatus;
+    private final MasterChange masterChange;
+
+    OrderTransition(Set<OrderStatus> fromStatuses,
+                    OrderStatus toStatus,
+                    MasterChange masterChange) {
+        this.fromStatuses = fromStatuses;
+        this.toStatus = toStatus;
+        this.masterChange = masterChange;
+    }
+
+    public boolean isAllowedFrom(OrderStatus status) {
+        return this.fromStatuses.contains(status);
+    }
+
+    public enum MasterChange {
+        KEEP,
+        ASSIGN,
+        REMOVE,
+        // removes the master and adds them to the declined masters
+        DECLINE
+    }
+}
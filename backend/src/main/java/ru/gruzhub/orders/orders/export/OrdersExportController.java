@@ -0,0 +1,48 @@
+package ru.gruzhub.orders.orders.export;
+
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.gruzhub.orders.orders.dto.GetOrdersRequestDto;
+import ru.gruzhub.users.UsersService;
+import ru.gruzhub.users.auth.AuthorizedUser;
+import ru.gruzhub.users.enums.UserRole;
+import ru.gruzhub.users.models.User;
+
+@RestController
+@RequestMapping("/orders-export")
+@RequiredArgsConstructor
+public class OrdersExportController {
+    private static final String XLSX_CONTENT_TYPE =
+        "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    private final OrdersExportService ordersExportService;
+    private final UsersService usersService;
+
+    /**
+     * Orders of the admin orders list with the same filters, the cursor and the limit are
+     * ignored. The file is written to the response while the orders are read, the number of
+     * concurrent exports is limited by the admin connection pool.
+     */
+    @PostMapping("/xlsx")
+    public void exportOrders(@AuthorizedUser User user,
+                             @RequestBody GetOrdersRequestDto filters,
+                             HttpServletResponse response) throws IOException {
+        this.usersService.validateAuthRole(user, List.of(UserRole.ADMIN));
+
+        response.setContentType(XLSX_CONTENT_TYPE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                           ContentDisposition.attachment()
+                                             .filename("orders.xlsx")
+                                             .build()
+                                             .toString());
+        this.ordersExportService.exportOrders(filters, response.getOutputStream());
+    }
+}
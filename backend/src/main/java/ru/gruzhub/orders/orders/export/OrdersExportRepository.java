@@ -0,0 +1,148 @@
+package ru.gruzhub.orders.orders.export;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import ru.gruzhub.orders.orders.dto.GetOrdersRequestDto;
+import ru.gruzhub.orders.orders.enums.OrderStatus;
+import ru.gruzhub.tools.admin.AdminDatabase;
+
+/**
+ * Reads orders for the export on the admin connection pool, see {@link AdminDatabase}.
+ * Rows are fetched by a forward-only cursor in batches of {@link #FETCH_SIZE}, so the export
+ * never holds more than a batch in memory.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrdersExportRepository {
+    private static final int FETCH_SIZE = 1000;
+
+    // an order with several autos takes several adjacent rows, one per auto
+    private static final String ORDERS_QUERY = """
+        SELECT o.id,
+               o.status,
+               o.created_at,
+               o.last_status_update_time,
+               r.name  AS region_name,
+               ad.city,
+               ad.street,
+               c.name  AS customer_name,
+               c.phone AS customer_phone,
+               d.name  AS driver_name,
+               d.phone AS driver_phone,
+               m.name  AS master_name,
+               m.phone AS master_phone,
+               o.description,
+               o.notes,
+               a.brand,
+               a.model,
+               a.number,
+               a.vin
+        FROM orders o
+        JOIN address ad ON ad.id = o.address_id
+        LEFT JOIN region r ON r.id = o.region_id
+        LEFT JOIN users c ON c.id = o.customer_id
+        LEFT JOIN users d ON d.id = o.driver_id
+        LEFT JOIN users m ON m.id = o.master_id
+        LEFT JOIN order_to_auto_assosiation oa ON oa.order_id = o.id
+        LEFT JOIN auto a ON a.id = oa.auto_id
+        """;
+
+    private final AdminDatabase adminDatabase;
+
+    /**
+     * Calls the handler for every row of the orders matching the filters of the orders list,
+     * in the order of the list (status rank, id DESC).
+     */
+    public void forEachOrderRow(GetOrdersRequestDto filters, RowCallbackHandler handler) {
+        List<Object> parameters = new ArrayList<>();
+        String sql = ORDERS_QUERY +
+                     createWhereClause(filters, parameters) +
+                     "ORDER BY o.status_rank, o.id DESC";
+
+        JdbcTemplate jdbcTemplate = this.adminDatabase.getJdbcTemplate();
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            // PostgreSQL fetches by a cursor only inside a transaction
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement =
+                     connection.prepareStatement(sql,
+                                                 ResultSet.TYPE_FORWARD_ONLY,
+                                                 ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(FETCH_SIZE);
+                // the statement is not created by the template, so its timeout is set here
+                statement.setQueryTimeout(jdbcTemplate.getQueryTimeout());
+                for (int i = 0; i < parameters.size(); i++) {
+                    statement.setObject(i + 1, parameters.get(i));
+                }
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        handler.processRow(resultSet);
+                    }
+                }
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(autoCommit);
+            }
+
+            return null;
+        });
+    }
+
+    private static String createWhereClause(GetOrdersRequestDto filters,
+                                            List<Object> parameters) {
+        List<String> conditions = new ArrayList<>();
+
+        List<OrderStatus> statuses = filters.getStatuses();
+        if (statuses != null && !statuses.isEmpty()) {
+            conditions.add("o.status IN (" + createPlaceholders(statuses.size()) + ")");
+            statuses.forEach(status -> parameters.add(status.name()));
+        }
+
+        if (filters.getAutoId() != null) {
+            conditions.add("EXISTS (SELECT 1 FROM order_to_auto_assosiation fa " +
+                           "WHERE fa.order_id = o.id AND fa.auto_id = ?)");
+            parameters.add(filters.getAutoId());
+        }
+
+        if (filters.getCustomerId() != null) {
+            conditions.add("o.customer_id = ?");
+            parameters.add(filters.getCustomerId());
+        }
+
+        if (filters.getDriverId() != null) {
+            conditions.add("o.driver_id = ?");
+            parameters.add(filters.getDriverId());
+        }
+
+        if (filters.getUserId() != null) {
+            conditions.add("(o.customer_id = ? OR o.driver_id = ? OR o.master_id = ?)");
+            parameters.addAll(Collections.nCopies(3, filters.getUserId()));
+        }
+
+        List<Long> regionsIds = filters.getRegionsIds();
+        if (regionsIds != null && !regionsIds.isEmpty()) {
+            conditions.add("o.region_id IN (" + createPlaceholders(regionsIds.size()) + ")");
+            parameters.addAll(regionsIds);
+        }
+
+        if (filters.getMasterId() != null) {
+            conditions.add("o.master_id = ?");
+            parameters.add(filters.getMasterId());
+        }
+
+        return conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions) + " ";
+    }
+
+    private static String createPlaceholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
@@ -0,0 +1,160 @@
+package ru.gruzhub.orders.orders.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Date;
+import lombok.RequiredArgsConstructor;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.stereotype.Service;
+import ru.gruzhub.orders.orders.dto.GetOrdersRequestDto;
+
+/**
+ * Writes orders to XLSX while they are read. SXSSF keeps only the last
+ * {@link #ROW_ACCESS_WINDOW_SIZE} rows in memory and flushes older ones to a compressed
+ * temporary file, so the heap does not grow with the number of orders.
+ */
+@Service
+@RequiredArgsConstructor
+public class OrdersExportService {
+    private static final int ROW_ACCESS_WINDOW_SIZE = 100;
+    private static final String[] HEADERS = {
+        "Номер",
+        "Статус",
+        "Создан",
+        "Статус изменён",
+        "Регион",
+        "Город",
+        "Улица",
+        "Заказчик",
+        "Телефон заказчика",
+        "Водитель",
+        "Телефон водителя",
+        "Автосервис",
+        "Телефон автосервиса",
+        "Описание",
+        "Заметки",
+        "Автомобили"
+    };
+
+    private final OrdersExportRepository ordersExportRepository;
+
+    public void exportOrders(GetOrdersRequestDto filters, OutputStream outputStream)
+        throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW_SIZE);
+        workbook.setCompressTempFiles(true);
+
+        try {
+            Sheet sheet = workbook.createSheet("Заказы");
+            Row headerRow = sheet.createRow(0);
+            for (int i = 0; i < HEADERS.length; i++) {
+                headerRow.createCell(i).setCellValue(HEADERS[i]);
+            }
+
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.createDataFormat().getFormat("dd.mm.yyyy hh:mm"));
+
+            OrdersSheetWriter sheetWriter = new OrdersSheetWriter(sheet, dateStyle);
+            this.ordersExportRepository.forEachOrderRow(filters, sheetWriter::addRow);
+            sheetWriter.flush();
+
+            workbook.write(outputStream);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /**
+     * Rows of an order come one after another, one per auto. They are merged into one sheet
+     * row, which is written when the next order starts.
+     */
+    private static class OrdersSheetWriter {
+        private final Sheet sheet;
+        private final CellStyle dateStyle;
+        private Row row;
+        private long orderId;
+        private final StringBuilder autos = new StringBuilder();
+
+        private OrdersSheetWriter(Sheet sheet, CellStyle dateStyle) {
+            this.sheet = sheet;
+            this.dateStyle = dateStyle;
+        }
+
+        private void addRow(ResultSet resultSet) throws SQLException {
+            long rowOrderId = resultSet.getLong("id");
+            if (this.row == null || rowOrderId != this.orderId) {
+                this.flush();
+                this.startOrder(resultSet, rowOrderId);
+            }
+
+            String auto = joinNotBlank(" ",
+                                       resultSet.getString("brand"),
+                                       resultSet.getString("model"),
+                                       resultSet.getString("number"),
+                                       resultSet.getString("vin"));
+            if (!auto.isEmpty()) {
+                if (!this.autos.isEmpty()) {
+                    this.autos.append("; ");
+                }
+                this.autos.append(auto);
+            }
+        }
+
+        private void flush() {
+            if (this.row != null) {
+                this.row.createCell(HEADERS.length - 1).setCellValue(this.autos.toString());
+            }
+        }
+
+        private void startOrder(ResultSet resultSet, long rowOrderId) throws SQLException {
+            this.row = this.sheet.createRow(this.sheet.getLastRowNum() + 1);
+            this.orderId = rowOrderId;
+            this.autos.setLength(0);
+
+            this.row.createCell(0).setCellValue(rowOrderId);
+            this.row.createCell(1).setCellValue(resultSet.getString("status"));
+            this.setDate(2, resultSet.getLong("created_at"));
+            this.setDate(3, resultSet.getLong("last_status_update_time"));
+            this.setText(4, resultSet.getString("region_name"));
+            this.setText(5, resultSet.getString("city"));
+            this.setText(6, resultSet.getString("street"));
+            this.setText(7, resultSet.getString("customer_name"));
+            this.setText(8, resultSet.getString("customer_phone"));
+            this.setText(9, resultSet.getString("driver_name"));
+            this.setText(10, resultSet.getString("driver_phone"));
+            this.setText(11, resultSet.getString("master_name"));
+            this.setText(12, resultSet.getString("master_phone"));
+            this.setText(13, resultSet.getString("description"));
+            this.setText(14, resultSet.getString("notes"));
+        }
+
+        private void setDate(int column, long timeMs) {
+            this.row.createCell(column).setCellValue(new Date(timeMs));
+            this.row.getCell(column).setCellStyle(this.dateStyle);
+        }
+
+        private void setText(int column, String text) {
+            if (text != null) {
+                this.row.createCell(column).setCellValue(text);
+            }
+        }
+
+        private static String joinNotBlank(String delimiter, String... parts) {
+            StringBuilder result = new StringBuilder();
+            for (String part : parts) {
+                if (part != null && !part.isBlank()) {
+                    if (!result.isEmpty()) {
+                        result.append(delimiter);
+                    }
+                    result.append(part);
+                }
+            }
+            return result.toString();
+        }
+    }
+}
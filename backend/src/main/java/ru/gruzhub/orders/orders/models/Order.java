@@ -15,17 +15,22 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
-import jakarta.persistence.PostLoad;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
-import jakarta.persistence.Transient;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Stream;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import ru.gruzhub.address.models.Address;
 import ru.gruzhub.orders.auto.models.Auto;
 import ru.gruzhub.orders.orders.enums.OrderStatus;
@@ -33,11 +38,15 @@ import ru.gruzhub.users.models.User;
 
 @Entity
 @Table(name = "orders")
+@NamedEntityGraph(name = Order.WITH_AUTOS_GRAPH,
+                  attributeNodes = @NamedAttributeNode("autos"))
 @Getter
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class Order {
+    public static final String WITH_AUTOS_GRAPH = "Order.withAutos";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id",
@@ -60,12 +69,11 @@ public class Order {
     @JoinColumn(name = "master_id")
     private User master;
 
+    // sorted, so that a master is looked up by a binary search
+    @JdbcTypeCode(SqlTypes.ARRAY)
     @Column(name = "declined_masters_ids",
-            columnDefinition = "TEXT")
-    private String declinedMastersIdsArray;
-
-    @Transient
-    private List<Long> declinedMastersIds;
+            nullable = false)
+    private long[] declinedMastersIds;
 
     @ManyToOne
     @JoinColumn(name = "driver_id")
@@ -75,7 +83,8 @@ public class Order {
                            CascadeType.MERGE,
                            CascadeType.PERSIST,
                            CascadeType.REFRESH},
-                fetch = FetchType.EAGER)
+                fetch = FetchType.LAZY)
+    @BatchSize(size = 100)
     @JoinTable(name = "order_to_auto_assosiation",
                joinColumns = @JoinColumn(name = "order_id"),
                inverseJoinColumns = @JoinColumn(name = "auto_id"))
@@ -101,6 +110,11 @@ public class Order {
             columnDefinition = "TEXT")
     private OrderStatus status;
 
+    // keeps the orders lists order (status rank, id DESC) indexable, see OrderStatus
+    @Column(name = "status_rank",
+            nullable = false)
+    private Integer statusRank;
+
     @Column(name = "description",
             columnDefinition = "TEXT")
     private String description;
@@ -114,6 +128,18 @@ public class Order {
                 nullable = false)
     private Address address;
 
+    // copy of address.region.id, so that region feeds do not join the address
+    @Column(name = "region_id")
+    private Long regionId;
+
+    // bumped by OrdersVersionsService only, never written from the entity
+    @ColumnDefault("0")
+    @Column(name = "change_version",
+            nullable = false,
+            insertable = false,
+            updatable = false)
+    private Long changeVersion;
+
     @JsonProperty("isNeedEvacuator")
     @Column(name = "is_need_evacuator",
             nullable = false)
@@ -128,21 +154,38 @@ public class Order {
             columnDefinition = "TEXT")
     private String urgency;
 
-    @PostLoad
-    public void postLoad() {
-        if (this.declinedMastersIdsArray != null && !this.declinedMastersIdsArray.isEmpty()) {
-            this.declinedMastersIds =
-                new ArrayList<>(Stream.of(this.declinedMastersIdsArray.split(","))
-                                      .map(Long::parseLong)
-                                      .toList());
-        } else {
-            this.declinedMastersIds = new ArrayList<>();
+    @PrePersist
+    @PreUpdate
+    public void updateDenormalizedColumns() {
+        if (this.declinedMastersIds == null) {
+            this.declinedMastersIds = new long[0];
         }
+        this.statusRank = this.status.getRank();
+        this.regionId = this.address.getRegion() != null ? this.address.getRegion().getId() : null;
     }
 
     public void addDeclinedMaster(Long masterId) {
-        this.declinedMastersIds.add(masterId);
-        this.declinedMastersIdsArray =
-            String.join(",", this.declinedMastersIds.stream().map(String::valueOf).toList());
+        this.declinedMastersIds = this.getDeclinedMastersIdsWith(masterId);
+    }
+
+    /**
+     * The declined masters with the given one added, without changing the order.
+     */
+    public long[] getDeclinedMastersIdsWith(Long masterId) {
+        long[] declinedMastersIds =
+            this.declinedMastersIds != null ? this.declinedMastersIds : new long[0];
+        if (this.isDeclinedByMaster(masterId)) {
+            return declinedMastersIds;
+        }
+
+        long[] updatedIds = Arrays.copyOf(declinedMastersIds, declinedMastersIds.length + 1);
+        updatedIds[declinedMastersIds.length] = masterId;
+        Arrays.sort(updatedIds);
+        return updatedIds;
+    }
+
+    public boolean isDeclinedByMaster(Long masterId) {
+        return this.declinedMastersIds != null &&
+               Arrays.binarySearch(this.declinedMastersIds, masterId) >= 0;
     }
 }
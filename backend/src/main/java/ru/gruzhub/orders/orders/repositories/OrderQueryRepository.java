@@ -2,22 +2,30 @@ package ru.gruzhub.orders.orders.repositories;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.Join;
 import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.ParameterExpression;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 import java.util.ArrayList;
 import java.util.List;
 import org.springframework.stereotype.Repository;
 import ru.gruzhub.orders.auto.models.Auto;
+import ru.gruzhub.orders.orders.dto.OrdersCursor;
+import ru.gruzhub.orders.orders.dto.OrdersSearchCursor;
 import ru.gruzhub.orders.orders.enums.OrderStatus;
 import ru.gruzhub.orders.orders.models.Order;
+import ru.gruzhub.users.enums.UserRole;
+import ru.gruzhub.users.models.User;
 
 @Repository
 public class OrderQueryRepository {
+    private static final String DECLINING_MASTER_ID_PARAMETER = "decliningMasterId";
 
     @PersistenceContext
     private EntityManager entityManager;
@@ -25,39 +33,49 @@ public class OrderQueryRepository {
     /**
      * Retrieves a list of orders for a specific master within a given region,
      * filtered by statuses and limited by the specified number.
+     * New orders of the region which the master has declined are excluded.
      *
      * @param masterId the ID of the master
      * @param regionId the ID of the region
      * @param statuses the list of order statuses to filter by
+     * @param cursor   the position after the previous page (optional)
      * @param limit    the maximum number of orders to retrieve
      * @return a list of matching Order entities
      */
     public List<Order> findMasterOrders(Long masterId,
                                         Long regionId,
                                         List<OrderStatus> statuses,
+                                        OrdersCursor cursor,
                                         Integer limit) {
         CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
         CriteriaQuery<Order> cq = cb.createQuery(Order.class);
         Root<Order> orderRoot = cq.from(Order.class);
+        ParameterExpression<Long> decliningMasterId = null;
 
         List<Predicate> predicates = new ArrayList<>();
 
         if (statuses == null || statuses.isEmpty()) {
+            decliningMasterId = cb.parameter(Long.class, DECLINING_MASTER_ID_PARAMETER);
             // If no statuses provided, include orders where the master is assigned
             // or the order is in the specified region with status CREATED
             predicates.add(cb.or(cb.equal(orderRoot.get("master").get("id"), masterId),
-                                 cb.and(cb.equal(orderRoot.get("address").get("region").get("id"),
-                                                 regionId),
-                                        cb.equal(orderRoot.get("status"), OrderStatus.CREATED))));
+                                 cb.and(cb.equal(orderRoot.get("regionId"), regionId),
+                                        cb.equal(orderRoot.get("status"), OrderStatus.CREATED),
+                                        createNotDeclinedPredicate(cb,
+                                                                   orderRoot,
+                                                                   decliningMasterId))));
         } else if (statuses.contains(OrderStatus.CREATED)) {
+            decliningMasterId = cb.parameter(Long.class, DECLINING_MASTER_ID_PARAMETER);
             // If CREATED status is among the statuses, include orders where:
             // - Master is assigned and status is in the provided statuses
             // - Order is in the specified region with status CREATED
             predicates.add(cb.or(cb.and(cb.equal(orderRoot.get("master").get("id"), masterId),
                                         orderRoot.get("status").in(statuses)),
-                                 cb.and(cb.equal(orderRoot.get("address").get("region").get("id"),
-                                                 regionId),
-                                        cb.equal(orderRoot.get("status"), OrderStatus.CREATED))));
+                                 cb.and(cb.equal(orderRoot.get("regionId"), regionId),
+                                        cb.equal(orderRoot.get("status"), OrderStatus.CREATED),
+                                        createNotDeclinedPredicate(cb,
+                                                                   orderRoot,
+                                                                   decliningMasterId))));
         } else {
             // If CREATED status is not among the statuses, include orders
             // where the master is assigned and status is in the provided statuses
@@ -65,19 +83,19 @@ public class OrderQueryRepository {
                                   orderRoot.get("status").in(statuses)));
         }
 
+        if (cursor != null) {
+            predicates.add(createCursorPredicate(cb, orderRoot, cursor));
+        }
+
         // Build the query with the specified predicates and ordering
         cq.select(orderRoot)
           .where(predicates.toArray(new Predicate[0]))
-          .orderBy(cb.asc(cb.selectCase(orderRoot.get("status"))
-                            .when(OrderStatus.CREATED, 1)
-                            .when(OrderStatus.CALCULATING, 2)
-                            .when(OrderStatus.REVIEWING, 3)
-                            .when(OrderStatus.ACCEPTED, 4)
-                            .when(OrderStatus.COMPLETED, 5)
-                            .when(OrderStatus.CANCEL, 6)
-                            .otherwise(7)), cb.desc(orderRoot.get("id")));
+          .orderBy(cb.asc(orderRoot.get("statusRank")), cb.desc(orderRoot.get("id")));
 
         TypedQuery<Order> query = this.entityManager.createQuery(cq);
+        if (decliningMasterId != null) {
+            query.setParameter(decliningMasterId, masterId);
+        }
         if (limit != null && limit > 0) {
             query.setMaxResults(limit);
         }
@@ -85,6 +103,123 @@ public class OrderQueryRepository {
         return query.getResultList();
     }
 
+    /**
+     * New orders of the region, to load {@code CreatedOrdersIndex}. The status is a literal,
+     * so that Postgres can use the partial index idx_orders_region_created_id.
+     */
+    public List<Order> findCreatedOrders(Long regionId) {
+        String jpql = "SELECT o FROM Order o " +
+                      "WHERE o.regionId = :regionId " +
+                      "AND o.status = ru.gruzhub.orders.orders.enums.OrderStatus.CREATED " +
+                      "ORDER BY o.id";
+
+        return this.entityManager.createQuery(jpql, Order.class)
+                                 .setParameter("regionId", regionId)
+                                 .getResultList();
+    }
+
+    /**
+     * Searches orders by the columns kept by the triggers of V9__add_orders_search: full-text
+     * matches of search_document and fuzzy (trigram) matches of search_text, both indexed.
+     * The rank adds up both kinds of similarity. PostgreSQL only.
+     *
+     * @param masterId when set, only the orders the master can see: their own orders and the
+     *                 new orders of the region which they have not declined
+     * @return positions of the found orders, the best first
+     */
+    public List<OrdersSearchCursor> searchOrders(String text,
+                                                 Long masterId,
+                                                 Long masterRegionId,
+                                                 OrdersSearchCursor cursor,
+                                                 int limit) {
+        String sql =
+            "SELECT found.id, found.rank FROM (" +
+            "SELECT o.id, CAST(ts_rank(o.search_document, q.query) + " +
+            "word_similarity(:text, o.search_text) AS REAL) AS rank " +
+            "FROM orders o, websearch_to_tsquery('russian', :text) AS q(query) " +
+            "WHERE (o.search_document @@ q.query OR :text <% o.search_text) " +
+            (masterId != null
+             ? "AND (o.master_id = :masterId OR " +
+               "(o.region_id = :regionId AND o.status = 'CREATED' " +
+               "AND NOT o.declined_masters_ids @> ARRAY[CAST(:masterId AS BIGINT)]))) "
+             : "") +
+            ") found " +
+            (cursor != null
+             ? "WHERE found.rank < :cursorRank " +
+               "OR (found.rank = :cursorRank AND found.id < :cursorId) "
+             : "") +
+            "ORDER BY found.rank DESC, found.id DESC " +
+            "LIMIT :limit";
+
+        Query query = this.entityManager.createNativeQuery(sql)
+                                        .setParameter("text", text)
+                                        .setParameter("limit", limit);
+        if (masterId != null) {
+            query.setParameter("masterId", masterId).setParameter("regionId", masterRegionId);
+        }
+        if (cursor != null) {
+            query.setParameter("cursorRank", cursor.rank()).setParameter("cursorId", cursor.id());
+        }
+
+        List<?> rows = query.getResultList();
+        List<OrdersSearchCursor> positions = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            Object[] columns = (Object[]) row;
+            positions.add(new OrdersSearchCursor(((Number) columns[1]).floatValue(),
+                                                 ((Number) columns[0]).longValue()));
+        }
+
+        return positions;
+    }
+
+    public List<Order> findOrdersByIds(List<Long> ids) {
+        return this.entityManager.createQuery("SELECT o FROM Order o WHERE o.id IN :ids",
+                                              Order.class)
+                                 .setParameter("ids", ids)
+                                 .getResultList();
+    }
+
+    /**
+     * Orders with the given ids which the user can see. The rules are the ones of
+     * {@code OrdersDataService.getOrderById}, checked by one query instead of order by order.
+     * A master must have an address.
+     */
+    public List<Order> findVisibleOrdersByIds(List<Long> ids, User user) {
+        CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
+        CriteriaQuery<Order> cq = cb.createQuery(Order.class);
+        Root<Order> orderRoot = cq.from(Order.class);
+
+        ParameterExpression<Long> decliningMasterId = null;
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(orderRoot.get("id").in(ids));
+
+        Path<Object> masterId = orderRoot.get("master").get("id");
+        if (user.getRole() == UserRole.MASTER) {
+            // the master's orders and the orders of the region without a master
+            Long regionId = user.getAddress().getRegion().getId();
+            decliningMasterId = cb.parameter(Long.class, DECLINING_MASTER_ID_PARAMETER);
+            predicates.add(createNotDeclinedPredicate(cb, orderRoot, decliningMasterId));
+            predicates.add(cb.or(cb.equal(masterId, user.getId()),
+                                 cb.and(cb.isNull(orderRoot.get("master")),
+                                        cb.equal(orderRoot.get("regionId"), regionId))));
+        } else if (user.getRole() != UserRole.ADMIN) {
+            Path<Object> driver = orderRoot.get("driver");
+            Path<Object> customer = orderRoot.get("customer");
+            predicates.add(cb.or(cb.isNull(driver),
+                                 cb.equal(driver.get("id"), user.getId()),
+                                 cb.isNull(customer),
+                                 cb.equal(customer.get("id"), user.getId())));
+        }
+
+        cq.select(orderRoot).where(predicates.toArray(new Predicate[0]));
+        TypedQuery<Order> query = this.entityManager.createQuery(cq);
+        if (decliningMasterId != null) {
+            query.setParameter(decliningMasterId, user.getId());
+        }
+        return query.getResultList();
+    }
+
     /**
      * Retrieves a list of orders based on various optional filters such as master ID,
      * customer ID, driver ID, auto ID, user ID, region IDs, statuses, and a limit.
@@ -96,6 +231,7 @@ public class OrderQueryRepository {
      * @param userId     the ID of the user (optional)
      * @param regionIds  the list of region IDs to filter by (optional)
      * @param statuses   the list of order statuses to filter by (optional)
+     * @param cursor     the position after the previous page (optional)
      * @param limit      the maximum number of orders to retrieve (optional)
      * @return a list of matching Order entities
      */
@@ -106,6 +242,7 @@ public class OrderQueryRepository {
                                   Long userId,
                                   List<Long> regionIds,
                                   List<OrderStatus> statuses,
+                                  OrdersCursor cursor,
                                   Integer limit) {
         CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
         CriteriaQuery<Order> cq = cb.createQuery(Order.class);
@@ -143,7 +280,7 @@ public class OrderQueryRepository {
 
         // Filter by region IDs if provided
         if (regionIds != null && !regionIds.isEmpty()) {
-            predicates.add(orderRoot.get("address").get("region").get("id").in(regionIds));
+            predicates.add(orderRoot.get("regionId").in(regionIds));
         }
 
         // Filter by master ID if provided
@@ -151,17 +288,14 @@ public class OrderQueryRepository {
             predicates.add(cb.equal(orderRoot.get("master").get("id"), masterId));
         }
 
+        if (cursor != null) {
+            predicates.add(createCursorPredicate(cb, orderRoot, cursor));
+        }
+
         // Build the query with the specified predicates and ordering
         cq.select(orderRoot)
           .where(predicates.toArray(new Predicate[0]))
-          .orderBy(cb.asc(cb.selectCase(orderRoot.get("status"))
-                            .when(OrderStatus.CREATED, 1)
-                            .when(OrderStatus.CALCULATING, 2)
-                            .when(OrderStatus.REVIEWING, 3)
-                            .when(OrderStatus.ACCEPTED, 4)
-                            .when(OrderStatus.COMPLETED, 5)
-                            .when(OrderStatus.CANCEL, 6)
-                            .otherwise(7)), cb.desc(orderRoot.get("id")));
+          .orderBy(cb.asc(orderRoot.get("statusRank")), cb.desc(orderRoot.get("id")));
 
         TypedQuery<Order> query = this.entityManager.createQuery(cq);
         if (limit != null && limit > 0) {
@@ -170,4 +304,26 @@ public class OrderQueryRepository {
 
         return query.getResultList();
     }
-}
\ No newline at end of file
+
+    /**
+     * NOT (:masterId = ANY(declined_masters_ids)), in a form which H2 understands too. The
+     * master id is a bound parameter, so the statement is the same for all masters.
+     */
+    private static Predicate createNotDeclinedPredicate(CriteriaBuilder cb,
+                                                        Root<Order> orderRoot,
+                                                        ParameterExpression<Long> masterId) {
+        return cb.isFalse(cb.function("array_contains",
+                                      Boolean.class,
+                                      orderRoot.get("declinedMastersIds"),
+                                      masterId));
+    }
+
+    private static Predicate createCursorPredicate(CriteriaBuilder cb,
+                                                   Root<Order> orderRoot,
+                                                   OrdersCursor cursor) {
+        Path<Integer> statusRank = orderRoot.get("statusRank");
+        return cb.or(cb.greaterThan(statusRank, cursor.statusRank()),
+                     cb.and(cb.equal(statusRank, cursor.statusRank()),
+                            cb.lessThan(orderRoot.get("id"), cursor.id())));
+    }
+}
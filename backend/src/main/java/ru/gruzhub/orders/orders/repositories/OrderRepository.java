@@ -1,29 +1,36 @@
 package ru.gruzhub.orders.orders.repositories;
 
 import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.EntityGraph.EntityGraphType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.gruzhub.orders.orders.models.Order;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
     Order findOrderByGuaranteeUuid(String guaranteeUuid);
 
+    @EntityGraph(value = Order.WITH_AUTOS_GRAPH, type = EntityGraphType.LOAD)
+    Optional<Order> findWithAutosById(Long id);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Order o SET o.changeVersion = o.changeVersion + 1 WHERE o.id = :orderId")
+    int incrementChangeVersion(Long orderId);
+
+    @Query("SELECT o.changeVersion FROM Order o WHERE o.id = :orderId")
+    Optional<Long> findChangeVersionById(Long orderId);
+
     @Query(value = """
         SELECT * FROM orders
         WHERE (master_id = :masterId AND (status IN :statuses OR :statuses IS NULL))
-           OR (address_id IN (SELECT id FROM address WHERE region_id = :regionId) AND status = 'CREATED')
-        ORDER BY
-            CASE
-                WHEN status = 'CREATED' THEN 1
-                WHEN status = 'CALCULATING' THEN 2
-                WHEN status = 'REVIEWING' THEN 3
-                WHEN status = 'ACCEPTED' THEN 4
-                WHEN status = 'COMPLETED' THEN 5
-                WHEN status = 'CANCEL' THEN 6
-            END,
-            id DESC
+           OR (region_id = :regionId AND status = 'CREATED')
+        ORDER BY status_rank, id DESC
         LIMIT :limit
         """,
            nativeQuery = true)
@@ -35,17 +42,8 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query(value = """
         SELECT * FROM orders
         WHERE (driver_id = :driverId AND (status IN :statuses OR :statuses IS NULL))
-           OR (address_id IN (SELECT id FROM address WHERE region_id = :regionId) AND status = 'CREATED')
-        ORDER BY
-            CASE
-                WHEN status = 'CREATED' THEN 1
-                WHEN status = 'CALCULATING' THEN 2
-                WHEN status = 'REVIEWING' THEN 3
-                WHEN status = 'ACCEPTED' THEN 4
-                WHEN status = 'COMPLETED' THEN 5
-                WHEN status = 'CANCEL' THEN 6
-            END,
-            id DESC
+           OR (region_id = :regionId AND status = 'CREATED')
+        ORDER BY status_rank, id DESC
         LIMIT :limit
         """,
            nativeQuery = true)
@@ -0,0 +1,97 @@
+package ru.gruzhub.orders.orders.repositories;
+
+import jakarta.annotation.Nullable;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+import ru.gruzhub.orders.orders.enums.OrderStatus;
+import ru.gruzhub.orders.orders.enums.OrderTransition;
+import ru.gruzhub.orders.orders.enums.OrderTransition.MasterChange;
+import ru.gruzhub.orders.orders.models.Order;
+import ru.gruzhub.users.models.User;
+
+@Repository
+public class OrderTransitionRepository {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Applies the transition by one UPDATE, conditional on the status and the master the order
+     * was loaded with (compare-and-set), and then changes the loaded order the same way.
+     * Must run in a transaction.
+     *
+     * @param newMaster the master for {@link MasterChange#ASSIGN}, ignored otherwise
+     * @return false when a concurrent request has changed the order first, the order is
+     * left as loaded
+     */
+    public boolean applyTransition(Order order,
+                                   OrderTransition transition,
+                                   @Nullable User newMaster,
+                                   long time) {
+        User expectedMaster = order.getMaster();
+        MasterChange masterChange = transition.getMasterChange();
+        OrderStatus newStatus = transition.getToStatus();
+
+        String jpql = "UPDATE Order o " +
+                      "SET o.status = :newStatus, " +
+                      "o.statusRank = :newStatusRank, " +
+                      "o.lastStatusUpdateTime = :time" +
+                      switch (masterChange) {
+                          case KEEP -> " ";
+                          case ASSIGN -> ", o.master = :newMaster ";
+                          case REMOVE -> ", o.master = null ";
+                          case DECLINE -> ", o.master = null, " +
+                                          "o.declinedMastersIds = :declinedMastersIds ";
+                      } +
+                      "WHERE o.id = :id AND o.status = :expectedStatus AND " +
+                      (expectedMaster != null
+                       ? "o.master.id = :expectedMasterId"
+                       : "o.master IS NULL");
+
+        Query query = this.entityManager.createQuery(jpql)
+                                        .setParameter("newStatus", newStatus)
+                                        .setParameter("newStatusRank", newStatus.getRank())
+                                        .setParameter("time", time)
+                                        .setParameter("id", order.getId())
+                                        .setParameter("expectedStatus", order.getStatus());
+        if (expectedMaster != null) {
+            query.setParameter("expectedMasterId", expectedMaster.getId());
+        }
+        if (masterChange == MasterChange.ASSIGN) {
+            query.setParameter("newMaster", newMaster);
+        }
+        if (masterChange == MasterChange.DECLINE) {
+            query.setParameter("declinedMastersIds",
+                               expectedMaster != null
+                               ? order.getDeclinedMastersIdsWith(expectedMaster.getId())
+                               : order.getDeclinedMastersIds());
+        }
+
+        if (query.executeUpdate() == 0) {
+            return false;
+        }
+
+        // the row is already written, the changes below are for the responses and the events,
+        // Hibernate must not write the order again
+        this.entityManager.unwrap(Session.class).setReadOnly(order, true);
+        switch (masterChange) {
+            case KEEP -> {
+            }
+            case ASSIGN -> order.setMaster(newMaster);
+            case REMOVE -> order.setMaster(null);
+            case DECLINE -> {
+                if (expectedMaster != null) {
+                    order.addDeclinedMaster(expectedMaster.getId());
+                }
+                order.setMaster(null);
+            }
+        }
+        order.setStatus(newStatus);
+        order.setLastStatusUpdateTime(time);
+        order.updateDenormalizedColumns();
+
+        return true;
+    }
+}
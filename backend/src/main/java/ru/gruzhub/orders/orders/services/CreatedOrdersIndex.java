@@ -0,0 +1,129 @@
+package ru.gruzhub.orders.orders.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.gruzhub.address.repositories.RegionRepository;
+import ru.gruzhub.orders.orders.dto.OrderResponseDto;
+import ru.gruzhub.orders.orders.dto.OrdersCursor;
+import ru.gruzhub.orders.orders.enums.OrderStatus;
+import ru.gruzhub.orders.orders.models.Order;
+import ru.gruzhub.orders.orders.repositories.OrderQueryRepository;
+
+/**
+ * New (CREATED) orders of each region, kept in memory for the master feeds. A region holds
+ * sorted order ids and the responses of the orders, in an immutable snapshot, so reads take
+ * no locks. The responses are built when the region is loaded, so no entity outlives its
+ * session in the index. They are shared by the feeds and must not be changed.
+ * <p>
+ * A region is loaded on its first read and stamped with the orders change version of the
+ * region, see {@link OrdersVersionsService}. Every change of an order of the region bumps the
+ * version in its transaction, on any instance, so a read which finds another version in the
+ * database loads the region again.
+ */
+@Component
+public class CreatedOrdersIndex {
+    private final OrderQueryRepository orderQueryRepository;
+    private final RegionRepository regionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Long, RegionOrders> regionsOrders = new ConcurrentHashMap<>();
+
+    public CreatedOrdersIndex(OrderQueryRepository orderQueryRepository,
+                              RegionRepository regionRepository,
+                              TransactionTemplate transactionTemplate,
+                              MeterRegistry meterRegistry) {
+        this.orderQueryRepository = orderQueryRepository;
+        this.regionRepository = regionRepository;
+        this.transactionTemplate = transactionTemplate;
+
+        Gauge.builder("orders.created.index.size", this.regionsOrders, CreatedOrdersIndex::size)
+             .register(meterRegistry);
+    }
+
+    /**
+     * A page of the region's new orders in the order of the feeds (id DESC), without the
+     * orders declined by the master.
+     */
+    public List<OrderResponseDto> getRegionOrders(Long regionId,
+                                                  Long masterId,
+                                                  @Nullable OrdersCursor cursor,
+                                                  @Nullable Integer limit) {
+        // CREATED has the lowest rank, a cursor past it leaves no new orders
+        if (cursor != null && cursor.statusRank() > OrderStatus.CREATED.getRank()) {
+            return List.of();
+        }
+
+        RegionOrders regionOrders = this.getCurrentRegionOrders(regionId);
+        long[] ids = regionOrders.ids();
+        int start = ids.length - 1;
+        if (cursor != null) {
+            int position = Arrays.binarySearch(ids, cursor.id());
+            start = (position >= 0 ? position : -position - 1) - 1;
+        }
+        int maxCount = limit != null && limit > 0 ? limit : Integer.MAX_VALUE;
+
+        List<OrderResponseDto> page = new ArrayList<>();
+        for (int i = start; i >= 0 && page.size() < maxCount; i--) {
+            OrderResponseDto order = regionOrders.orders()[i];
+            // sorted like in the order, see Order.getDeclinedMastersIdsWith
+            long[] declinedMastersIds = order.getDeclinedMastersIds();
+            if (declinedMastersIds == null ||
+                Arrays.binarySearch(declinedMastersIds, masterId) < 0) {
+                page.add(order);
+            }
+        }
+
+        return page;
+    }
+
+    private RegionOrders getCurrentRegionOrders(Long regionId) {
+        long version = this.regionRepository.findOrdersChangeVersionById(regionId).orElse(0L);
+        RegionOrders regionOrders = this.regionsOrders.get(regionId);
+        if (regionOrders != null && regionOrders.version() == version) {
+            return regionOrders;
+        }
+
+        return this.loadRegionOrders(regionId, version);
+    }
+
+    /**
+     * The version is read before the orders, so a change committed in between only makes the
+     * next read load the region again.
+     */
+    private synchronized RegionOrders loadRegionOrders(Long regionId, long version) {
+        // loaded by a concurrent read in the meantime
+        RegionOrders regionOrders = this.regionsOrders.get(regionId);
+        if (regionOrders != null && regionOrders.version() >= version) {
+            return regionOrders;
+        }
+
+        RegionOrders loadedOrders = this.transactionTemplate.execute(status -> {
+            List<Order> orders = this.orderQueryRepository.findCreatedOrders(regionId);
+            OrdersDataService.initializeResponseAssociations(orders);
+
+            long[] ids = orders.stream().mapToLong(Order::getId).toArray();
+            OrderResponseDto[] responses =
+                orders.stream().map(OrderResponseDto::new).toArray(OrderResponseDto[]::new);
+            return new RegionOrders(version, ids, responses);
+        });
+        this.regionsOrders.put(regionId, loadedOrders);
+        return loadedOrders;
+    }
+
+    private static int size(Map<Long, RegionOrders> regionsOrders) {
+        return regionsOrders.values().stream().mapToInt(orders -> orders.ids().length).sum();
+    }
+
+    /**
+     * Ids in ascending order, orders at the same positions.
+     */
+    private record RegionOrders(long version, long[] ids, OrderResponseDto[] orders) {
+    }
+}
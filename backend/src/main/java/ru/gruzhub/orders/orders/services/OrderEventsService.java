@@ -0,0 +1,335 @@
+package ru.gruzhub.orders.orders.services;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.sentry.Sentry;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.gruzhub.orders.orders.dto.OrderEventDto;
+import ru.gruzhub.orders.orders.enums.OrderEventType;
+import ru.gruzhub.orders.orders.enums.OrderStatus;
+import ru.gruzhub.orders.orders.models.Order;
+import ru.gruzhub.tools.concurrent.BackgroundScheduler;
+import ru.gruzhub.users.enums.UserRole;
+import ru.gruzhub.users.models.User;
+
+/**
+ * Pushes order events to connected users over SSE. A stream is an async request, so an idle
+ * connection holds no request thread, only an emitter in the indexes below.
+ * <p>
+ * Participants get the events of their orders, masters the events of the region orders they
+ * can see (the rules of {@link OrdersDataService#getOrderById}), admins all events.
+ * <p>
+ * Events are queued per emitter and sent in order by app.order_events_senders platform
+ * threads, so slow clients do not delay the workflow request and the synchronized
+ * {@link SseEmitter#send} does not pin virtual threads. An emitter is dropped when a send to
+ * it takes longer than app.order_events_send_timeout_ms or {@link #MAX_PENDING_EVENTS} are
+ * waiting for it, its client reconnects.
+ */
+@Service
+public class OrderEventsService {
+    private static final long HEARTBEAT_INTERVAL_MS = 25 * 1000;
+    private static final long STALLS_CHECK_INTERVAL_MS = 1000;
+    private static final int MAX_PENDING_EVENTS = 100;
+
+    private final OrdersDataService ordersDataService;
+    private final long timeoutMs;
+    private final long sendTimeoutNanos;
+    private final ThreadPoolExecutor sendExecutor;
+    private final BackgroundScheduler scheduler = new BackgroundScheduler("order-events-watchdog");
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final Set<Subscription> adminsSubscriptions = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Set<Subscription>> usersSubscriptions = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Subscription>> regionsSubscriptions = new ConcurrentHashMap<>();
+
+    public OrderEventsService(
+        OrdersDataService ordersDataService,
+        MeterRegistry meterRegistry,
+        @Value("${app.order_events_timeout_ms:1800000}") long timeoutMs,
+        @Value("${app.order_events_senders:8}") int sendersCount,
+        @Value("${app.order_events_send_queue_capacity:10000}") int sendQueueCapacity,
+        @Value("${app.order_events_send_timeout_ms:10000}") long sendTimeoutMs) {
+        this.ordersDataService = ordersDataService;
+        this.timeoutMs = timeoutMs;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        this.sendExecutor = new ThreadPoolExecutor(sendersCount,
+                                                   sendersCount,
+                                                   0L,
+                                                   TimeUnit.MILLISECONDS,
+                                                   new ArrayBlockingQueue<>(sendQueueCapacity),
+                                                   new ThreadFactoryBuilder()
+                                                       .setNameFormat("order-events-%d")
+                                                       .setDaemon(true)
+                                                       .build(),
+                                                   new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("order.events.connections", this.subscriptions, Set::size)
+             .register(meterRegistry);
+        Gauge.builder("order.events.send.queue.depth",
+                      this.sendExecutor,
+                      executor -> executor.getQueue().size())
+             .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        this.scheduler.repeat(this::dropStalledSubscriptions,
+                              STALLS_CHECK_INTERVAL_MS,
+                              STALLS_CHECK_INTERVAL_MS);
+        // proxies close connections without traffic, clients reconnect on their own
+        this.scheduler.repeat(this::sendHeartbeats, HEARTBEAT_INTERVAL_MS, HEARTBEAT_INTERVAL_MS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.scheduler.shutdown();
+        this.sendExecutor.shutdownNow();
+    }
+
+    public SseEmitter subscribe(User user) {
+        SseEmitter emitter = new SseEmitter(this.timeoutMs);
+        Subscription subscription = new Subscription(user, emitter);
+
+        emitter.onCompletion(() -> this.unsubscribe(subscription));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> this.unsubscribe(subscription));
+
+        this.subscriptions.add(subscription);
+        if (user.getRole() == UserRole.ADMIN) {
+            this.adminsSubscriptions.add(subscription);
+        }
+        addToIndex(this.usersSubscriptions, user.getId(), subscription);
+        Long regionId = getMasterRegionId(user);
+        if (regionId != null) {
+            addToIndex(this.regionsSubscriptions, regionId, subscription);
+        }
+
+        // sent right away, so that the response headers reach the client
+        this.send(subscription, SseEmitter.event().comment("connected"));
+        return emitter;
+    }
+
+    public void orderCreated(Order order) {
+        this.publish(OrderEventType.ORDER_CREATED, order, null, null);
+    }
+
+    /**
+     * @param previousStatus the masters who saw a new order get the event when it is taken
+     * @param formerMaster   the master removed from the order, it leaves their lists
+     */
+    public void orderStatusChanged(Order order,
+                                   OrderStatus previousStatus,
+                                   @Nullable User formerMaster) {
+        this.publish(OrderEventType.ORDER_STATUS_CHANGED, order, previousStatus, formerMaster);
+    }
+
+    private void publish(OrderEventType type,
+                         Order order,
+                         @Nullable OrderStatus previousStatus,
+                         @Nullable User formerMaster) {
+        Set<Subscription> recipients = new HashSet<>(this.adminsSubscriptions);
+
+        for (User participant : Arrays.asList(order.getCustomer(),
+                                              order.getDriver(),
+                                              order.getMaster(),
+                                              formerMaster)) {
+            if (participant != null) {
+                recipients.addAll(this.usersSubscriptions.getOrDefault(participant.getId(),
+                                                                       Set.of()));
+            }
+        }
+
+        if (order.getRegionId() != null) {
+            boolean wasNew = previousStatus == OrderStatus.CREATED;
+            Set<Subscription> regionSubscriptions =
+                this.regionsSubscriptions.getOrDefault(order.getRegionId(), Set.of());
+            for (Subscription subscription : regionSubscriptions) {
+                User master = subscription.user;
+                if (this.ordersDataService.canViewOrder(master, order) ||
+                    (wasNew && !order.isDeclinedByMaster(master.getId()))) {
+                    recipients.add(subscription);
+                }
+            }
+        }
+
+        if (recipients.isEmpty()) {
+            return;
+        }
+
+        OrderEventDto event = new OrderEventDto(type,
+                                                order.getId(),
+                                                order.getStatus(),
+                                                System.currentTimeMillis());
+        for (Subscription recipient : recipients) {
+            this.send(recipient, SseEmitter.event().name(type.name()).data(event));
+        }
+    }
+
+    private void sendHeartbeats() {
+        for (Subscription subscription : this.subscriptions) {
+            this.send(subscription, SseEmitter.event().comment("heartbeat"));
+        }
+    }
+
+    private void dropStalledSubscriptions() {
+        long now = System.nanoTime();
+        for (Subscription subscription : this.subscriptions) {
+            long sendStartedAtNanos = subscription.sendStartedAtNanos;
+            if (sendStartedAtNanos != 0 && now - sendStartedAtNanos > this.sendTimeoutNanos) {
+                this.drop(subscription);
+            }
+        }
+    }
+
+    /**
+     * Queues the event, never blocks.
+     */
+    private void send(Subscription subscription, SseEmitter.SseEventBuilder event) {
+        if (subscription.dropped) {
+            return;
+        }
+
+        if (!subscription.pendingEvents.offer(event) || !this.scheduleSending(subscription)) {
+            this.drop(subscription);
+        }
+    }
+
+    /**
+     * @return false when the executor is full
+     */
+    private boolean scheduleSending(Subscription subscription) {
+        // at most one sending of a subscription at a time, which keeps the order of its events
+        if (!subscription.sending.compareAndSet(false, true)) {
+            return true;
+        }
+
+        try {
+            this.sendExecutor.execute(() -> this.sendPendingEvents(subscription));
+            return true;
+        } catch (RejectedExecutionException e) {
+            subscription.sending.set(false);
+            return false;
+        }
+    }
+
+    private void sendPendingEvents(Subscription subscription) {
+        SseEmitter.SseEventBuilder event;
+        while (!subscription.dropped && (event = subscription.pendingEvents.poll()) != null) {
+            subscription.sendStartedAtNanos = System.nanoTime();
+            try {
+                subscription.emitter.send(event);
+            } catch (IOException | IllegalStateException e) {
+                // the client is gone, the container completes the request
+                subscription.dropped = true;
+                this.unsubscribe(subscription);
+            } catch (Exception e) {
+                Sentry.captureException(e);
+            } finally {
+                subscription.sendStartedAtNanos = 0;
+            }
+        }
+
+        if (subscription.dropped) {
+            // the sending flag stays set, nothing is sent to a dropped subscription anymore
+            subscription.pendingEvents.clear();
+            try {
+                subscription.emitter.complete();
+            } catch (Exception e) {
+                // already completed
+            }
+            return;
+        }
+
+        subscription.sending.set(false);
+        // an event queued after the loop has ended and before the flag was cleared
+        if (!subscription.pendingEvents.isEmpty() && !this.scheduleSending(subscription)) {
+            this.drop(subscription);
+        }
+    }
+
+    /**
+     * Takes the subscription out of the indexes. The emitter is completed by the sending
+     * thread, a stalled send holds the lock of the emitter until it fails.
+     */
+    private void drop(Subscription subscription) {
+        subscription.dropped = true;
+        this.unsubscribe(subscription);
+        // the emitter times out on its own when the executor is full
+        this.scheduleSending(subscription);
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        this.subscriptions.remove(subscription);
+        this.adminsSubscriptions.remove(subscription);
+        removeFromIndex(this.usersSubscriptions, subscription.user.getId(), subscription);
+        Long regionId = getMasterRegionId(subscription.user);
+        if (regionId != null) {
+            removeFromIndex(this.regionsSubscriptions, regionId, subscription);
+        }
+    }
+
+    @Nullable
+    private static Long getMasterRegionId(User user) {
+        if (user.getRole() != UserRole.MASTER || user.getAddress() == null) {
+            return null;
+        }
+
+        return user.getAddress().getRegion().getId();
+    }
+
+    private static void addToIndex(Map<Long, Set<Subscription>> index,
+                                   Long key,
+                                   Subscription subscription) {
+        index.compute(key, (ignored, keySubscriptions) -> {
+            Set<Subscription> updatedSubscriptions =
+                keySubscriptions != null ? keySubscriptions : ConcurrentHashMap.newKeySet();
+            updatedSubscriptions.add(subscription);
+            return updatedSubscriptions;
+        });
+    }
+
+    private static void removeFromIndex(Map<Long, Set<Subscription>> index,
+                                        Long key,
+                                        Subscription subscription) {
+        index.computeIfPresent(key, (ignored, keySubscriptions) -> {
+            keySubscriptions.remove(subscription);
+            return keySubscriptions.isEmpty() ? null : keySubscriptions;
+        });
+    }
+
+    // compared by identity, so each tab of a user is a separate subscription
+    private static class Subscription {
+        private final User user;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> pendingEvents =
+            new LinkedBlockingQueue<>(MAX_PENDING_EVENTS);
+        private final AtomicBoolean sending = new AtomicBoolean();
+        // when the current send has started, 0 while nothing is being sent
+        private volatile long sendStartedAtNanos;
+        private volatile boolean dropped;
+
+        private Subscription(User user, SseEmitter emitter) {
+            this.user = user;
+            this.emitter = emitter;
+        }
+    }
+}
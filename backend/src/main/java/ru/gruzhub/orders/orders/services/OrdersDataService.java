@@ -1,10 +1,17 @@
 package ru.gruzhub.orders.orders.services;
 
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 import ru.gruzhub.orders.auto.AutoService;
 import ru.gruzhub.orders.auto.dto.AutoResponseDto;
@@ -12,6 +19,11 @@ import ru.gruzhub.orders.auto.models.Auto;
 import ru.gruzhub.orders.orders.commands.UpdateAutoCommand;
 import ru.gruzhub.orders.orders.dto.GetOrdersRequestDto;
 import ru.gruzhub.orders.orders.dto.OrderResponseDto;
+import ru.gruzhub.orders.orders.dto.OrderStatusChangeDto;
+import ru.gruzhub.orders.orders.dto.OrdersCursor;
+import ru.gruzhub.orders.orders.dto.OrdersSearchCursor;
+import ru.gruzhub.orders.orders.dto.OrdersSearchResult;
+import ru.gruzhub.orders.orders.dto.SearchOrdersRequestDto;
 import ru.gruzhub.orders.orders.dto.UpdateOrderAutoRequestDto;
 import ru.gruzhub.orders.orders.enums.OrderStatus;
 import ru.gruzhub.orders.orders.models.Order;
@@ -19,62 +31,87 @@ import ru.gruzhub.orders.orders.models.OrderStatusChange;
 import ru.gruzhub.orders.orders.repositories.OrderQueryRepository;
 import ru.gruzhub.orders.orders.repositories.OrderRepository;
 import ru.gruzhub.orders.orders.repositories.OrderStatusChangeRepository;
+import ru.gruzhub.tools.exceptions.BadRequestException;
+import ru.gruzhub.tools.exceptions.ForbiddenException;
 import ru.gruzhub.users.UsersService;
+import ru.gruzhub.users.dto.UserInfoChangeDto;
 import ru.gruzhub.users.enums.UserRole;
 import ru.gruzhub.users.models.User;
-import ru.gruzhub.users.models.UserInfoChange;
 
 @Service
 @RequiredArgsConstructor
 public class OrdersDataService {
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final int MAX_BATCH_ORDERS_COUNT = 300;
+    // (status rank, id DESC), like OrdersCursor
+    private static final Comparator<OrderResponseDto> FEEDS_ORDER =
+        Comparator.comparing((OrderResponseDto order) -> order.getStatus().getRank())
+                  .thenComparing(OrderResponseDto::getId, Comparator.reverseOrder());
+
     private final OrderRepository orderRepository;
     private final OrderStatusChangeRepository orderStatusChangeRepository;
     private final UsersService usersService;
     private final AutoService autoService;
     private final OrderQueryRepository orderQueryRepository;
+    private final OrdersVersionsService ordersVersionsService;
+    private final CreatedOrdersIndex createdOrdersIndex;
 
     public Order getOrderById(User authorizedUser, Long orderId) {
         Order order = this.orderRepository.findById(orderId).orElseThrow();
+        this.validateOrderAccess(authorizedUser, order);
+        return order;
+    }
 
-        if (authorizedUser.getRole() == UserRole.MASTER) {
-            if (authorizedUser.getAddress() == null) {
-                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
-                                                  "У мастера нет адреса");
-            }
-
-            if (order.getDeclinedMastersIds().contains(authorizedUser.getId())) {
-                throw new ResponseStatusException(HttpStatus.FORBIDDEN,
-                                                  "К сожалению, у вас нет доступа к этому заказу");
-            }
+    /**
+     * Order with everything the order page shows: autos and the users with their chats.
+     */
+    public Order getOrderDetailsById(User authorizedUser, Long orderId) {
+        Order order = this.orderRepository.findWithAutosById(orderId).orElseThrow();
+        this.validateOrderAccess(authorizedUser, order);
+        return order;
+    }
 
-            boolean isOrderAndMasterSameRegion =
-                Objects.equals(order.getAddress().getRegion().getId(),
-                               authorizedUser.getAddress().getRegion().getId());
+    /**
+     * Same rules as {@link #getOrderById}, for pushing order events without loading the order.
+     */
+    public boolean canViewOrder(User user, Order order) {
+        if (user.getRole() == UserRole.MASTER && user.getAddress() == null) {
+            return false;
+        }
 
-            if (!isOrderAndMasterSameRegion) {
-                if (order.getMaster() == null ||
-                    !Objects.equals(order.getMaster().getId(), authorizedUser.getId())) {
+        return getOrderAccessDenied(user, order) == null;
+    }
 
-                    throw new ResponseStatusException(HttpStatus.FORBIDDEN,
-                                                      "Заказ в другом регионе");
-                }
-            }
+    /**
+     * Orders for screens which already know the ids, e.g. the chats list. Orders the user
+     * cannot see or which do not exist are skipped, the rest keep the order of the ids.
+     * Orders are returned like by {@link #getOrders}.
+     */
+    @Transactional(readOnly = true)
+    public List<Order> getOrdersByIds(User user, List<Long> ordersIds) {
+        if (ordersIds == null || ordersIds.isEmpty()) {
+            return List.of();
+        }
+        List<Long> distinctIds = ordersIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (distinctIds.size() > MAX_BATCH_ORDERS_COUNT) {
+            throw new BadRequestException("Можно запросить не больше " +
+                                          MAX_BATCH_ORDERS_COUNT +
+                                          " заказов");
+        }
+        validateMasterAddress(user);
 
-            User orderMaster = order.getMaster();
-            if (orderMaster != null &&
-                !Objects.equals(orderMaster.getId(), authorizedUser.getId())) {
-                throw new ResponseStatusException(HttpStatus.FORBIDDEN,
-                                                  "Заказ прикреплен к другому СТО");
-            }
-        } else if ((order.getDriver() != null &&
-                    !authorizedUser.getId().equals(order.getDriver().getId())) &&
-                   (order.getCustomer() != null &&
-                    !authorizedUser.getId().equals(order.getCustomer().getId())) &&
-                   authorizedUser.getRole() != UserRole.ADMIN) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+        Map<Long, Order> ordersById = new HashMap<>();
+        for (Order order : this.orderQueryRepository.findVisibleOrdersByIds(distinctIds, user)) {
+            ordersById.put(order.getId(), order);
         }
+        List<Order> orders = distinctIds.stream()
+                                        .map(ordersById::get)
+                                        .filter(Objects::nonNull)
+                                        .toList();
+        initializeResponseAssociations(orders);
 
-        return order;
+        return orders;
     }
 
     public List<OrderResponseDto> getAutoOrders(User user, Long autoId) {
@@ -89,7 +126,7 @@ public class OrdersDataService {
 
         if (!Objects.equals(auto.getDriver().getId(), user.getId()) &&
             !Objects.equals(auto.getCustomer().getId(), user.getId())) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+            throw new ForbiddenException();
         }
 
         return this.orderRepository.findOrdersByAuto(autoId)
@@ -98,8 +135,18 @@ public class OrdersDataService {
                                    .toList();
     }
 
-    public List<Order> getOrders(User user, GetOrdersRequestDto requestDto) {
-        return switch (user.getRole()) {
+    /**
+     * Orders are mapped to responses inside the transaction, the new orders of a master's
+     * region come already mapped from {@link CreatedOrdersIndex}.
+     */
+    @Transactional(readOnly = true)
+    public List<OrderResponseDto> getOrders(User user, GetOrdersRequestDto requestDto) {
+        OrdersCursor cursor = OrdersCursor.decode(requestDto.getCursor());
+        if (user.getRole() == UserRole.MASTER) {
+            return this.getMasterOrders(user, requestDto, cursor);
+        }
+
+        List<Order> orders = switch (user.getRole()) {
             case UserRole.DRIVER -> this.orderQueryRepository.findOrders(null,
                                                                          null,
                                                                          user.getId(),
@@ -107,14 +154,11 @@ public class OrdersDataService {
                                                                          null,
                                                                          null,
                                                                          requestDto.getStatuses(),
+                                                                         cursor,
                                                                          requestDto.getLimit());
 
-            case UserRole.MASTER -> this.orderQueryRepository.findMasterOrders(user.getId(),
-                                                                               user.getAddress()
-                                                                                   .getRegion()
-                                                                                   .getId(),
-                                                                               requestDto.getStatuses(),
-                                                                               requestDto.getLimit());
+            // mapped above, together with the new orders of the region
+            case UserRole.MASTER -> throw new IllegalStateException("Handled above");
 
             case UserRole.CUSTOMER -> this.orderQueryRepository.findOrders(null,
                                                                            user.getId(),
@@ -123,6 +167,7 @@ public class OrdersDataService {
                                                                            null,
                                                                            null,
                                                                            requestDto.getStatuses(),
+                                                                           cursor,
                                                                            requestDto.getLimit());
 
             case UserRole.ADMIN -> this.orderQueryRepository.findOrders(requestDto.getMasterId(),
@@ -132,8 +177,65 @@ public class OrdersDataService {
                                                                         null,
                                                                         requestDto.getRegionsIds(),
                                                                         requestDto.getStatuses(),
+                                                                        cursor,
                                                                         requestDto.getLimit());
         };
+        initializeResponseAssociations(orders);
+
+        return orders.stream().map(OrderResponseDto::new).toList();
+    }
+
+    /**
+     * Search for admins (all orders) and masters (the orders of their feed). Orders are
+     * returned like by {@link #getOrders}.
+     */
+    @Transactional(readOnly = true)
+    public OrdersSearchResult searchOrders(User user, SearchOrdersRequestDto requestDto) {
+        String text = requestDto.getQuery() != null ? requestDto.getQuery().strip() : "";
+        if (text.isEmpty()) {
+            throw new BadRequestException("Пустой поисковый запрос");
+        }
+        if (user.getRole() != UserRole.ADMIN && user.getRole() != UserRole.MASTER) {
+            throw new ForbiddenException();
+        }
+
+        Long masterId = null;
+        Long masterRegionId = null;
+        if (user.getRole() == UserRole.MASTER) {
+            masterId = user.getId();
+            masterRegionId = user.getAddress() != null
+                             ? user.getAddress().getRegion().getId()
+                             : null;
+        }
+
+        Integer requestLimit = requestDto.getLimit();
+        int limit = requestLimit != null && requestLimit > 0
+                    ? Math.min(requestLimit, MAX_SEARCH_LIMIT)
+                    : DEFAULT_SEARCH_LIMIT;
+        OrdersSearchCursor cursor = OrdersSearchCursor.decode(requestDto.getCursor());
+        List<OrdersSearchCursor> positions = this.orderQueryRepository.searchOrders(text,
+                                                                                    masterId,
+                                                                                    masterRegionId,
+                                                                                    cursor,
+                                                                                    limit);
+        if (positions.isEmpty()) {
+            return new OrdersSearchResult(List.of(), null);
+        }
+
+        List<Long> ids = positions.stream().map(OrdersSearchCursor::id).toList();
+        Map<Long, Order> ordersById = new HashMap<>();
+        for (Order order : this.orderQueryRepository.findOrdersByIds(ids)) {
+            ordersById.put(order.getId(), order);
+        }
+        List<Order> orders = positions.stream()
+                                      .map(position -> ordersById.get(position.id()))
+                                      .filter(Objects::nonNull)
+                                      .toList();
+        initializeResponseAssociations(orders);
+
+        OrdersSearchCursor nextCursor =
+            positions.size() == limit ? positions.get(positions.size() - 1) : null;
+        return new OrdersSearchResult(orders, nextCursor);
     }
 
     public AutoResponseDto getOrderAuto(User user, Long orderId, Long autoId) {
@@ -142,6 +244,7 @@ public class OrdersDataService {
         return new AutoResponseDto(auto);
     }
 
+    @Transactional
     public void updateOrderAuto(User user, UpdateOrderAutoRequestDto requestDto) {
         Auto auto = this.autoService.getAutoById(requestDto.getAutoId());
         this.validateOrderAutoPermissions(user, requestDto.getOrderId(), auto);
@@ -151,10 +254,12 @@ public class OrdersDataService {
         auto.setVin(requestDto.getVin());
         auto.setNumber(requestDto.getNumber());
 
-        new UpdateAutoCommand(this.autoService, this.orderRepository).updateAuto(auto);
+        new UpdateAutoCommand(this.autoService,
+                              this.orderRepository,
+                              this.ordersVersionsService).updateAuto(auto);
     }
 
-    public List<UserInfoChange> getUserInfoChanges(User user, Long orderId, Long userId) {
+    public List<UserInfoChangeDto> getUserInfoChanges(User user, Long orderId, Long userId) {
         Order order = this.orderRepository.findById(orderId).orElseThrow();
 
         boolean isAuthorizedUserInOrder =
@@ -171,10 +276,14 @@ public class OrdersDataService {
             return this.usersService.getUserInfoChanges(userId);
         }
 
-        throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+        throw new ForbiddenException();
     }
 
-    public List<OrderStatusChange> getOrderStatusChanges(User authorizedUser, Long orderId) {
+    /**
+     * Changes are mapped inside the transaction, with the chats of their users batch fetched.
+     */
+    @Transactional(readOnly = true)
+    public List<OrderStatusChangeDto> getOrderStatusChanges(User authorizedUser, Long orderId) {
         Order order = this.orderRepository.findById(orderId).orElseThrow();
 
         boolean isMasterAccessToCreatedOrder =
@@ -192,10 +301,19 @@ public class OrdersDataService {
                                           authorizedUser.getRole() == UserRole.ADMIN;
 
         if (!isMasterAccessToCreatedOrder && !isAccessToExistingOrder) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+            throw new ForbiddenException();
+        }
+
+        List<OrderStatusChange> statusChanges =
+            this.orderStatusChangeRepository.findStatusChangesByOrder(order);
+        for (OrderStatusChange statusChange : statusChanges) {
+            Hibernate.initialize(statusChange.getUpdatedBy().getConnectedTelegramChats());
+            if (statusChange.getMaster() != null) {
+                Hibernate.initialize(statusChange.getMaster().getConnectedTelegramChats());
+            }
         }
 
-        return this.orderStatusChangeRepository.findStatusChangesByOrder(order);
+        return statusChanges.stream().map(OrderStatusChangeDto::new).toList();
     }
 
     private void validateOrderAutoPermissions(User user, Long orderId, Auto auto) {
@@ -208,14 +326,130 @@ public class OrdersDataService {
         if (user.getRole() == UserRole.MASTER &&
             (order.getMaster() == null || !order.getMaster().getId().equals(user.getId())) &&
             order.getStatus() != OrderStatus.CREATED) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+            throw new ForbiddenException();
         }
 
         List<Long> autosIds = order.getAutos().stream().map(Auto::getId).toList();
         if (!autosIds.contains(auto.getId()) &&
             !Objects.equals(auto.getCustomer().getId(), user.getId()) &&
             !Objects.equals(auto.getDriver().getId(), user.getId())) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+            throw new ForbiddenException();
+        }
+    }
+
+    private void validateOrderAccess(User authorizedUser, Order order) {
+        validateMasterAddress(authorizedUser);
+
+        ForbiddenException accessDenied = getOrderAccessDenied(authorizedUser, order);
+        if (accessDenied != null) {
+            throw accessDenied;
+        }
+    }
+
+    private static void validateMasterAddress(User user) {
+        if (user.getRole() == UserRole.MASTER && user.getAddress() == null) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                                              "У мастера нет адреса");
+        }
+    }
+
+    /**
+     * @return the exception to throw when the user has no access to the order, null otherwise
+     */
+    private static ForbiddenException getOrderAccessDenied(User authorizedUser, Order order) {
+        if (authorizedUser.getRole() == UserRole.MASTER) {
+            if (order.isDeclinedByMaster(authorizedUser.getId())) {
+                return new ForbiddenException("К сожалению, у вас нет доступа к этому заказу");
+            }
+
+            boolean isOrderAndMasterSameRegion =
+                Objects.equals(order.getAddress().getRegion().getId(),
+                               authorizedUser.getAddress().getRegion().getId());
+
+            if (!isOrderAndMasterSameRegion) {
+                if (order.getMaster() == null ||
+                    !Objects.equals(order.getMaster().getId(), authorizedUser.getId())) {
+
+                    return new ForbiddenException("Заказ в другом регионе");
+                }
+            }
+
+            User orderMaster = order.getMaster();
+            if (orderMaster != null &&
+                !Objects.equals(orderMaster.getId(), authorizedUser.getId())) {
+                return new ForbiddenException("Заказ прикреплен к другому СТО");
+            }
+        } else if ((order.getDriver() != null &&
+                    !authorizedUser.getId().equals(order.getDriver().getId())) &&
+                   (order.getCustomer() != null &&
+                    !authorizedUser.getId().equals(order.getCustomer().getId())) &&
+                   authorizedUser.getRole() != UserRole.ADMIN) {
+            return new ForbiddenException();
+        }
+
+        return null;
+    }
+
+    /**
+     * New orders of the master's region are served from {@link CreatedOrdersIndex}, only the
+     * master's own orders are queried.
+     */
+    private List<OrderResponseDto> getMasterOrders(User master,
+                                                   GetOrdersRequestDto requestDto,
+                                                   OrdersCursor cursor) {
+        Long regionId = master.getAddress().getRegion().getId();
+        List<OrderStatus> statuses = requestDto.getStatuses();
+        Integer limit = requestDto.getLimit();
+
+        if (statuses != null && !statuses.isEmpty() && !statuses.contains(OrderStatus.CREATED)) {
+            List<Order> orders = this.orderQueryRepository.findMasterOrders(master.getId(),
+                                                                            regionId,
+                                                                            statuses,
+                                                                            cursor,
+                                                                            limit);
+            initializeResponseAssociations(orders);
+            return orders.stream().map(OrderResponseDto::new).toList();
+        }
+
+        List<OrderResponseDto> regionCreatedOrders =
+            this.createdOrdersIndex.getRegionOrders(regionId, master.getId(), cursor, limit);
+        List<Order> masterOrders = this.orderQueryRepository.findOrders(master.getId(),
+                                                                        null,
+                                                                        null,
+                                                                        null,
+                                                                        null,
+                                                                        null,
+                                                                        statuses,
+                                                                        cursor,
+                                                                        limit);
+
+        initializeResponseAssociations(masterOrders);
+        Map<Long, OrderResponseDto> ordersById = new LinkedHashMap<>();
+        for (Order order : masterOrders) {
+            ordersById.put(order.getId(), new OrderResponseDto(order));
+        }
+        for (OrderResponseDto order : regionCreatedOrders) {
+            ordersById.putIfAbsent(order.getId(), order);
+        }
+
+        return ordersById.values()
+                         .stream()
+                         .sorted(FEEDS_ORDER)
+                         .limit(limit != null && limit > 0 ? limit : Long.MAX_VALUE)
+                         .toList();
+    }
+
+    static void initializeResponseAssociations(List<Order> orders) {
+        // collections are batch fetched, so this takes a query per association, not per order
+        for (Order order : orders) {
+            Hibernate.initialize(order.getAutos());
+            List<User> users =
+                Arrays.asList(order.getCustomer(), order.getMaster(), order.getDriver());
+            for (User user : users) {
+                if (user != null) {
+                    Hibernate.initialize(user.getConnectedTelegramChats());
+                }
+            }
         }
     }
-}
\ No newline at end of file
+}
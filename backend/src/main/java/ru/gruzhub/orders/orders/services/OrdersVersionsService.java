@@ -0,0 +1,97 @@
+package ru.gruzhub.orders.orders.services;
+
+import com.google.common.hash.Hashing;
+import jakarta.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import ru.gruzhub.address.repositories.RegionRepository;
+import ru.gruzhub.orders.orders.dto.GetOrdersRequestDto;
+import ru.gruzhub.orders.orders.models.Order;
+import ru.gruzhub.orders.orders.repositories.OrderRepository;
+import ru.gruzhub.users.UserRepository;
+import ru.gruzhub.users.enums.UserRole;
+import ru.gruzhub.users.models.User;
+
+/**
+ * Change versions of orders, so that polled feeds can answer with 304 without querying them.
+ * Every change bumps the counters of the order, its region (new orders are visible to the
+ * region masters) and its participants. A feed is unchanged while the counters of its audience
+ * are unchanged.
+ * <p>
+ * The counters are columns of the orders, users and regions, bumped in the transaction of the
+ * change, so every instance sees a new version together with the change itself. The admin feed
+ * spans all orders and has no ETag.
+ */
+@Service
+@RequiredArgsConstructor
+public class OrdersVersionsService {
+    private final OrderRepository orderRepository;
+    private final UserRepository userRepository;
+    private final RegionRepository regionRepository;
+
+    /**
+     * Must be called in the transaction of the change, after the order is saved.
+     */
+    public void orderChanged(Order order) {
+        this.orderRepository.incrementChangeVersion(order.getId());
+        if (order.getRegionId() != null) {
+            this.regionRepository.incrementOrdersChangeVersion(order.getRegionId());
+        }
+
+        List<Long> participantsIds = Stream.of(order.getCustomer(),
+                                               order.getMaster(),
+                                               order.getDriver())
+                                           .filter(Objects::nonNull)
+                                           .map(User::getId)
+                                           .distinct()
+                                           .toList();
+        if (!participantsIds.isEmpty()) {
+            this.userRepository.incrementOrdersChangeVersions(participantsIds);
+        }
+    }
+
+    /**
+     * For users who left the order, e.g. the declined master: it is gone from their feed.
+     */
+    public void userOrdersChanged(Long userId) {
+        this.userRepository.incrementOrdersChangeVersions(List.of(userId));
+    }
+
+    /**
+     * ETag of the orders feed of the user, {@code null} for admins.
+     */
+    @Nullable
+    public String getFeedEtag(User user, GetOrdersRequestDto query) {
+        if (user.getRole() == UserRole.ADMIN) {
+            return null;
+        }
+
+        long userVersion =
+            this.userRepository.findOrdersChangeVersionById(user.getId()).orElse(0L);
+        long regionVersion = 0;
+        if (user.getRole() == UserRole.MASTER && user.getAddress() != null) {
+            Long regionId = user.getAddress().getRegion().getId();
+            regionVersion =
+                this.regionRepository.findOrdersChangeVersionById(regionId).orElse(0L);
+        }
+
+        String queryHash = Hashing.sha256()
+                                  .hashString(query.toCanonicalQuery(), StandardCharsets.UTF_8)
+                                  .toString();
+        return createEtag(user, userVersion + "-" + regionVersion + "-" + queryHash);
+    }
+
+    public String getOrderEtag(User user, Long orderId) {
+        long version = this.orderRepository.findChangeVersionById(orderId).orElse(0L);
+        return createEtag(user, orderId + "-" + version);
+    }
+
+    // the user is a part of the ETag, browsers share the cache between accounts
+    private static String createEtag(User user, String version) {
+        return "W/\"" + user.getId() + "-" + version + "\"";
+    }
+}
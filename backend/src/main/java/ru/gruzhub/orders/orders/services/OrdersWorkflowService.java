@@ -1,54 +1,58 @@
 package ru.gruzhub.orders.orders.services;
 
-import io.sentry.Sentry;
+import jakarta.annotation.Nullable;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
-import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
-import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
+import ru.gruzhub.orders.notifications.OrderNotificationsOutbox;
 import ru.gruzhub.orders.orders.commands.CreateOrderCommand;
 import ru.gruzhub.orders.orders.dto.CreateOrderRequestDto;
 import ru.gruzhub.orders.orders.dto.CreateOrderResponseDto;
 import ru.gruzhub.orders.orders.enums.OrderStatus;
+import ru.gruzhub.orders.orders.enums.OrderTransition;
+import ru.gruzhub.orders.orders.enums.OrderTransition.MasterChange;
 import ru.gruzhub.orders.orders.models.Order;
 import ru.gruzhub.orders.orders.models.OrderStatusChange;
 import ru.gruzhub.orders.orders.repositories.OrderRepository;
 import ru.gruzhub.orders.orders.repositories.OrderStatusChangeRepository;
-import ru.gruzhub.telegram.models.TelegramChat;
-import ru.gruzhub.telegram.services.TelegramSenderService;
+import ru.gruzhub.orders.orders.repositories.OrderTransitionRepository;
+import ru.gruzhub.tools.exceptions.BadRequestException;
+import ru.gruzhub.tools.exceptions.ConflictException;
+import ru.gruzhub.tools.exceptions.ForbiddenException;
+import ru.gruzhub.tools.transactions.TransactionCallbacks;
 import ru.gruzhub.users.UsersService;
-import ru.gruzhub.users.dto.SignInUserResponseDto;
+import ru.gruzhub.users.balance.enums.BalanceOperationType;
 import ru.gruzhub.users.enums.UserRole;
 import ru.gruzhub.users.models.User;
 
 import java.math.BigDecimal;
-import java.util.List;
 import java.util.Objects;
 
 @Service
 @RequiredArgsConstructor
 public class OrdersWorkflowService {
     private static final BigDecimal TAKE_ORDER_PRICE_RUB = new BigDecimal("2000");
+    private static final String ORDER_TAKEN_MESSAGE = "Заказ уже взят в работу другим автосервисом";
 
     private final OrderRepository orderRepository;
+    private final OrderTransitionRepository orderTransitionRepository;
     private final OrderStatusChangeRepository orderStatusChangeRepository;
     private final UsersService usersService;
     private final CreateOrderCommand createOrderCommand;
-    private final TelegramSenderService telegramSenderService;
+    private final OrderNotificationsOutbox orderNotificationsOutbox;
+    private final OrdersVersionsService ordersVersionsService;
+    private final OrderEventsService orderEventsService;
 
-    @Value("${app.url}")
-    private String siteMainUrl;
-
-    public CreateOrderResponseDto createOrder(String authorization, CreateOrderRequestDto order) {
-        return this.createOrderCommand.createOrder(authorization, order);
+    public CreateOrderResponseDto createOrder(User authorizedUser, CreateOrderRequestDto order) {
+        return this.createOrderCommand.createOrder(authorizedUser, order);
     }
 
+    @Transactional
     public void startCalculationByMaster(User authorizedUser, Long orderId) {
         if (authorizedUser.getRole() != UserRole.MASTER) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN,
-                    "Order can be taken into work only by MASTER");
+            throw new ForbiddenException("Order can be taken into work only by MASTER");
         }
 
         Order order = this.orderRepository.findById(orderId).orElseThrow();
@@ -58,65 +62,53 @@ public class OrdersWorkflowService {
                         .getRegion()
                         .getId()
                         .equals(order.getAddress().getRegion().getId())) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN,
-                    "Access to foreign region order");
+            throw new ForbiddenException("Access to foreign region order");
         }
 
-        if (order.getStatus() != OrderStatus.CREATED) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                    "Заказ уже взят в работу другим автосервисом");
+        if (!OrderTransition.TAKE_INTO_WORK.isAllowedFrom(order.getStatus())) {
+            throw new BadRequestException(ORDER_TAKEN_MESSAGE);
         }
 
         if (authorizedUser.getBalance().compareTo(TAKE_ORDER_PRICE_RUB) < 0) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                    "На балансе недостаточно средств, чтобы взять заказ" +
-                            " в работу");
+            throw new BadRequestException("На балансе недостаточно средств, чтобы взять заказ" +
+                                          " в работу");
         }
 
-        if (order.getDeclinedMastersIds().contains(authorizedUser.getId())) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                    "Текущий автосервис не может взять этот заказ");
+        if (order.isDeclinedByMaster(authorizedUser.getId())) {
+            throw new BadRequestException("Текущий автосервис не может взять этот заказ");
         }
 
-        order.setStatus(OrderStatus.CALCULATING);
-        order.setLastStatusUpdateTime(System.currentTimeMillis());
-        order.setMaster(authorizedUser);
-        this.usersService.decreaseUserBalance(authorizedUser.getId(), TAKE_ORDER_PRICE_RUB);
-        order = this.orderRepository.save(order);
-
-        OrderStatusChange orderStatusChange = new OrderStatusChange();
-        orderStatusChange.setOrder(order);
-        orderStatusChange.setNewStatus(OrderStatus.CALCULATING);
-        orderStatusChange.setUpdatedAt(System.currentTimeMillis());
-        orderStatusChange.setUpdatedBy(authorizedUser);
-        this.orderStatusChangeRepository.save(orderStatusChange);
+        // of concurrent clicks of several masters only one takes the order, before the payment
+        this.applyTransition(order,
+                OrderTransition.TAKE_INTO_WORK,
+                authorizedUser,
+                authorizedUser,
+                null);
+        this.usersService.decreaseUserBalance(authorizedUser.getId(),
+                TAKE_ORDER_PRICE_RUB,
+                BalanceOperationType.ORDER_TAKEN,
+                order.getId());
     }
 
+    @Transactional
     public void declineOrderMaster(User user, Long orderId, String comment) {
-        this.removeMasterFromOrderAndRefundMaster(user, orderId, OrderStatus.CREATED, comment);
+        this.removeMasterFromOrderAndRefundMaster(user,
+                orderId,
+                OrderTransition.DECLINE_MASTER,
+                comment);
     }
 
+    @Transactional
     public void sendForConfirmationByMaster(User user, Long orderId) {
         Order order = this.orderRepository.findById(orderId).orElseThrow();
 
         if (order.getMaster() == null ||
                 !Objects.equals(user.getId(), order.getMaster().getId()) ||
-                order.getStatus() != OrderStatus.CALCULATING) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+                !OrderTransition.SEND_FOR_CONFIRMATION.isAllowedFrom(order.getStatus())) {
+            throw new ForbiddenException();
         }
 
-        order.setStatus(OrderStatus.REVIEWING);
-        order.setLastStatusUpdateTime(System.currentTimeMillis());
-
-        OrderStatusChange orderStatusChange = new OrderStatusChange();
-        orderStatusChange.setOrder(order);
-        orderStatusChange.setNewStatus(OrderStatus.REVIEWING);
-        orderStatusChange.setUpdatedAt(System.currentTimeMillis());
-        orderStatusChange.setUpdatedBy(user);
-        orderStatusChange.setMaster(order.getMaster());
-
-        this.orderRepository.save(order);
-        this.orderStatusChangeRepository.save(orderStatusChange);
+        this.applyTransition(order, OrderTransition.SEND_FOR_CONFIRMATION, user, null, null);
 
         this.sendTelegramMessage(orderId,
                 user,
@@ -126,12 +118,13 @@ public class OrdersWorkflowService {
                         "начинать работу");
     }
 
+    @Transactional
     public void acceptByCustomer(User user, Long orderId) {
         Order order = this.orderRepository.findById(orderId).orElseThrow();
 
         if ((order.getCustomer() == null || !user.getId().equals(order.getCustomer().getId())) ||
-                order.getStatus() != OrderStatus.REVIEWING) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+                !OrderTransition.ACCEPT.isAllowedFrom(order.getStatus())) {
+            throw new ForbiddenException();
         }
 
         if (order.getMaster() == null) {
@@ -139,18 +132,7 @@ public class OrdersWorkflowService {
                     "Order does not have master");
         }
 
-        order.setStatus(OrderStatus.ACCEPTED);
-        order.setLastStatusUpdateTime(System.currentTimeMillis());
-
-        OrderStatusChange orderStatusChange = new OrderStatusChange();
-        orderStatusChange.setOrder(order);
-        orderStatusChange.setNewStatus(OrderStatus.ACCEPTED);
-        orderStatusChange.setUpdatedAt(System.currentTimeMillis());
-        orderStatusChange.setUpdatedBy(user);
-        orderStatusChange.setMaster(order.getMaster());
-
-        this.orderRepository.save(order);
-        this.orderStatusChangeRepository.save(orderStatusChange);
+        this.applyTransition(order, OrderTransition.ACCEPT, user, null, null);
 
         this.sendTelegramMessage(orderId,
                 order.getMaster(),
@@ -159,6 +141,7 @@ public class OrdersWorkflowService {
                         " согласован заказчиком. Можете приступать к работе");
     }
 
+    @Transactional
     public void completeOrder(User authorizedUser, Long orderId) {
         Order order = this.orderRepository.findById(orderId).orElseThrow();
 
@@ -169,21 +152,10 @@ public class OrdersWorkflowService {
                 (order.getMaster() == null ||
                         !authorizedUser.getId().equals(order.getMaster().getId())) &&
                 authorizedUser.getRole() != UserRole.ADMIN) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+            throw new ForbiddenException();
         }
 
-        order.setStatus(OrderStatus.COMPLETED);
-        order.setLastStatusUpdateTime(System.currentTimeMillis());
-
-        OrderStatusChange orderStatusChange = new OrderStatusChange();
-        orderStatusChange.setOrder(order);
-        orderStatusChange.setNewStatus(OrderStatus.COMPLETED);
-        orderStatusChange.setUpdatedAt(System.currentTimeMillis());
-        orderStatusChange.setUpdatedBy(authorizedUser);
-        orderStatusChange.setMaster(order.getMaster());
-
-        this.orderRepository.save(order);
-        this.orderStatusChangeRepository.save(orderStatusChange);
+        this.applyTransition(order, OrderTransition.COMPLETE, authorizedUser, null, null);
 
         if (authorizedUser.getRole() == UserRole.MASTER) {
             this.sendTelegramMessage(orderId,
@@ -197,97 +169,111 @@ public class OrdersWorkflowService {
         }
     }
 
+    @Transactional
     public void cancelOrder(User user, Long orderId, String comment) {
         if (user.getRole() == UserRole.MASTER) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+            throw new ForbiddenException();
         }
 
-        this.removeMasterFromOrderAndRefundMaster(user, orderId, OrderStatus.CANCEL, comment);
+        this.removeMasterFromOrderAndRefundMaster(user, orderId, OrderTransition.CANCEL, comment);
     }
 
     public void updateOrderStatusForTesting(Long orderId, OrderStatus status) {
         Order order = this.orderRepository.findById(orderId).orElseThrow();
+        OrderStatus previousStatus = order.getStatus();
         order.setStatus(status);
         this.orderRepository.save(order);
+        this.onOrderStatusChanged(order, previousStatus, null);
     }
 
-    private void sendTelegramMessage(Long orderId, User user, String message) {
-        Thread.startVirtualThread(() -> {
-            if (user.getConnectedTelegramChats().isEmpty()) {
-                return;
-            }
+    // the versions are a part of the change, the events follow the commit
+    private void onOrderStatusChanged(Order order,
+                                      OrderStatus previousStatus,
+                                      @Nullable User formerMaster) {
+        this.ordersVersionsService.orderChanged(order);
+        if (formerMaster != null) {
+            this.ordersVersionsService.userOrdersChanged(formerMaster.getId());
+        }
+        TransactionCallbacks.afterCommit(
+            () -> this.orderEventsService.orderStatusChanged(order, previousStatus, formerMaster));
+    }
 
-            try {
-                SignInUserResponseDto authDto = this.usersService.getUserAccessNoAuth(user.getId());
-                String authLink = siteMainUrl + "?userId=" +
-                        authDto.getId() +
-                        "&accessToken=" +
-                        authDto.getAccessToken() +
-                        "&orderId=" +
-                        orderId;
-
-                InlineKeyboardMarkup keyboardMarkup = new InlineKeyboardMarkup();
-                InlineKeyboardButton button = new InlineKeyboardButton();
-                button.setText("Посмотреть");
-                button.setUrl(authLink);
-                keyboardMarkup.setKeyboard(List.of(List.of(button)));
-
-                for (TelegramChat chat : user.getConnectedTelegramChats()) {
-                    this.telegramSenderService.sendMessage(chat.getTelegramChatId(),
-                            message,
-                            keyboardMarkup);
-                }
-            } catch (Exception e) {
-                Sentry.captureException(e);
-            }
-        });
+    // sent by OrderNotificationsDispatcher once the current transaction is committed
+    private void sendTelegramMessage(Long orderId, @Nullable User user, String message) {
+        if (user != null) {
+            this.orderNotificationsOutbox.sendMessage(orderId, user.getId(), message);
+        }
     }
 
     private void removeMasterFromOrderAndRefundMaster(User authorizedUser,
                                                       Long orderId,
-                                                      OrderStatus newStatus,
+                                                      OrderTransition transition,
                                                       String comment) {
         Order order = this.orderRepository.findById(orderId).orElseThrow();
         User orderMaster = order.getMaster();
 
-        if (newStatus != OrderStatus.CREATED && newStatus != OrderStatus.CANCEL) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Неверный статус заказа");
-        }
-
         if ((order.getCustomer() != null &&
                 !authorizedUser.getId().equals(order.getCustomer().getId())) &&
                 (order.getMaster() != null &&
                         !authorizedUser.getId().equals(order.getMaster().getId())) &&
                 authorizedUser.getRole() != UserRole.ADMIN) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+            throw new ForbiddenException();
         }
 
         // Customer decided to change master
-        if (newStatus == OrderStatus.CREATED) {
-            if (order.getMaster() == null) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                        "У заказа нет исполнителя");
-            }
-
-            order.addDeclinedMaster(order.getMaster().getId());
+        if (transition == OrderTransition.DECLINE_MASTER && order.getMaster() == null) {
+            throw new BadRequestException("У заказа нет исполнителя");
         }
 
-        order.setMaster(null);
-        order.setStatus(newStatus);
-        order.setLastStatusUpdateTime(System.currentTimeMillis());
+        // the master is refunded only by the request which has removed them
+        this.applyTransition(order, transition, authorizedUser, null, comment);
 
         if (orderMaster != null) {
-            this.usersService.increaseUserBalance(orderMaster.getId(), TAKE_ORDER_PRICE_RUB);
+            this.usersService.increaseUserBalance(orderMaster.getId(),
+                    TAKE_ORDER_PRICE_RUB,
+                    BalanceOperationType.ORDER_REFUND,
+                    order.getId());
+        }
+    }
+
+    /**
+     * Applies the transition by a conditional update and records the status change in the
+     * current transaction. Caches and events are updated after the commit.
+     *
+     * @throws ConflictException when a concurrent request has changed the order first
+     */
+    private void applyTransition(Order order,
+                                 OrderTransition transition,
+                                 User updatedBy,
+                                 @Nullable User newMaster,
+                                 @Nullable String comment) {
+        OrderStatus previousStatus = order.getStatus();
+        User previousMaster = order.getMaster();
+        long time = System.currentTimeMillis();
+
+        if (!this.orderTransitionRepository.applyTransition(order, transition, newMaster, time)) {
+            if (transition == OrderTransition.TAKE_INTO_WORK) {
+                throw new BadRequestException(ORDER_TAKEN_MESSAGE);
+            }
+            throw new ConflictException("Заказ был изменён, обновите страницу");
         }
 
         OrderStatusChange orderStatusChange = new OrderStatusChange();
         orderStatusChange.setOrder(order);
-        orderStatusChange.setNewStatus(newStatus);
-        orderStatusChange.setUpdatedAt(System.currentTimeMillis());
-        orderStatusChange.setUpdatedBy(authorizedUser);
+        orderStatusChange.setNewStatus(transition.getToStatus());
+        orderStatusChange.setUpdatedAt(time);
+        orderStatusChange.setUpdatedBy(updatedBy);
         orderStatusChange.setComment(comment);
-
-        this.orderRepository.save(order);
+        if (transition.getMasterChange() == MasterChange.KEEP) {
+            orderStatusChange.setMaster(order.getMaster());
+        }
         this.orderStatusChangeRepository.save(orderStatusChange);
+
+        User formerMaster = transition.getMasterChange() == MasterChange.REMOVE ||
+                            transition.getMasterChange() == MasterChange.DECLINE
+                            ? previousMaster
+                            : null;
+        this.onOrderStatusChanged(order, previousStatus, formerMaster);
     }
+
 }
@@ -1,17 +1,19 @@
 package ru.gruzhub.orders.orders.statistics;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import lombok.RequiredArgsConstructor;
-import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import ru.gruzhub.orders.orders.statistics.dto.OrderCreationDto;
 import ru.gruzhub.orders.orders.statistics.enums.OrderStatisticsPeriod;
+import ru.gruzhub.tools.admin.AdminBulkhead;
 import ru.gruzhub.users.UsersService;
+import ru.gruzhub.users.auth.AuthorizedUser;
 import ru.gruzhub.users.enums.UserRole;
+import ru.gruzhub.users.models.User;
 
 @RestController
 @RequestMapping("/orders-statistics")
@@ -19,12 +21,14 @@ import ru.gruzhub.users.enums.UserRole;
 public class OrderStatisticsContoller {
     private final OrderStatisticsService orderStatisticsService;
     private final UsersService usersService;
+    private final AdminBulkhead adminBulkhead;
 
     @GetMapping("/orders")
-    public List<OrderCreationDto> getOrdersStatistics(
-        @RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+    public CompletableFuture<List<OrderCreationDto>> getOrdersStatistics(
+        @AuthorizedUser User user,
         @RequestParam OrderStatisticsPeriod period) {
-        this.usersService.validateAuthRole(authorization, List.of(UserRole.ADMIN));
-        return this.orderStatisticsService.getOrderCreationDates(period);
+        this.usersService.validateAuthRole(user, List.of(UserRole.ADMIN));
+        return this.adminBulkhead.submit(
+            () -> this.orderStatisticsService.getOrderCreationDates(period));
     }
 }
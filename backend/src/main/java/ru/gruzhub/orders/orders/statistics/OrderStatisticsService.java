@@ -4,9 +4,9 @@ import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.util.List;
-import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import ru.gruzhub.tools.concurrent.SingleFlight;
 import ru.gruzhub.orders.orders.statistics.dto.OrderCreationDto;
 import ru.gruzhub.orders.orders.statistics.enums.OrderStatisticsPeriod;
 
@@ -14,8 +14,14 @@ import ru.gruzhub.orders.orders.statistics.enums.OrderStatisticsPeriod;
 @RequiredArgsConstructor
 public class OrderStatisticsService {
     private final OrderStatisticsRepository orderStatisticsRepository;
+    private final SingleFlight<OrderStatisticsPeriod, List<OrderCreationDto>> statisticsFlight =
+        new SingleFlight<>();
 
     public List<OrderCreationDto> getOrderCreationDates(OrderStatisticsPeriod period) {
+        return this.statisticsFlight.execute(period, () -> this.loadOrderCreationDates(period));
+    }
+
+    private List<OrderCreationDto> loadOrderCreationDates(OrderStatisticsPeriod period) {
         List<Object[]> stats = switch (period) {
             case DAY -> this.findOrdersByDay();
             case WEEK -> this.findOrdersByWeek();
@@ -43,7 +49,7 @@ public class OrderStatisticsService {
             LocalDate date = instant.atZone(ZoneOffset.UTC).toLocalDate(); // Convert to UTC
             String period = date.toString(); // Format as 'YYYY-MM-DD'
             return new OrderCreationDto(period, ((Number) row[1]).longValue());
-        }).collect(Collectors.toList());
+        }).toList();
     }
 }
 
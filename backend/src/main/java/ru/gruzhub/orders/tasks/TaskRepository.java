@@ -1,7 +1,10 @@
 package ru.gruzhub.orders.tasks;
 
 import java.util.List;
+import java.util.Optional;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.EntityGraph.EntityGraphType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import ru.gruzhub.orders.tasks.models.Task;
@@ -26,4 +29,7 @@ public interface TaskRepository extends JpaRepository<Task, Long> {
      * @return a list of matching Task entities
      */
     List<Task> findByOrderId(Long orderId, Sort sort);
+
+    @EntityGraph(value = Task.WITH_ORDER_GRAPH, type = EntityGraphType.LOAD)
+    Optional<Task> findWithOrderById(Long id);
 }
@@ -4,9 +4,7 @@ import java.util.List;
 import java.util.Objects;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Sort;
-import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.web.server.ResponseStatusException;
 import ru.gruzhub.orders.auto.AutoService;
 import ru.gruzhub.orders.auto.models.Auto;
 import ru.gruzhub.orders.orders.models.Order;
@@ -15,6 +13,8 @@ import ru.gruzhub.orders.tasks.dto.CreateTaskDto;
 import ru.gruzhub.orders.tasks.dto.TaskResponseDto;
 import ru.gruzhub.orders.tasks.dto.UpdateTaskDto;
 import ru.gruzhub.orders.tasks.models.Task;
+import ru.gruzhub.tools.exceptions.BadRequestException;
+import ru.gruzhub.tools.exceptions.ForbiddenException;
 import ru.gruzhub.users.enums.UserRole;
 import ru.gruzhub.users.models.User;
 
@@ -31,14 +31,12 @@ public class TasksService {
 
         assert order.getMaster() != null;
         if (!Objects.equals(order.getMaster().getId(), user.getId())) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN,
-                                              "You are not the master of this order.");
+            throw new ForbiddenException("You are not the master of this order.");
         }
 
         List<Long> orderAutosIds = order.getAutos().stream().map(Auto::getId).toList();
         if (!orderAutosIds.contains(auto.getId())) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN,
-                                              "Auto does not belong to the order.");
+            throw new ForbiddenException("Auto does not belong to the order.");
         }
 
         Task task = Task.builder()
@@ -60,8 +58,7 @@ public class TasksService {
 
         assert task.getOrder().getMaster() != null;
         if (!Objects.equals(task.getOrder().getMaster().getId(), user.getId())) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN,
-                                              "You are not the master of this order.");
+            throw new ForbiddenException("You are not the master of this order.");
         }
 
         task.setName(updateRequest.getName());
@@ -77,8 +74,7 @@ public class TasksService {
 
         assert task.getOrder().getMaster() != null;
         if (!Objects.equals(task.getOrder().getMaster().getId(), user.getId())) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN,
-                                              "You are not the master of this order.");
+            throw new ForbiddenException("You are not the master of this order.");
         }
 
         this.taskRepository.delete(task);
@@ -86,8 +82,7 @@ public class TasksService {
 
     public List<TaskResponseDto> getOrderAutoTasks(User authorizedUser, Long orderId, Long autoId) {
         if (orderId == null && autoId == null) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                                              "Either orderId or autoId should be specified");
+            throw new BadRequestException("Either orderId or autoId should be specified");
         }
 
         Order order = this.ordersDataService.getOrderById(authorizedUser, orderId);
@@ -106,7 +101,7 @@ public class TasksService {
         }
 
         if (authorizedUser.getRole() != UserRole.ADMIN && !isUserPresentInOrder) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Access denied.");
+            throw new ForbiddenException("Access denied.");
         }
 
         List<Task> tasks;
@@ -123,6 +118,6 @@ public class TasksService {
     }
 
     public Task getTaskById(Long taskId) {
-        return this.taskRepository.findById(taskId).orElseThrow();
+        return this.taskRepository.findWithOrderById(taskId).orElseThrow();
     }
 }
@@ -8,6 +8,8 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.Table;
 import java.math.BigDecimal;
 import lombok.AllArgsConstructor;
@@ -21,25 +23,29 @@ import ru.gruzhub.orders.tasks.dto.TaskResponseDto;
 
 @Entity
 @Table(name = "tasks")
+@NamedEntityGraph(name = Task.WITH_ORDER_GRAPH,
+                  attributeNodes = @NamedAttributeNode("order"))
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class Task {
+    public static final String WITH_ORDER_GRAPH = "Task.withOrder";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id",
             nullable = false)
     private Long id;
 
-    @ManyToOne(fetch = FetchType.EAGER,
+    @ManyToOne(fetch = FetchType.LAZY,
                optional = false)
     @JoinColumn(name = "auto_id",
                 nullable = false)
     private Auto auto;
 
-    @ManyToOne(fetch = FetchType.EAGER,
+    @ManyToOne(fetch = FetchType.LAZY,
                optional = false)
     @JoinColumn(name = "order_id",
                 nullable = false)
@@ -0,0 +1,271 @@
+package ru.gruzhub.telegram.services;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import ru.gruzhub.telegram.TelegramBotController;
+import ru.gruzhub.tools.ratelimit.TokenBucket;
+
+/**
+ * Sends messages to Telegram from app.telegram_workers threads within the limits of the
+ * Bot API. All messages share a token bucket of app.telegram_messages_per_second. Messages
+ * of one chat are sent one at a time in the order they were queued, at most one per
+ * app.telegram_chat_interval_ms. When Telegram answers 429, the chat waits for retry_after
+ * and the message is sent again. A message whose future is cancelled while it is queued is
+ * dropped without being sent.
+ * <p>
+ * A chat with queued messages is always either in {@link #readyChats} or taken by exactly
+ * one worker, which keeps the order of its messages.
+ */
+@Component
+public class TelegramDispatcher {
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int FORBIDDEN = 403;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long FIRST_RETRY_DELAY_MS = 1000;
+
+    private final TelegramBotController telegramBotController;
+    private final TokenBucket messagesBucket;
+    private final long chatIntervalNanos;
+    private final int workersCount;
+    private final ExecutorService workers;
+
+    private final Map<Long, ChatQueue> chatsQueues = new ConcurrentHashMap<>();
+    private final DelayQueue<ChatQueue> readyChats = new DelayQueue<>();
+    private final AtomicInteger queuedMessagesCount = new AtomicInteger();
+
+    private final Timer sendLatencyTimer;
+    private final Counter rateLimitedCounter;
+    private final Counter failedCounter;
+
+    public TelegramDispatcher(
+        TelegramBotController telegramBotController,
+        MeterRegistry meterRegistry,
+        @Value("${app.telegram_workers:4}") int workersCount,
+        @Value("${app.telegram_messages_per_second:30}") long messagesPerSecond,
+        @Value("${app.telegram_chat_interval_ms:1000}") long chatIntervalMs) {
+        this.telegramBotController = telegramBotController;
+        this.messagesBucket = new TokenBucket(messagesPerSecond,
+                                              messagesPerSecond * 60,
+                                              System.nanoTime());
+        this.chatIntervalNanos = TimeUnit.MILLISECONDS.toNanos(chatIntervalMs);
+        this.workersCount = workersCount;
+        this.workers = Executors.newFixedThreadPool(workersCount,
+                                                    new ThreadFactoryBuilder()
+                                                        .setNameFormat("telegram-dispatcher-%d")
+                                                        .setDaemon(true)
+                                                        .build());
+
+        Gauge.builder("telegram.queue.depth", this.queuedMessagesCount, AtomicInteger::get)
+             .register(meterRegistry);
+        Gauge.builder("telegram.queue.chats", this.chatsQueues, Map::size)
+             .register(meterRegistry);
+        // from queueing to the answer of Telegram, with the waits for the limits
+        this.sendLatencyTimer = Timer.builder("telegram.send.latency").register(meterRegistry);
+        this.rateLimitedCounter = Counter.builder("telegram.rate_limited").register(meterRegistry);
+        this.failedCounter = Counter.builder("telegram.send.failed").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        for (int i = 0; i < this.workersCount; i++) {
+            this.workers.execute(() -> {
+                try {
+                    while (true) {
+                        this.processChat(this.readyChats.take());
+                    }
+                } catch (InterruptedException e) {
+                    // stopped by shutdown
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.workers.shutdownNow();
+    }
+
+    /**
+     * Queues the message after the other messages of its chat.
+     *
+     * @return completed when Telegram has accepted the message or has answered that the bot
+     * cannot write to the chat, completed exceptionally when the message is given up on;
+     * cancelling it drops the message unless it is being sent
+     */
+    public CompletableFuture<Void> send(Long chatId, SendMessage sendMessage) {
+        QueuedMessage message = new QueuedMessage(sendMessage, System.nanoTime());
+
+        // the same lock as the removal of an idle chat, so the message cannot join a removed one
+        this.chatsQueues.compute(chatId, (id, chat) -> {
+            if (chat == null) {
+                chat = new ChatQueue(id);
+                this.readyChats.add(chat);
+            }
+            chat.messages.add(message);
+            return chat;
+        });
+        this.queuedMessagesCount.incrementAndGet();
+
+        return message.future;
+    }
+
+    private void processChat(ChatQueue chat) throws InterruptedException {
+        QueuedMessage message = chat.messages.peek();
+        if (message == null) {
+            // the chat has waited out its interval since the last message, it may be dropped
+            this.chatsQueues.compute(chat.chatId, (id, ignored) -> {
+                if (chat.messages.isEmpty()) {
+                    return null;
+                }
+                this.readyChats.add(chat);
+                return chat;
+            });
+            return;
+        }
+
+        // cancelled by the sender while queued, the chat goes on without waiting
+        if (message.future.isDone()) {
+            chat.messages.poll();
+            this.queuedMessagesCount.decrementAndGet();
+            this.readyChats.add(chat);
+            return;
+        }
+
+        this.acquireMessageToken();
+        long delayNanos = this.sendMessage(message);
+        if (message.future.isDone()) {
+            chat.messages.poll();
+            this.queuedMessagesCount.decrementAndGet();
+        }
+
+        // also when the chat is empty, the next message must wait for the interval
+        chat.readyAtNanos = System.nanoTime() + delayNanos;
+        this.readyChats.add(chat);
+    }
+
+    private void acquireMessageToken() throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = this.messagesBucket.tryAcquire(System.nanoTime())) > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Completes the message future unless the message must be sent again.
+     *
+     * @return nanoseconds the chat must wait before its next message
+     */
+    private long sendMessage(QueuedMessage message) {
+        try {
+            this.telegramBotController.sendMessage(message.sendMessage);
+            this.completeMessage(message);
+            return this.chatIntervalNanos;
+        } catch (TelegramApiRequestException e) {
+            Integer errorCode = e.getErrorCode();
+
+            if (errorCode != null && errorCode == TOO_MANY_REQUESTS &&
+                e.getParameters() != null && e.getParameters().getRetryAfter() != null) {
+                this.rateLimitedCounter.increment();
+                return TimeUnit.SECONDS.toNanos(e.getParameters().getRetryAfter());
+            }
+
+            // the bot is blocked by the user or removed from the group, a retry would not help
+            if (errorCode != null && errorCode == FORBIDDEN) {
+                this.completeMessage(message);
+                return this.chatIntervalNanos;
+            }
+
+            // other answers of Telegram are final except its own errors
+            if (errorCode == null || errorCode < 500) {
+                this.failMessage(message, e);
+                return this.chatIntervalNanos;
+            }
+
+            return this.retryMessage(message, e);
+        } catch (TelegramApiException e) {
+            // no answer from Telegram
+            return this.retryMessage(message, e);
+        } catch (RuntimeException e) {
+            this.failMessage(message, e);
+            return this.chatIntervalNanos;
+        }
+    }
+
+    private long retryMessage(QueuedMessage message, Exception error) {
+        message.attempts++;
+        if (message.attempts >= MAX_ATTEMPTS) {
+            this.failMessage(message, error);
+            return this.chatIntervalNanos;
+        }
+
+        return TimeUnit.MILLISECONDS.toNanos(FIRST_RETRY_DELAY_MS << (message.attempts - 1));
+    }
+
+    private void completeMessage(QueuedMessage message) {
+        this.sendLatencyTimer.record(System.nanoTime() - message.queuedAtNanos,
+                                     TimeUnit.NANOSECONDS);
+        message.future.complete(null);
+    }
+
+    private void failMessage(QueuedMessage message, Exception error) {
+        this.failedCounter.increment();
+        message.future.completeExceptionally(error);
+    }
+
+    private static class QueuedMessage {
+        private final SendMessage sendMessage;
+        private final long queuedAtNanos;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        // changed only by the worker which has taken the chat
+        private int attempts;
+
+        private QueuedMessage(SendMessage sendMessage, long queuedAtNanos) {
+            this.sendMessage = sendMessage;
+            this.queuedAtNanos = queuedAtNanos;
+        }
+    }
+
+    private static class ChatQueue implements Delayed {
+        private final Long chatId;
+        private final Queue<QueuedMessage> messages = new ConcurrentLinkedQueue<>();
+        // changed only while the chat is not in the delay queue
+        private volatile long readyAtNanos = System.nanoTime();
+
+        private ChatQueue(Long chatId) {
+            this.chatId = chatId;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(this.readyAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(this.getDelay(TimeUnit.NANOSECONDS),
+                                other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
@@ -1,24 +1,38 @@
 package ru.gruzhub.telegram.services;
 
 import io.sentry.Sentry;
+import java.util.concurrent.CompletableFuture;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboard;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
-import ru.gruzhub.telegram.TelegramBotController;
 import ru.gruzhub.tools.env.EnvVariables;
 import ru.gruzhub.tools.env.enums.AppMode;
 
 @Service
 @RequiredArgsConstructor
 public class TelegramSenderService {
-    private final TelegramBotController telegramBotController;
+    private final TelegramDispatcher telegramDispatcher;
     private final EnvVariables envVariables;
 
     public void sendMessage(Long telegramChatId, String message, ReplyKeyboard replyMarkup) {
+        this.sendMessageAsync(telegramChatId, message, replyMarkup).exceptionally(e -> {
+            Sentry.captureException(e);
+            return null;
+        });
+    }
+
+    /**
+     * Queues the message in {@link TelegramDispatcher}.
+     *
+     * @return completed when the message is sent or the bot is blocked in the chat, completed
+     * exceptionally when Telegram has not accepted the message
+     */
+    public CompletableFuture<Void> sendMessageAsync(Long telegramChatId,
+                                                    String message,
+                                                    ReplyKeyboard replyMarkup) {
         if (this.envVariables.APP_MODE == AppMode.TEST) {
-            return;
+            return CompletableFuture.completedFuture(null);
         }
 
         SendMessage sendMessage = new SendMessage();
@@ -29,16 +43,6 @@ public class TelegramSenderService {
             sendMessage.setReplyMarkup(replyMarkup);
         }
 
-        try {
-            this.telegramBotController.sendMessage(sendMessage);
-        } catch (TelegramApiException e) {
-            if (e.getMessage().toLowerCase().contains("bot was blocked by the user") ||
-                e.getMessage().toLowerCase().contains("forbidden")) {
-                return;
-            }
-
-            Sentry.captureException(e);
-        }
-
+        return this.telegramDispatcher.send(telegramChatId, sendMessage);
     }
 }
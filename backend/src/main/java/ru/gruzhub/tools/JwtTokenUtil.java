@@ -1,39 +1,159 @@
 package ru.gruzhub.tools;
 
+import com.google.common.hash.Hashing;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.security.Keys;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.ArrayList;
 import java.util.Date;
-import lombok.RequiredArgsConstructor;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import javax.crypto.SecretKey;
 import org.springframework.stereotype.Component;
 import ru.gruzhub.tools.env.EnvVariables;
 import ru.gruzhub.users.models.User;
 
+/**
+ * Signs access tokens with the active secret and verifies them against the active and the
+ * retired secrets. Keys and the parser are built once, the parser is thread-safe.
+ * Each token carries a "kid" header so that rotated secrets keep their tokens valid.
+ */
 @Component
-@RequiredArgsConstructor
 public class JwtTokenUtil {
     private static final long JWT_TOKEN_VALIDITY = 100L * 365 * 60 * 60 * 1000; // 100 years
+    // session tokens have no type, the other tokens are not accepted as a session
+    private static final String TOKEN_TYPE_CLAIM = "type";
+    private static final String ORDER_LINK_TOKEN_TYPE = "order_link";
+    private static final String ORDER_EVENTS_TOKEN_TYPE = "order_events";
+    private static final String ORDER_ID_CLAIM = "order_id";
 
-    private final EnvVariables envVariables;
+    private final String signingKeyId;
+    private final SecretKey signingKey;
+    private final Map<String, SecretKey> verificationKeys;
+    private final JwtParser parser;
+    // tokens issued before key ids were introduced have no "kid" header
+    private final List<JwtParser> retiredKeysParsers;
+
+    public JwtTokenUtil(EnvVariables envVariables) {
+        this.signingKeyId = getKeyId(envVariables.JWT_SECRET_KEY);
+        this.signingKey = createKey(envVariables.JWT_SECRET_KEY);
+
+        Map<String, SecretKey> keys = new HashMap<>();
+        List<JwtParser> retiredParsers = new ArrayList<>();
+        for (String retiredSecret : envVariables.JWT_RETIRED_SECRET_KEYS) {
+            SecretKey retiredKey = createKey(retiredSecret);
+            keys.put(getKeyId(retiredSecret), retiredKey);
+            retiredParsers.add(Jwts.parserBuilder().setSigningKey(retiredKey).build());
+        }
+        keys.put(this.signingKeyId, this.signingKey);
+
+        this.verificationKeys = Map.copyOf(keys);
+        this.retiredKeysParsers = List.copyOf(retiredParsers);
+        this.parser = Jwts.parserBuilder().setSigningKeyResolver(new KeyIdResolver()).build();
+    }
 
     public String generateToken(User user) {
-        String jwtSecretKey = this.envVariables.JWT_SECRET_KEY;
+        return this.createTokenBuilder(user, JWT_TOKEN_VALIDITY).compact();
+    }
+
+    /**
+     * Token for a link to a single order, it is valid for {@code validityMs} only. It is not
+     * a session token, it is exchanged for one once, see OrderLinksService.
+     */
+    public String generateOrderLinkToken(User user, Long orderId, long validityMs) {
+        return this.createTokenBuilder(user, validityMs)
+                   .setId(UUID.randomUUID().toString())
+                   .claim(TOKEN_TYPE_CLAIM, ORDER_LINK_TOKEN_TYPE)
+                   .claim(ORDER_ID_CLAIM, orderId)
+                   .compact();
+    }
+
+    /**
+     * Token for a single subscription to the order events stream, it is valid for
+     * {@code validityMs} only. See OrderEventsTokensService.
+     */
+    public String generateOrderEventsToken(User user, long validityMs) {
+        return this.createTokenBuilder(user, validityMs)
+                   .setId(UUID.randomUUID().toString())
+                   .claim(TOKEN_TYPE_CLAIM, ORDER_EVENTS_TOKEN_TYPE)
+                   .compact();
+    }
+
+    public static boolean isSessionToken(Claims claims) {
+        return claims.get(TOKEN_TYPE_CLAIM) == null;
+    }
+
+    public static boolean isOrderLinkToken(Claims claims) {
+        return ORDER_LINK_TOKEN_TYPE.equals(claims.get(TOKEN_TYPE_CLAIM)) &&
+               claims.getId() != null &&
+               claims.get(ORDER_ID_CLAIM) != null;
+    }
+
+    public static boolean isOrderEventsToken(Claims claims) {
+        return ORDER_EVENTS_TOKEN_TYPE.equals(claims.get(TOKEN_TYPE_CLAIM)) &&
+               claims.getId() != null;
+    }
+
+    public Claims getClaimsFromToken(String token) {
+        try {
+            return this.parser.parseClaimsJws(token).getBody();
+        } catch (JwtException e) {
+            for (JwtParser retiredKeyParser : this.retiredKeysParsers) {
+                try {
+                    return retiredKeyParser.parseClaimsJws(token).getBody();
+                } catch (JwtException ignored) {
+                    // try next retired key
+                }
+            }
+
+            throw e;
+        }
+    }
+
+    private JwtBuilder createTokenBuilder(User user, long validityMs) {
+        long now = System.currentTimeMillis();
         return Jwts.builder()
+                   .setHeaderParam(JwsHeader.KEY_ID, this.signingKeyId)
                    .claim("id", user.getId())
                    .claim("password_creation_time", user.getPasswordCreationTime())
-                   .setIssuedAt(new Date())
-                   .setExpiration(new Date(System.currentTimeMillis() + JWT_TOKEN_VALIDITY))
-                   .signWith(Keys.hmacShaKeyFor(jwtSecretKey.getBytes()), SignatureAlgorithm.HS256)
-                   .compact();
+                   .setIssuedAt(new Date(now))
+                   .setExpiration(new Date(now + validityMs))
+                   .signWith(this.signingKey, SignatureAlgorithm.HS256);
     }
 
-    public Claims getClaimsFromToken(String token) {
-        String jwtSecretKey = this.envVariables.JWT_SECRET_KEY;
-        return Jwts.parserBuilder()
-                   .setSigningKey(Keys.hmacShaKeyFor(jwtSecretKey.getBytes()))
-                   .build()
-                   .parseClaimsJws(token)
-                   .getBody();
+    private static SecretKey createKey(String secret) {
+        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String getKeyId(String secret) {
+        return Hashing.sha256().hashString(secret, StandardCharsets.UTF_8).toString().substring(0, 16);
+    }
+
+    private class KeyIdResolver extends SigningKeyResolverAdapter {
+        @Override
+        public Key resolveSigningKey(JwsHeader header, Claims claims) {
+            String keyId = header.getKeyId();
+            if (keyId == null) {
+                return JwtTokenUtil.this.signingKey;
+            }
+
+            SecretKey key = JwtTokenUtil.this.verificationKeys.get(keyId);
+            if (key == null) {
+                throw new UnsupportedJwtException("Unknown signing key id");
+            }
+
+            return key;
+        }
     }
 }
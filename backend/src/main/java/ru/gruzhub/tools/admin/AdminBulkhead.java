@@ -0,0 +1,67 @@
+package ru.gruzhub.tools.admin;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.gruzhub.tools.exceptions.ServiceUnavailableException;
+
+/**
+ * Bounded executor for heavy admin requests (reports, unfiltered lists). Only a few of them
+ * run at once, on the admin connection pool, so they cannot take the request threads and
+ * connections of drivers and masters. When the queue is full, admins get 503 immediately.
+ */
+@Component
+public class AdminBulkhead {
+    private static final String OVERLOADED_MESSAGE =
+        "Слишком много тяжёлых запросов, попробуйте позже";
+
+    private final ThreadPoolExecutor executor;
+
+    public AdminBulkhead(MeterRegistry meterRegistry,
+                         @Value("${app.admin_executor_threads:2}") int threads,
+                         @Value("${app.admin_executor_queue_capacity:20}") int queueCapacity) {
+        this.executor = new ThreadPoolExecutor(threads,
+                                               threads,
+                                               0L,
+                                               TimeUnit.MILLISECONDS,
+                                               new ArrayBlockingQueue<>(queueCapacity),
+                                               new ThreadFactoryBuilder().setNameFormat("admin-%d")
+                                                                         .setDaemon(true)
+                                                                         .build(),
+                                               new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("admin.bulkhead.queue.depth", this.executor, pool -> pool.getQueue().size())
+             .register(meterRegistry);
+        Gauge.builder("admin.bulkhead.active", this.executor, ThreadPoolExecutor::getActiveCount)
+             .register(meterRegistry);
+    }
+
+    /**
+     * Runs the task on the admin executor with the connections of {@link AdminDatabase},
+     * controllers can return the future as is, so the request thread is not held.
+     *
+     * @throws ServiceUnavailableException when the queue is full
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(() -> AdminRoutingDataSource.callAsAdmin(task),
+                                                 this.executor);
+        } catch (RejectedExecutionException e) {
+            throw new ServiceUnavailableException(OVERLOADED_MESSAGE);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+}
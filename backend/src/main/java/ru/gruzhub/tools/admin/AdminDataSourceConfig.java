@@ -0,0 +1,37 @@
+package ru.gruzhub.tools.admin;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.Map;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Replaces the auto-configured DataSource with {@link AdminRoutingDataSource}. The main pool
+ * is built from the same spring.datasource properties as the auto-configured one.
+ */
+@Configuration
+public class AdminDataSourceConfig {
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource mainDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder()
+                                   .type(HikariDataSource.class)
+                                   .build();
+    }
+
+    @Bean
+    @Primary
+    public AdminRoutingDataSource dataSource(HikariDataSource mainDataSource,
+                                             AdminDatabase adminDatabase) {
+        AdminRoutingDataSource dataSource = new AdminRoutingDataSource();
+        dataSource.setTargetDataSources(Map.of(false,
+                                               mainDataSource,
+                                               true,
+                                               adminDatabase.getDataSource()));
+        dataSource.setDefaultTargetDataSource(mainDataSource);
+        return dataSource;
+    }
+}
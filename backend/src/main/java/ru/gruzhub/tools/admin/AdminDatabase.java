@@ -0,0 +1,57 @@
+package ru.gruzhub.tools.admin;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Small separate connection pool for admin reports and lists, so that they never wait for or
+ * take the connections of the main pool. Statements are cancelled after
+ * app.admin_statement_timeout_ms. The pool is deliberately not a DataSource bean, JPA gets
+ * it through {@link AdminRoutingDataSource}.
+ */
+@Component
+public class AdminDatabase {
+    @Getter
+    private final HikariDataSource dataSource;
+    @Getter
+    private final JdbcTemplate jdbcTemplate;
+    @Getter
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public AdminDatabase(DataSourceProperties dataSourceProperties,
+                         @Value("${app.admin_pool_size:2}") int poolSize,
+                         @Value("${app.admin_statement_timeout_ms:30000}") long statementTimeoutMs) {
+        String url = dataSourceProperties.determineUrl();
+
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("AdminPool");
+        config.setJdbcUrl(url);
+        config.setUsername(dataSourceProperties.determineUsername());
+        config.setPassword(dataSourceProperties.determinePassword());
+        config.setDriverClassName(dataSourceProperties.determineDriverClassName());
+        config.setMaximumPoolSize(poolSize);
+        config.setMinimumIdle(0);
+        config.setReadOnly(true);
+        if (url != null && url.startsWith("jdbc:postgresql:")) {
+            config.setConnectionInitSql("SET statement_timeout = " + statementTimeoutMs);
+        }
+        this.dataSource = new HikariDataSource(config);
+
+        this.jdbcTemplate = new JdbcTemplate(this.dataSource);
+        this.jdbcTemplate.setQueryTimeout((int) TimeUnit.MILLISECONDS.toSeconds(statementTimeoutMs));
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(this.jdbcTemplate);
+    }
+
+    @PreDestroy
+    public void close() {
+        this.dataSource.close();
+    }
+}
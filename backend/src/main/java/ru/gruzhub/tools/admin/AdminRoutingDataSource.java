@@ -0,0 +1,27 @@
+package ru.gruzhub.tools.admin;
+
+import java.util.function.Supplier;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * The DataSource of JPA and JDBC templates. Connections taken by the tasks of
+ * {@link AdminBulkhead} come from {@link AdminDatabase}, all the others from the main pool,
+ * so the admin lists, which are mapped by JPA, read with the admin limits too.
+ */
+public class AdminRoutingDataSource extends AbstractRoutingDataSource {
+    private static final ThreadLocal<Boolean> ADMIN_TASK = ThreadLocal.withInitial(() -> false);
+
+    static <T> T callAsAdmin(Supplier<T> task) {
+        ADMIN_TASK.set(true);
+        try {
+            return task.get();
+        } finally {
+            ADMIN_TASK.remove();
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ADMIN_TASK.get();
+    }
+}
@@ -0,0 +1,38 @@
+package ru.gruzhub.tools.concurrent;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.sentry.Sentry;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the background work of a component on its own named daemon thread. A failed run is
+ * reported to Sentry and the work is repeated as scheduled. The owner calls {@link #shutdown()}
+ * from its @PreDestroy, which interrupts a run in progress.
+ */
+public class BackgroundScheduler {
+    private final ScheduledExecutorService executor;
+
+    public BackgroundScheduler(String threadName) {
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat(threadName).setDaemon(true).build());
+    }
+
+    /**
+     * Runs the action after the initial delay, then again each delay after the previous run ends.
+     */
+    public void repeat(Runnable action, long initialDelayMs, long delayMs) {
+        this.executor.scheduleWithFixedDelay(() -> {
+            try {
+                action.run();
+            } catch (Exception e) {
+                Sentry.captureException(e);
+            }
+        }, initialDelayMs, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+}
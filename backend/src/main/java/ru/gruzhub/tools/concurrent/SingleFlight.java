@@ -0,0 +1,56 @@
+package ru.gruzhub.tools.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls with equal keys into one execution of the loader.
+ * The first caller runs the loader, callers arriving while it runs wait for and share its
+ * result. Nothing is cached: once the loader finishes, the next call runs it again.
+ * Shared results must be treated as read-only by all callers.
+ * <p>
+ * The result reaches threads outside the loader's transaction, so it must be detached data,
+ * e.g. DTOs built by the loader, never managed entities: their lazy associations would be
+ * loaded through one session from several threads.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existingFuture = this.inFlight.putIfAbsent(key, future);
+
+        if (existingFuture != null) {
+            return this.join(existingFuture);
+        }
+
+        // the flight is removed before it completes, so a completed result is never shared
+        // with a caller that arrived after the loader had finished
+        V value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException | Error e) {
+            this.inFlight.remove(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+
+        this.inFlight.remove(key, future);
+        future.complete(value);
+        return value;
+    }
+
+    private V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+}
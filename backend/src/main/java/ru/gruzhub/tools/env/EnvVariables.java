@@ -1,6 +1,8 @@
 package ru.gruzhub.tools.env;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 import ru.gruzhub.tools.env.enums.AppMode;
@@ -26,6 +28,7 @@ public class EnvVariables {
     public final long ADMIN_TG_ID;
     public final String APPLICATION_SERVER;
     public final String JWT_SECRET_KEY;
+    public final List<String> JWT_RETIRED_SECRET_KEYS;
     // Sentry
     public final String SENTRY_DSN;
 
@@ -81,6 +84,9 @@ public class EnvVariables {
             throw new NullPointerException("app.jwt_secret_key");
         }
 
+        // optional, secrets that are no longer used for signing but still accepted
+        String JWT_RETIRED_SECRET_KEYS = env.getProperty("app.jwt_retired_secret_keys", "");
+
         // sentry
 
         String SENTRY_DSN = env.getProperty("sentry.dsn");
@@ -96,6 +102,10 @@ public class EnvVariables {
         this.ADMIN_TG_ID = Long.parseLong(ADMIN_TG_ID);
         this.APPLICATION_SERVER = APPLICATION_SERVER;
         this.JWT_SECRET_KEY = JWT_SECRET_KEY;
+        this.JWT_RETIRED_SECRET_KEYS = Arrays.stream(JWT_RETIRED_SECRET_KEYS.split(","))
+                                             .map(String::trim)
+                                             .filter(key -> !key.isEmpty())
+                                             .toList();
         // email
         this.EMAIL_HOST = EMAIL_HOST;
         this.EMAIL_PORT = Integer.parseInt(EMAIL_PORT);
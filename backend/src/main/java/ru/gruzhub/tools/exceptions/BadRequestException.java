@@ -0,0 +1,13 @@
+package ru.gruzhub.tools.exceptions;
+
+import org.springframework.http.HttpStatus;
+
+public class BadRequestException extends DomainException {
+    public BadRequestException() {
+        super(HttpStatus.BAD_REQUEST);
+    }
+
+    public BadRequestException(String reason) {
+        super(HttpStatus.BAD_REQUEST, reason);
+    }
+}
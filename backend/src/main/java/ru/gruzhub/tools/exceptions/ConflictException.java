@@ -0,0 +1,13 @@
+package ru.gruzhub.tools.exceptions;
+
+import org.springframework.http.HttpStatus;
+
+public class ConflictException extends DomainException {
+    public ConflictException() {
+        super(HttpStatus.CONFLICT);
+    }
+
+    public ConflictException(String reason) {
+        super(HttpStatus.CONFLICT, reason);
+    }
+}
@@ -0,0 +1,24 @@
+package ru.gruzhub.tools.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Expected outcome of a request (no access, invalid input, missing entity).
+ * It has no stack trace, so throwing it is cheap, and it is not reported to Sentry.
+ * Genuine errors must use other exceptions to keep their traces.
+ */
+public class DomainException extends ResponseStatusException {
+    public DomainException(HttpStatus status) {
+        super(status);
+    }
+
+    public DomainException(HttpStatus status, String reason) {
+        super(status, reason);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,31 @@
+package ru.gruzhub.tools.exceptions;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Maps {@link DomainException} to a response with the same body as the default error page.
+ */
+@RestControllerAdvice
+public class DomainExceptionHandler {
+    @ExceptionHandler(DomainException.class)
+    public ResponseEntity<Map<String, Object>> handleDomainException(DomainException exception,
+                                                                     HttpServletRequest request) {
+        HttpStatus status = HttpStatus.valueOf(exception.getStatusCode().value());
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", new Date());
+        body.put("status", status.value());
+        body.put("error", status.getReasonPhrase());
+        body.put("message", exception.getReason() != null ? exception.getReason() : "");
+        body.put("path", request.getRequestURI());
+
+        return ResponseEntity.status(status).headers(exception.getHeaders()).body(body);
+    }
+}
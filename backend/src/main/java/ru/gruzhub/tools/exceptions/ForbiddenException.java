@@ -0,0 +1,13 @@
+package ru.gruzhub.tools.exceptions;
+
+import org.springframework.http.HttpStatus;
+
+public class ForbiddenException extends DomainException {
+    public ForbiddenException() {
+        super(HttpStatus.FORBIDDEN);
+    }
+
+    public ForbiddenException(String reason) {
+        super(HttpStatus.FORBIDDEN, reason);
+    }
+}
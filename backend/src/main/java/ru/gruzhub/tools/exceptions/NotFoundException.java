@@ -0,0 +1,13 @@
+package ru.gruzhub.tools.exceptions;
+
+import org.springframework.http.HttpStatus;
+
+public class NotFoundException extends DomainException {
+    public NotFoundException() {
+        super(HttpStatus.NOT_FOUND);
+    }
+
+    public NotFoundException(String reason) {
+        super(HttpStatus.NOT_FOUND, reason);
+    }
+}
@@ -0,0 +1,9 @@
+package ru.gruzhub.tools.exceptions;
+
+import org.springframework.http.HttpStatus;
+
+public class ServiceUnavailableException extends DomainException {
+    public ServiceUnavailableException(String reason) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, reason);
+    }
+}
@@ -0,0 +1,13 @@
+package ru.gruzhub.tools.exceptions;
+
+import org.springframework.http.HttpStatus;
+
+public class UnauthorizedException extends DomainException {
+    public UnauthorizedException() {
+        super(HttpStatus.UNAUTHORIZED);
+    }
+
+    public UnauthorizedException(String reason) {
+        super(HttpStatus.UNAUTHORIZED, reason);
+    }
+}
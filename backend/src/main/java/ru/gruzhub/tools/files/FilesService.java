@@ -11,6 +11,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
+import ru.gruzhub.tools.exceptions.BadRequestException;
 import ru.gruzhub.tools.files.enums.FileType;
 import ru.gruzhub.tools.files.models.File;
 import ru.gruzhub.users.models.User;
@@ -24,7 +25,7 @@ public class FilesService {
         final long MAX_SIZE_BYTES = 104_857_600; // 100 MB
 
         if (fileBytes.length > MAX_SIZE_BYTES) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Разрешены файлы до 100Мб");
+            throw new BadRequestException("Разрешены файлы до 100Мб");
         }
 
         String code =
@@ -100,9 +101,7 @@ public class FilesService {
             case "xml" -> "application/xml";
             case "csv" -> "application/csv";
             case "doc", "docx", "xls", "xlsx" -> "application/msword";
-            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                                                         "Unsupported file extension: " +
-                                                         extension);
+            default -> throw new BadRequestException("Unsupported file extension: " + extension);
         };
     }
 
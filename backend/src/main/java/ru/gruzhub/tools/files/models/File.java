@@ -1,5 +1,6 @@
 package ru.gruzhub.tools.files.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
@@ -14,6 +15,7 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 import ru.gruzhub.tools.files.enums.FileType;
 import ru.gruzhub.users.models.User;
 
@@ -24,6 +26,7 @@ import ru.gruzhub.users.models.User;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@BatchSize(size = 100)
 public class File {
     @Id
     @Column(name = "code",
@@ -62,7 +65,8 @@ public class File {
             nullable = false)
     private Long fileSizeBytes;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id",
                 nullable = false)
     private User user;
@@ -0,0 +1,68 @@
+package ru.gruzhub.tools.idempotency;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the whole body up front, so that it can be fingerprinted before the handler reads it.
+ */
+class CachedBodyRequestWrapper extends HttpServletRequestWrapper {
+    private final byte[] body;
+
+    CachedBodyRequestWrapper(HttpServletRequest request) throws IOException {
+        super(request);
+        this.body = request.getInputStream().readAllBytes();
+    }
+
+    byte[] getBody() {
+        return this.body;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        ByteArrayInputStream bodyStream = new ByteArrayInputStream(this.body);
+
+        return new ServletInputStream() {
+            @Override
+            public boolean isFinished() {
+                return bodyStream.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int read() {
+                return bodyStream.read();
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) {
+                return bodyStream.read(buffer, offset, length);
+            }
+        };
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        Charset charset = this.getCharacterEncoding() != null
+                          ? Charset.forName(this.getCharacterEncoding())
+                          : StandardCharsets.UTF_8;
+        return new BufferedReader(new InputStreamReader(this.getInputStream(), charset));
+    }
+}
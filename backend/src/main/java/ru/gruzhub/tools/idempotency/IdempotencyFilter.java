@@ -0,0 +1,60 @@
+package ru.gruzhub.tools.idempotency;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * Buffers responses of requests with an "Idempotency-Key" header, so that
+ * {@link IdempotencyInterceptor} can store them, and their bodies, so that it can fingerprint
+ * them. Multipart bodies are parsed by the container and are not buffered. Other requests are
+ * not touched.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getHeader(IdempotencyInterceptor.IDEMPOTENCY_KEY_HEADER) == null;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        ContentCachingResponseWrapper cachingResponse =
+            WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+        if (cachingResponse == null) {
+            cachingResponse = new ContentCachingResponseWrapper(response);
+        }
+
+        HttpServletRequest bodyCachingRequest = request;
+        if (WebUtils.getNativeRequest(request, CachedBodyRequestWrapper.class) == null &&
+            !isMultipart(request)) {
+            bodyCachingRequest = new CachedBodyRequestWrapper(request);
+        }
+
+        try {
+            filterChain.doFilter(bodyCachingRequest, cachingResponse);
+        } finally {
+            if (!this.isAsyncStarted(request)) {
+                cachingResponse.copyBodyToResponse();
+            }
+        }
+    }
+
+    private static boolean isMultipart(HttpServletRequest request) {
+        return request.getContentType() != null &&
+               request.getContentType().toLowerCase().startsWith("multipart/");
+    }
+}
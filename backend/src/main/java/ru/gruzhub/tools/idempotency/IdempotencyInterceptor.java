@@ -0,0 +1,167 @@
+package ru.gruzhub.tools.idempotency;
+
+import jakarta.annotation.Nullable;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+import ru.gruzhub.tools.exceptions.BadRequestException;
+import ru.gruzhub.tools.exceptions.ConflictException;
+import ru.gruzhub.tools.idempotency.models.IdempotentResponse;
+import ru.gruzhub.users.auth.AuthorizedUserArgumentResolver;
+import ru.gruzhub.users.models.User;
+
+/**
+ * Applies {@link Idempotent} to handlers. The first successful response for a key is stored
+ * and replayed to retries without running the handler again. Keys are scoped by user and
+ * endpoint, failed responses are not stored, so the client can retry them.
+ * <p>
+ * A key is bound to a fingerprint of the request body, a retry with another body is rejected.
+ * Anonymous callers share one scope, so for them a request without a fingerprinted body is
+ * not deduplicated at all.
+ */
+@Component
+@RequiredArgsConstructor
+public class IdempotencyInterceptor implements HandlerInterceptor {
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final String STORE_KEY_ATTRIBUTE =
+        IdempotencyInterceptor.class.getName() + ".STORE_KEY";
+    private static final String REQUEST_HASH_ATTRIBUTE =
+        IdempotencyInterceptor.class.getName() + ".REQUEST_HASH";
+
+    private final IdempotencyStore idempotencyStore;
+    private final AuthorizedUserArgumentResolver authorizedUserResolver;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request,
+                             HttpServletResponse response,
+                             Object handler) throws IOException {
+        if (!(handler instanceof HandlerMethod handlerMethod) ||
+            !handlerMethod.hasMethodAnnotation(Idempotent.class)) {
+            return true;
+        }
+        Idempotent idempotent = handlerMethod.getMethodAnnotation(Idempotent.class);
+
+        String idempotencyKey = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return true;
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Слишком длинный Idempotency-Key");
+        }
+
+        // an invalid token is rejected here, before any stored response is looked up
+        User user = this.authorizedUserResolver.getAuthorizedUser(request);
+        String requestHash = getRequestHash(request);
+        if (user == null && (!idempotent.anonymous() || requestHash == null)) {
+            return true;
+        }
+
+        String storeKey = getStoreKey(request, user, idempotencyKey);
+        if (!this.idempotencyStore.tryStart(storeKey)) {
+            throw new ConflictException("Запрос уже выполняется");
+        }
+
+        IdempotentResponse storedResponse;
+        try {
+            storedResponse = this.idempotencyStore.find(storeKey);
+        } catch (RuntimeException e) {
+            this.idempotencyStore.finish(storeKey);
+            throw e;
+        }
+
+        if (storedResponse != null) {
+            this.idempotencyStore.finish(storeKey);
+            if (storedResponse.getRequestHash() != null &&
+                !storedResponse.getRequestHash().equals(requestHash)) {
+                throw new ConflictException("Idempotency-Key уже использован " +
+                                            "с другим запросом");
+            }
+            replay(response, storedResponse);
+            return false;
+        }
+
+        request.setAttribute(STORE_KEY_ATTRIBUTE, storeKey);
+        request.setAttribute(REQUEST_HASH_ATTRIBUTE, requestHash);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request,
+                                HttpServletResponse response,
+                                Object handler,
+                                Exception ex) {
+        if (!(request.getAttribute(STORE_KEY_ATTRIBUTE) instanceof String storeKey)) {
+            return;
+        }
+
+        try {
+            ContentCachingResponseWrapper cachingResponse =
+                WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+            if (ex != null || cachingResponse == null ||
+                !HttpStatus.valueOf(cachingResponse.getStatus()).is2xxSuccessful()) {
+                return;
+            }
+
+            IdempotentResponse storedResponse = new IdempotentResponse();
+            storedResponse.setIdempotencyKey(storeKey);
+            storedResponse.setStatus(cachingResponse.getStatus());
+            storedResponse.setContentType(cachingResponse.getContentType());
+            storedResponse.setBody(cachingResponse.getContentAsByteArray());
+            storedResponse.setRequestHash((String) request.getAttribute(REQUEST_HASH_ATTRIBUTE));
+            storedResponse.setCreatedAt(System.currentTimeMillis());
+            this.idempotencyStore.save(storedResponse);
+        } finally {
+            this.idempotencyStore.finish(storeKey);
+        }
+    }
+
+    private static String getStoreKey(HttpServletRequest request,
+                                      @Nullable User user,
+                                      String idempotencyKey) {
+        String userKey = user != null ? String.valueOf(user.getId()) : "anonymous";
+        return userKey + ":" + request.getMethod() + ":" + request.getRequestURI() + ":" +
+               idempotencyKey;
+    }
+
+    /**
+     * @return null when the body is not buffered by {@link IdempotencyFilter}
+     */
+    @Nullable
+    private static String getRequestHash(HttpServletRequest request) {
+        CachedBodyRequestWrapper bodyCachingRequest =
+            WebUtils.getNativeRequest(request, CachedBodyRequestWrapper.class);
+        if (bodyCachingRequest == null) {
+            return null;
+        }
+
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(bodyCachingRequest.getBody());
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void replay(HttpServletResponse response, IdempotentResponse storedResponse)
+        throws IOException {
+        response.setStatus(storedResponse.getStatus());
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (storedResponse.getContentType() != null) {
+            response.setContentType(storedResponse.getContentType());
+        }
+        response.getOutputStream().write(storedResponse.getBody());
+    }
+}
@@ -0,0 +1,105 @@
+package ru.gruzhub.tools.idempotency;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import io.sentry.Sentry;
+import jakarta.annotation.PreDestroy;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.gruzhub.tools.concurrent.BackgroundScheduler;
+import ru.gruzhub.tools.idempotency.models.IdempotentResponse;
+
+/**
+ * Stored responses of idempotent requests. Recent responses are served from memory,
+ * older ones from the "idempotent_responses" table until they expire. Keys of requests that
+ * are being executed right now are kept in memory, so a retry cannot run in parallel
+ * with the original request.
+ */
+@Component
+public class IdempotencyStore {
+    private static final String CACHE_NAME = "idempotent_responses";
+    private static final long CLEANUP_INTERVAL_MS = 60 * 60 * 1000;
+
+    private final IdempotentResponseRepository idempotentResponseRepository;
+    private final long ttlMs;
+    private final Cache<String, IdempotentResponse> responses;
+    private final Set<String> inFlightKeys = ConcurrentHashMap.newKeySet();
+    private final BackgroundScheduler cleanupScheduler =
+        new BackgroundScheduler("idempotency-cleanup");
+
+    public IdempotencyStore(IdempotentResponseRepository idempotentResponseRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.idempotency_ttl_hours:24}") long ttlHours,
+                            @Value("${app.idempotency_cache_max_size:10000}") long maxSize) {
+        this.idempotentResponseRepository = idempotentResponseRepository;
+        this.ttlMs = TimeUnit.HOURS.toMillis(ttlHours);
+        this.responses = CacheBuilder.newBuilder()
+                                     .maximumSize(maxSize)
+                                     .expireAfterWrite(ttlHours, TimeUnit.HOURS)
+                                     .recordStats()
+                                     .build();
+        GuavaCacheMetrics.monitor(meterRegistry, this.responses, CACHE_NAME);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        this.cleanupScheduler.repeat(this::deleteExpiredResponses, 0, CLEANUP_INTERVAL_MS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.cleanupScheduler.shutdown();
+    }
+
+    /**
+     * @return false when a request with the same key is being executed
+     */
+    public boolean tryStart(String key) {
+        return this.inFlightKeys.add(key);
+    }
+
+    public void finish(String key) {
+        this.inFlightKeys.remove(key);
+    }
+
+    public IdempotentResponse find(String key) {
+        IdempotentResponse response = this.responses.getIfPresent(key);
+        if (response != null) {
+            return response;
+        }
+
+        long expiredBefore = System.currentTimeMillis() - this.ttlMs;
+        response = this.idempotentResponseRepository.findById(key)
+                                                    .filter(stored -> stored.getCreatedAt() >=
+                                                                      expiredBefore)
+                                                    .orElse(null);
+        if (response != null) {
+            this.responses.put(key, response);
+        }
+
+        return response;
+    }
+
+    public void save(IdempotentResponse response) {
+        this.responses.put(response.getIdempotencyKey(), response);
+
+        try {
+            this.idempotentResponseRepository.save(response);
+        } catch (Exception e) {
+            // the response is already sent, the cached copy still covers quick retries
+            Sentry.captureException(e);
+        }
+    }
+
+    public void deleteExpiredResponses() {
+        this.idempotentResponseRepository.deleteCreatedBefore(System.currentTimeMillis() -
+                                                             this.ttlMs);
+    }
+}
@@ -0,0 +1,20 @@
+package ru.gruzhub.tools.idempotency;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Requests to the annotated handler with an "Idempotency-Key" header are executed once,
+ * retries with the same key get the stored response. See {@link IdempotencyInterceptor}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Idempotent {
+    /**
+     * False when the responses to anonymous callers carry credentials, such requests are then
+     * executed every time instead of being stored.
+     */
+    boolean anonymous() default true;
+}
@@ -0,0 +1,16 @@
+package ru.gruzhub.tools.idempotency;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.gruzhub.tools.idempotency.models.IdempotentResponse;
+
+@Repository
+public interface IdempotentResponseRepository extends JpaRepository<IdempotentResponse, String> {
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotentResponse r WHERE r.createdAt < :time")
+    int deleteCreatedBefore(Long time);
+}
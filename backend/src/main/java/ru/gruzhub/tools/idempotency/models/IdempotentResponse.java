@@ -0,0 +1,47 @@
+package ru.gruzhub.tools.idempotency.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Table(name = "idempotent_responses")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotentResponse {
+    @Id
+    @Column(name = "idempotency_key",
+            nullable = false,
+            unique = true,
+            columnDefinition = "TEXT")
+    private String idempotencyKey;
+
+    @Column(name = "status",
+            nullable = false)
+    private Integer status;
+
+    @Column(name = "content_type",
+            columnDefinition = "TEXT")
+    private String contentType;
+
+    @Column(name = "body",
+            nullable = false)
+    private byte[] body;
+
+    @Column(name = "request_hash",
+            columnDefinition = "TEXT")
+    private String requestHash;
+
+    @Column(name = "created_at",
+            nullable = false)
+    private Long createdAt;
+}
@@ -0,0 +1,71 @@
+package ru.gruzhub.tools.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.HandlerInterceptor;
+import ru.gruzhub.tools.env.EnvVariables;
+import ru.gruzhub.tools.env.enums.AppMode;
+import ru.gruzhub.users.auth.AuthorizedUserArgumentResolver;
+import ru.gruzhub.users.models.User;
+
+/**
+ * Applies {@link RateLimited} to handlers. Authorized requests are limited per user,
+ * anonymous ones per client IP. Limits are not applied in the test mode.
+ * <p>
+ * The client IP is the remote address of the request. Behind nginx it is taken from X-Real-IP
+ * by the server itself (server.forward-headers-strategy=native), only for requests of the
+ * proxies in server.tomcat.remoteip.internal-proxies, so clients can't spoof it.
+ */
+@Component
+@RequiredArgsConstructor
+public class RateLimitInterceptor implements HandlerInterceptor {
+    private final RateLimiter rateLimiter;
+    private final AuthorizedUserArgumentResolver authorizedUserResolver;
+    private final EnvVariables envVariables;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request,
+                             HttpServletResponse response,
+                             Object handler) throws IOException {
+        if (!(handler instanceof HandlerMethod handlerMethod) ||
+            this.envVariables.APP_MODE == AppMode.TEST) {
+            return true;
+        }
+
+        RateLimited rateLimited = handlerMethod.getMethodAnnotation(RateLimited.class);
+        if (rateLimited == null) {
+            return true;
+        }
+
+        long retryAfterSeconds =
+            this.rateLimiter.tryAcquire(rateLimited.value(), this.getClientKey(request));
+        if (retryAfterSeconds == 0) {
+            return true;
+        }
+
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(),
+                           "Слишком много запросов, попробуйте позже");
+        return false;
+    }
+
+    private String getClientKey(HttpServletRequest request) {
+        try {
+            User user = this.authorizedUserResolver.getAuthorizedUser(request);
+            if (user != null) {
+                return "user:" + user.getId();
+            }
+        } catch (ResponseStatusException e) {
+            // an invalid token is rejected by the handler itself, sign-in ignores it
+        }
+
+        return "ip:" + request.getRemoteAddr();
+    }
+}
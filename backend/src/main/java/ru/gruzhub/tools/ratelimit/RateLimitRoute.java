@@ -0,0 +1,20 @@
+package ru.gruzhub.tools.ratelimit;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Rate limited routes with their default limits. Every limit can be overridden with
+ * app.rate_limit_{property}_capacity and app.rate_limit_{property}_per_minute.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum RateLimitRoute {
+    SIGN_IN("sign_in", 10, 10),
+    CREATE_ORDER("create_order", 20, 10),
+    SEND_FILE("send_file", 30, 30);
+
+    private final String property;
+    private final long defaultCapacity;
+    private final long defaultPerMinute;
+}
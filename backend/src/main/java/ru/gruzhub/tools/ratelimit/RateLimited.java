@@ -0,0 +1,16 @@
+package ru.gruzhub.tools.ratelimit;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Limits requests to the annotated handler per authorized user, or per client IP
+ * for anonymous requests. See {@link RateLimitInterceptor}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimited {
+    RateLimitRoute value();
+}
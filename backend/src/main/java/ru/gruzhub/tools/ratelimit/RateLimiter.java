@@ -0,0 +1,82 @@
+package ru.gruzhub.tools.ratelimit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Token buckets per route and key. Buckets live in a segmented Guava cache and are dropped
+ * after app.rate_limit_idle_minutes without requests, a dropped bucket is simply full again.
+ */
+@Component
+public class RateLimiter {
+    private final Map<RateLimitRoute, Limit> limits = new EnumMap<>(RateLimitRoute.class);
+    private final Map<RateLimitRoute, Counter> rejections = new EnumMap<>(RateLimitRoute.class);
+    private final Cache<BucketKey, TokenBucket> buckets;
+
+    public RateLimiter(Environment env, MeterRegistry meterRegistry) {
+        for (RateLimitRoute route : RateLimitRoute.values()) {
+            String prefix = "app.rate_limit_" + route.getProperty();
+            long capacity =
+                env.getProperty(prefix + "_capacity", Long.class, route.getDefaultCapacity());
+            long perMinute =
+                env.getProperty(prefix + "_per_minute", Long.class, route.getDefaultPerMinute());
+
+            this.limits.put(route, new Limit(capacity, perMinute));
+            this.rejections.put(route,
+                                Counter.builder("rate_limit.rejected")
+                                       .tag("route", route.getProperty())
+                                       .register(meterRegistry));
+        }
+
+        this.buckets = CacheBuilder.newBuilder()
+                                   .concurrencyLevel(Runtime.getRuntime().availableProcessors())
+                                   .maximumSize(env.getProperty("app.rate_limit_max_keys",
+                                                                Long.class,
+                                                                100_000L))
+                                   .expireAfterAccess(env.getProperty("app.rate_limit_idle_minutes",
+                                                                      Long.class,
+                                                                      10L),
+                                                      TimeUnit.MINUTES)
+                                   .build();
+    }
+
+    /**
+     * @return 0 when the request is allowed, otherwise seconds to wait before retrying
+     */
+    public long tryAcquire(RateLimitRoute route, String key) {
+        long now = System.nanoTime();
+        Limit limit = this.limits.get(route);
+
+        TokenBucket bucket;
+        try {
+            bucket = this.buckets.get(new BucketKey(route, key),
+                                      () -> new TokenBucket(limit.capacity(),
+                                                            limit.perMinute(),
+                                                            now));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+
+        long waitNanos = bucket.tryAcquire(now);
+        if (waitNanos == 0) {
+            return 0;
+        }
+
+        this.rejections.get(route).increment();
+        return TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1;
+    }
+
+    private record Limit(long capacity, long perMinute) {
+    }
+
+    private record BucketKey(RateLimitRoute route, String key) {
+    }
+}
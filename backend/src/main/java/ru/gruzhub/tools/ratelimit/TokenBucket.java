@@ -0,0 +1,43 @@
+package ru.gruzhub.tools.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free token bucket, the state is replaced with compare-and-set.
+ */
+public class TokenBucket {
+    private final long capacity;
+    private final double tokensPerNano;
+    private final AtomicReference<State> state;
+
+    public TokenBucket(long capacity, long tokensPerMinute, long nowNanos) {
+        this.capacity = capacity;
+        this.tokensPerNano = (double) tokensPerMinute / TimeUnit.MINUTES.toNanos(1);
+        this.state = new AtomicReference<>(new State(capacity, nowNanos));
+    }
+
+    /**
+     * @return 0 when a token was taken, otherwise nanoseconds until the next token is available
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            State current = this.state.get();
+            long elapsedNanos = Math.max(0, nowNanos - current.updatedAtNanos());
+            double tokens =
+                Math.min(this.capacity, current.tokens() + elapsedNanos * this.tokensPerNano);
+
+            if (tokens < 1) {
+                return (long) Math.ceil((1 - tokens) / this.tokensPerNano);
+            }
+
+            State next = new State(tokens - 1, Math.max(nowNanos, current.updatedAtNanos()));
+            if (this.state.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    private record State(double tokens, long updatedAtNanos) {
+    }
+}
@@ -0,0 +1,27 @@
+package ru.gruzhub.tools.transactions;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public final class TransactionCallbacks {
+    private TransactionCallbacks() {
+    }
+
+    /**
+     * Runs the action once the current transaction is committed, or right away without one.
+     * For caches and notifications, which must not show changes that can still roll back.
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -1,38 +1,92 @@
 package ru.gruzhub.users;
 
+import jakarta.persistence.QueryHint;
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.EntityGraph.EntityGraphType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.gruzhub.users.enums.UserRole;
 import ru.gruzhub.users.models.User;
+import ru.gruzhub.users.subscriptions.dto.TelegramSubscription;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+    String QUERY_TIMEOUT_HINT = "jakarta.persistence.query.timeout";
+    // admin lists are unfiltered, they must not hold a connection for long
+    String ADMIN_QUERY_TIMEOUT_MS = "30000";
+
     Optional<User> findByEmailAndRole(String email, UserRole role);
 
     Optional<User> findByEmail(String email);
 
     Optional<User> findByPhoneAndRole(String phone, UserRole role);
 
-    @Query("SELECT u FROM User u WHERE u.role = :role AND u.address" + ".region.id = :regionId")
-    List<User> findMastersInRegion(UserRole role, Long regionId);
+    @EntityGraph(value = User.WITH_TELEGRAM_CHATS_GRAPH, type = EntityGraphType.LOAD)
+    Optional<User> findWithTelegramChatsById(Long id);
+
+    @Query("SELECT new ru.gruzhub.users.subscriptions.dto.TelegramSubscription(" +
+           "u.id, u.role, r.id, c.telegramChatId) " +
+           "FROM User u JOIN u.connectedTelegramChats c " +
+           "LEFT JOIN u.address a LEFT JOIN a.region r " +
+           "WHERE u.role IN :roles")
+    List<TelegramSubscription> findTelegramSubscriptions(List<UserRole> roles);
 
     List<User> findByIdIn(List<Long> ids);
 
+    @EntityGraph(value = User.WITH_TELEGRAM_CHATS_GRAPH, type = EntityGraphType.LOAD)
     List<User> findByRole(UserRole role);
 
+    @QueryHints(@QueryHint(name = QUERY_TIMEOUT_HINT,
+                           value = ADMIN_QUERY_TIMEOUT_MS))
+    @EntityGraph(value = User.WITH_TELEGRAM_CHATS_GRAPH, type = EntityGraphType.LOAD)
     @Query("SELECT u FROM User u WHERE u.role IN :roles ORDER BY u.id DESC")
     List<User> findUsersByRoles(List<UserRole> roles);
 
+    @QueryHints(@QueryHint(name = QUERY_TIMEOUT_HINT,
+                           value = ADMIN_QUERY_TIMEOUT_MS))
+    @EntityGraph(value = User.WITH_TELEGRAM_CHATS_GRAPH, type = EntityGraphType.LOAD)
     @Query("SELECT u FROM User u WHERE u.address.region.id IN :regionsIds ORDER BY u.id DESC")
     List<User> findUsersByRegions(List<Long> regionsIds);
 
+    @QueryHints(@QueryHint(name = QUERY_TIMEOUT_HINT,
+                           value = ADMIN_QUERY_TIMEOUT_MS))
+    @EntityGraph(value = User.WITH_TELEGRAM_CHATS_GRAPH, type = EntityGraphType.LOAD)
     @Query("SELECT u FROM User u WHERE u.role IN :roles AND u.address.region.id IN :regionsIds " +
            "ORDER BY u.id DESC")
     List<User> findUsersByRolesAndRegions(List<UserRole> roles, List<Long> regionsIds);
 
+    @QueryHints(@QueryHint(name = QUERY_TIMEOUT_HINT,
+                           value = ADMIN_QUERY_TIMEOUT_MS))
+    @EntityGraph(value = User.WITH_TELEGRAM_CHATS_GRAPH, type = EntityGraphType.LOAD)
     @Query("SELECT u FROM User u ORDER BY u.id DESC")
     List<User> findAllUsers();
+
+    /**
+     * @return 0 when the user does not exist or has less than the amount on the balance
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.balance = u.balance - :amount " +
+           "WHERE u.id = :userId AND u.balance >= :amount")
+    int debitBalance(Long userId, BigDecimal amount);
+
+    @Modifying
+    @Query("UPDATE User u SET u.balance = u.balance + :amount WHERE u.id = :userId")
+    int creditBalance(Long userId, BigDecimal amount);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.ordersChangeVersion = u.ordersChangeVersion + 1 " +
+           "WHERE u.id IN :usersIds")
+    int incrementOrdersChangeVersions(Collection<Long> usersIds);
+
+    @Query("SELECT u.ordersChangeVersion FROM User u WHERE u.id = :userId")
+    Optional<Long> findOrdersChangeVersionById(Long userId);
 }
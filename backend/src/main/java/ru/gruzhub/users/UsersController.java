@@ -1,17 +1,24 @@
 package ru.gruzhub.users;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import lombok.RequiredArgsConstructor;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import ru.gruzhub.tools.admin.AdminBulkhead;
+import ru.gruzhub.tools.ratelimit.RateLimitRoute;
+import ru.gruzhub.tools.ratelimit.RateLimited;
+import ru.gruzhub.users.auth.AuthorizedUser;
+import ru.gruzhub.users.auth.OrderLinksService;
+import ru.gruzhub.users.auth.dto.OrderLinkSignInRequestDto;
+import ru.gruzhub.users.balance.dto.BalanceOperationsPage;
+import ru.gruzhub.users.balance.models.BalanceOperation;
 import ru.gruzhub.users.dto.CreateUserRequestDto;
 import ru.gruzhub.users.dto.GetUsersRequestDto;
 import ru.gruzhub.users.dto.SignInUserRequestDto;
@@ -25,7 +32,11 @@ import ru.gruzhub.users.models.User;
 @RequestMapping("/users")
 @RequiredArgsConstructor
 public class UsersController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final UsersService usersService;
+    private final OrderLinksService orderLinksService;
+    private final AdminBulkhead adminBulkhead;
 
     @PostMapping("/signup")
     public void signUp(@RequestBody CreateUserRequestDto userRequest) {
@@ -33,14 +44,25 @@ public class UsersController {
     }
 
     @PostMapping("/signin")
+    @RateLimited(RateLimitRoute.SIGN_IN)
     public SignInUserResponseDto signIn(@RequestBody SignInUserRequestDto signInRequest) {
         return this.usersService.signIn(signInRequest);
     }
 
+    /**
+     * Exchanges the token of a "Посмотреть" link from Telegram for a session, once.
+     */
+    @PostMapping("/order-link-signin")
+    @RateLimited(RateLimitRoute.SIGN_IN)
+    public SignInUserResponseDto signInByOrderLink(
+        @RequestBody OrderLinkSignInRequestDto signInRequest) {
+        return this.orderLinksService.signInByOrderLink(signInRequest.getToken());
+    }
+
     @PostMapping("/update")
     public void update(@RequestBody UpdateUserRequestDto updateRequest,
-                       @RequestHeader(HttpHeaders.AUTHORIZATION) String authorization) {
-        this.usersService.updateRequest(updateRequest, authorization);
+                       @AuthorizedUser User user) {
+        this.usersService.update(user, updateRequest);
     }
 
     @GetMapping("/reset-code")
@@ -56,45 +78,60 @@ public class UsersController {
         this.usersService.resetPassword(email, code, password, UserRole.valueOf(role));
     }
 
+    /**
+     * A page of the balance statement. The "X-Next-Cursor" header holds the beforeId of the
+     * next page, there is no header on the last page.
+     */
+    @GetMapping("/balance-operations")
+    public ResponseEntity<List<BalanceOperation>> getBalanceOperations(
+        @AuthorizedUser User user,
+        @RequestParam(required = false) Long userId,
+        @RequestParam(required = false) Long beforeId,
+        @RequestParam(required = false) Integer limit) {
+        BalanceOperationsPage page =
+            this.usersService.getBalanceOperations(user, userId, beforeId, limit);
+
+        if (page.nextBeforeId() == null) {
+            return ResponseEntity.ok(page.operations());
+        }
+
+        return ResponseEntity.ok()
+                             .header(NEXT_CURSOR_HEADER, page.nextBeforeId().toString())
+                             .body(page.operations());
+    }
+
     @GetMapping("/{userId}")
-    public UserResponseDto getUser(@PathVariable Long userId,
-                                   @RequestHeader(HttpHeaders.AUTHORIZATION) String authorization) {
-        return this.usersService.getUserByIdWithAuth(authorization, userId);
+    public UserResponseDto getUser(@PathVariable Long userId, @AuthorizedUser User user) {
+        return this.usersService.getUserByIdWithAuth(user, userId);
     }
 
     @GetMapping("/get-access/{userId}")
     public ResponseEntity<SignInUserResponseDto> getUserAccess(@PathVariable Long userId,
-                                                               @RequestHeader(HttpHeaders.AUTHORIZATION)
-                                                               String authorization) {
-        SignInUserResponseDto response = this.usersService.getUserAccess(authorization, userId);
+                                                               @AuthorizedUser User user) {
+        SignInUserResponseDto response = this.usersService.getUserAccess(user, userId);
         return ResponseEntity.ok(response);
     }
 
     @GetMapping("/connect-telegram-via-webapp")
-    public void connectTelegramViaWebapp(
-        @RequestHeader(HttpHeaders.AUTHORIZATION) String authorization, @RequestParam Long tgId) {
-        this.usersService.connectTelegramViaWebApp(authorization, tgId);
-
+    public void connectTelegramViaWebapp(@AuthorizedUser User user, @RequestParam Long tgId) {
+        this.usersService.connectTelegramViaWebApp(user, tgId);
     }
 
     @PostMapping("/users")
-    public List<UserResponseDto> getUsers(@RequestBody GetUsersRequestDto getUsersRequest,
-                                          @RequestHeader(HttpHeaders.AUTHORIZATION)
-                                          String authorization) {
-        return this.usersService.getUsers(authorization, getUsersRequest);
+    public CompletableFuture<List<UserResponseDto>> getUsers(
+        @RequestBody GetUsersRequestDto getUsersRequest,
+        @AuthorizedUser User user) {
+        this.usersService.validateAuthRole(user, List.of(UserRole.ADMIN));
+        return this.adminBulkhead.submit(() -> this.usersService.getUsers(user, getUsersRequest));
     }
 
     @GetMapping("/connect-chat")
-    public void connectChat(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
-                            @RequestParam String chatUuid) {
-        User user = this.usersService.getUserFromToken(authorization);
+    public void connectChat(@AuthorizedUser User user, @RequestParam String chatUuid) {
         this.usersService.connectTelegramChat(user, chatUuid);
     }
 
     @GetMapping("/disconnect-chat")
-    public void disconnectChat(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
-                               @RequestParam String chatUuid) {
-        User user = this.usersService.getUserFromToken(authorization);
+    public void disconnectChat(@AuthorizedUser User user, @RequestParam String chatUuid) {
         this.usersService.disconnectTelegramChat(user, chatUuid);
     }
 }
@@ -1,6 +1,7 @@
 package ru.gruzhub.users;
 
 import io.jsonwebtoken.Claims;
+import jakarta.annotation.Nullable;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.List;
@@ -8,10 +9,10 @@ import java.util.Objects;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
-import org.springframework.http.HttpStatus;
-import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.web.server.ResponseStatusException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.gruzhub.address.AddressesService;
 import ru.gruzhub.address.RegionsService;
 import ru.gruzhub.address.models.Address;
@@ -23,21 +24,38 @@ import ru.gruzhub.telegram.services.TelegramSenderService;
 import ru.gruzhub.tools.JwtTokenUtil;
 import ru.gruzhub.tools.env.EnvVariables;
 import ru.gruzhub.tools.env.enums.AppMode;
+import ru.gruzhub.tools.exceptions.BadRequestException;
+import ru.gruzhub.tools.exceptions.ForbiddenException;
+import ru.gruzhub.tools.exceptions.NotFoundException;
+import ru.gruzhub.tools.exceptions.UnauthorizedException;
 import ru.gruzhub.tools.mail.MailService;
+import ru.gruzhub.tools.transactions.TransactionCallbacks;
+import ru.gruzhub.users.auth.AuthorizedUsersCache;
+import ru.gruzhub.users.auth.PasswordHasher;
+import ru.gruzhub.users.balance.BalanceOperationRepository;
+import ru.gruzhub.users.balance.dto.BalanceOperationsPage;
+import ru.gruzhub.users.balance.enums.BalanceOperationType;
+import ru.gruzhub.users.balance.models.BalanceOperation;
 import ru.gruzhub.users.dto.CreateUserRequestDto;
 import ru.gruzhub.users.dto.GetUsersRequestDto;
 import ru.gruzhub.users.dto.SignInUserRequestDto;
 import ru.gruzhub.users.dto.SignInUserResponseDto;
 import ru.gruzhub.users.dto.UpdateUserRequestDto;
+import ru.gruzhub.users.dto.UserInfoChangeDto;
 import ru.gruzhub.users.dto.UserResponseDto;
 import ru.gruzhub.users.enums.UserRole;
 import ru.gruzhub.users.models.User;
 import ru.gruzhub.users.models.UserInfoChange;
+import ru.gruzhub.users.subscriptions.TelegramSubscriptionsIndex;
 
 @Service
 @RequiredArgsConstructor
 public class UsersService {
+    private static final int DEFAULT_BALANCE_OPERATIONS_LIMIT = 50;
+    private static final int MAX_BALANCE_OPERATIONS_LIMIT = 200;
+
     private final UserRepository userRepository;
+    private final BalanceOperationRepository balanceOperationRepository;
     private final UserInfoChangeRepository userInfoChangeRepository;
     private final AddressesService addressesService;
     private final TelegramChatService telegramChatService;
@@ -45,22 +63,28 @@ public class UsersService {
     private final MailService mailService;
     private final RegionsService regionsService;
     private final TelegramOauthService telegramOauthService;
+    private final AuthorizedUsersCache authorizedUsersCache;
+    private final PasswordHasher passwordHasher;
+    private final TransactionTemplate transactionTemplate;
+    private final TelegramSubscriptionsIndex telegramSubscriptionsIndex;
 
     private final JwtTokenUtil jwtTokenUtil;
     private final EnvVariables envVariables;
 
+    /**
+     * The password is hashed before the transaction, so that no connection is held while
+     * BCrypt waits for its pool.
+     */
     public void signUp(CreateUserRequestDto signupRequest) {
         if (this.isUserExist(signupRequest.getEmail(),
                              signupRequest.getPhone(),
                              signupRequest.getRole())) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                                              "Почта или номер уже зарегистрирована");
+            throw new BadRequestException("Почта или номер уже зарегистрирована");
         }
 
         if (signupRequest.getRole() == UserRole.ADMIN ||
             signupRequest.getRole() == UserRole.DRIVER) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN,
-                                              "Недопустимая роль для регистрации");
+            throw new ForbiddenException("Недопустимая роль для регистрации");
         }
 
         User user = new User();
@@ -78,6 +102,10 @@ public class UsersService {
         user.setInn(signupRequest.getInn());
         user.setTripRadiusKm(signupRequest.getTripRadiusKm());
 
+        user.setPasswordHash(this.generatePasswordHash(signupRequest.getPassword()));
+        user.setPasswordCreationTime(Instant.now().toEpochMilli());
+        user.setRegistrationDate(Instant.now().toEpochMilli());
+
         Region region = this.regionsService.getRegionById(signupRequest.getRegionId());
         Address address = new Address(null,
                                       region,
@@ -85,25 +113,27 @@ public class UsersService {
                                       signupRequest.getStreet(),
                                       null,
                                       null);
-        address = this.addressesService.createAddress(address);
-        user.setAddress(address);
 
-        user.setRegistrationDate(Instant.now().toEpochMilli());
-        user.setPasswordHash(this.generatePasswordHash(signupRequest.getPassword()));
-        user.setPasswordCreationTime(Instant.now().toEpochMilli());
+        this.transactionTemplate.executeWithoutResult(status -> {
+            user.setAddress(this.addressesService.createAddress(address));
+            User savedUser = this.userRepository.save(user);
 
-        this.userRepository.save(user);
+            if (savedUser.getBalance().signum() != 0) {
+                this.addBalanceOperation(savedUser.getId(),
+                                         savedUser.getBalance(),
+                                         BalanceOperationType.START_BALANCE,
+                                         null);
+            }
+        });
     }
 
     public User createUser(String name, String phone, String email, UserRole role) {
         if (this.isUserExist(email, phone, role)) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                                              "Почта или номер уже зарегистрирована");
+            throw new BadRequestException("Почта или номер уже зарегистрирована");
         }
 
         if (role == UserRole.ADMIN) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN,
-                                              "Администратор не может быть зарегистрирован");
+            throw new ForbiddenException("Администратор не может быть зарегистрирован");
         }
 
         User user = new User();
@@ -119,8 +149,7 @@ public class UsersService {
 
     public SignInUserResponseDto signIn(SignInUserRequestDto signInRequest) {
         if (signInRequest.getEmail() == null && signInRequest.getPhone() == null) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                                              "Ни телефон, ни почта не указаны");
+            throw new BadRequestException("Ни телефон, ни почта не указаны");
         }
 
         User user = null;
@@ -139,39 +168,40 @@ public class UsersService {
         }
 
         if (user == null) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Пользователь не найден");
+            throw new NotFoundException("Пользователь не найден");
         }
 
         if (user.getPasswordHash() == null) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                                              "Для аккаунта не установлен пароль. Восстановите " +
-                                              "его для входа в аккаунт");
+            throw new BadRequestException("Для аккаунта не установлен пароль. Восстановите " +
+                                          "его для входа в аккаунт");
         }
 
-        if (!this.isPasswordValid(signInRequest.getPassword(), user.getPasswordHash())) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Пароль не подходит");
+        if (!this.passwordHasher.matches(signInRequest.getPassword(), user.getPasswordHash())) {
+            throw new UnauthorizedException("Пароль не подходит");
+        }
+
+        if (this.passwordHasher.needsRehash(user.getPasswordHash())) {
+            // password creation time is kept, so issued tokens stay valid
+            user.setPasswordHash(this.passwordHasher.hash(signInRequest.getPassword()));
+            this.userRepository.save(user);
+            this.authorizedUsersCache.evictUser(user.getId());
         }
 
         String accessToken = this.generateAccessToken(user);
         return new SignInUserResponseDto(user.getId(), accessToken);
     }
 
-    public void updateRequest(UpdateUserRequestDto updateRequest, String authorization) {
-        User authorizedUser = this.getUserModelFromToken(authorization);
-        this.update(authorizedUser, updateRequest);
-    }
-
     public void update(User authorizedUser, UpdateUserRequestDto updateRequest) {
         if (authorizedUser == null) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+            throw new ForbiddenException();
         }
 
         User user = this.userRepository.findById(updateRequest.getId())
-                                       .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+                                       .orElseThrow(NotFoundException::new);
 
         if (!authorizedUser.getId().equals(user.getId()) &&
             authorizedUser.getRole() != UserRole.ADMIN) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+            throw new ForbiddenException();
         }
 
         UserInfoChange userInfoChange = this.createUserInfoChange(user, updateRequest);
@@ -185,16 +215,14 @@ public class UsersService {
 
         if (updateRequest.getEmail() != null && !updateRequest.getEmail().equals(user.getEmail())) {
             if (this.isUserExist(updateRequest.getEmail(), null, user.getRole())) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                                                  "Такая почта уже зарегистрирована");
+                throw new BadRequestException("Такая почта уже зарегистрирована");
             }
             user.setEmail(updateRequest.getEmail());
         }
 
         if (updateRequest.getPhone() != null && !updateRequest.getPhone().equals(user.getPhone())) {
             if (this.isUserExist(null, updateRequest.getPhone(), user.getRole())) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                                                  "Такой телефон уже зарегистрирован");
+                throw new BadRequestException("Такой телефон уже зарегистрирован");
             }
             user.setPhone(updateRequest.getPhone());
         }
@@ -242,16 +270,19 @@ public class UsersService {
         }
 
         this.userRepository.save(user);
+        this.authorizedUsersCache.evictUser(user.getId());
+        if (updateRequest.getRegionId() != null) {
+            this.telegramSubscriptionsIndex.updateUser(this.getUserWithTelegramChats(user.getId()));
+        }
     }
 
-    public UserResponseDto getUserByIdWithAuth(String authorization, Long userId) {
-        User authorizedUser = this.getUserModelFromToken(authorization);
+    public UserResponseDto getUserByIdWithAuth(User authorizedUser, Long userId) {
         User user = this.userRepository.findById(userId)
-                                       .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+                                       .orElseThrow(NotFoundException::new);
 
         if (!authorizedUser.getId().equals(user.getId()) &&
             authorizedUser.getRole() != UserRole.ADMIN) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+            throw new ForbiddenException();
         }
 
         return new UserResponseDto(user);
@@ -261,6 +292,10 @@ public class UsersService {
         return this.userRepository.findById(userId).orElseThrow();
     }
 
+    public User getUserWithTelegramChats(Long userId) {
+        return this.userRepository.findWithTelegramChatsById(userId).orElseThrow();
+    }
+
     public User getUserByEmail(String email, UserRole role) {
         return this.userRepository.findByEmailAndRole(email, role).orElse(null);
     }
@@ -275,50 +310,118 @@ public class UsersService {
     }
 
     public User getUserModelFromToken(String token) {
+        if (token == null) {
+            throw new UnauthorizedException();
+        }
+
+        return this.authorizedUsersCache.getUser(token, this::loadUserFromToken);
+    }
+
+    private User loadUserFromToken(String token) {
         try {
             Claims claims = this.jwtTokenUtil.getClaimsFromToken(token);
+            if (!JwtTokenUtil.isSessionToken(claims)) {
+                throw new UnauthorizedException();
+            }
             Long userId = claims.get("id", Long.class);
             Long passwordCreationTime = claims.get("password_creation_time", Long.class);
 
-            User user = this.userRepository.findById(userId)
-                                           .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED));
+            // the user is cached and shared between requests, so it is loaded with its chats
+            User user = this.userRepository.findWithTelegramChatsById(userId)
+                                           .orElseThrow(UnauthorizedException::new);
 
             if (!Objects.equals(user.getPasswordCreationTime(), passwordCreationTime)) {
-                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+                throw new UnauthorizedException();
             }
 
             return user;
         } catch (Exception e) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+            throw new UnauthorizedException();
         }
     }
 
+    @Transactional
     public void increaseUserBalance(Long userId, BigDecimal amount) {
-        User user = this.userRepository.findById(userId)
-                                       .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        this.increaseUserBalance(userId, amount, BalanceOperationType.ADJUSTMENT, null);
+    }
 
-        user.setBalance(user.getBalance().add(amount));
-        this.userRepository.save(user);
+    @Transactional
+    public void increaseUserBalance(Long userId,
+                                    BigDecimal amount,
+                                    BalanceOperationType type,
+                                    @Nullable Long orderId) {
+        if (this.userRepository.creditBalance(userId, amount) == 0) {
+            throw new NotFoundException();
+        }
+
+        this.addBalanceOperation(userId, amount, type, orderId);
+        TransactionCallbacks.afterCommit(() -> this.authorizedUsersCache.evictUser(userId));
     }
 
+    @Transactional
     public void decreaseUserBalance(Long userId, BigDecimal amount) {
-        User user = this.userRepository.findById(userId)
-                                       .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        this.decreaseUserBalance(userId, amount, BalanceOperationType.ADJUSTMENT, null);
+    }
+
+    /**
+     * Debits by one conditional update, so concurrent debits cannot take the balance below
+     * zero or overwrite each other.
+     */
+    @Transactional
+    public void decreaseUserBalance(Long userId,
+                                    BigDecimal amount,
+                                    BalanceOperationType type,
+                                    @Nullable Long orderId) {
+        if (this.userRepository.debitBalance(userId, amount) == 0) {
+            if (!this.userRepository.existsById(userId)) {
+                throw new NotFoundException();
+            }
+            throw new BadRequestException("На балансе не хватает средств");
+        }
 
-        if (user.getBalance().subtract(amount).compareTo(BigDecimal.ZERO) >= 0) {
-            user.setBalance(user.getBalance().subtract(amount));
-            this.userRepository.save(user);
-        } else {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                                              "На балансе не хватает средств");
+        this.addBalanceOperation(userId, amount.negate(), type, orderId);
+        TransactionCallbacks.afterCommit(() -> this.authorizedUsersCache.evictUser(userId));
+    }
+
+    /**
+     * Operations of the user, newest first. Masters see their own operations, admins
+     * see the operations of any user.
+     *
+     * @param beforeId id of the last operation of the previous page, null for the first page
+     */
+    public BalanceOperationsPage getBalanceOperations(User authorizedUser,
+                                                      @Nullable Long userId,
+                                                      @Nullable Long beforeId,
+                                                      @Nullable Integer limit) {
+        this.validateAuthRole(authorizedUser, List.of(UserRole.MASTER, UserRole.ADMIN));
+
+        Long operationsUserId = userId != null ? userId : authorizedUser.getId();
+        if (!operationsUserId.equals(authorizedUser.getId()) &&
+            authorizedUser.getRole() != UserRole.ADMIN) {
+            throw new ForbiddenException();
         }
+
+        int pageSize = limit != null && limit > 0
+                       ? Math.min(limit, MAX_BALANCE_OPERATIONS_LIMIT)
+                       : DEFAULT_BALANCE_OPERATIONS_LIMIT;
+        PageRequest page = PageRequest.ofSize(pageSize);
+        List<BalanceOperation> operations =
+            beforeId == null
+            ? this.balanceOperationRepository.findByUserIdOrderByIdDesc(operationsUserId, page)
+            : this.balanceOperationRepository.findByUserIdAndIdLessThanOrderByIdDesc(
+                operationsUserId,
+                beforeId,
+                page);
+
+        Long nextBeforeId =
+            operations.size() < pageSize ? null : operations.get(operations.size() - 1).getId();
+        return new BalanceOperationsPage(operations, nextBeforeId);
     }
 
     public void sendResetCode(String email, UserRole role) {
         User user = this.userRepository.findByEmailAndRole(email, role)
-                                       .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
-                                                                                      "Пользователь не" +
-                                                                                      " найден"));
+                                       .orElseThrow(() -> new NotFoundException("Пользователь не" +
+                                                                                " найден"));
 
         user.setUserResetCode(UUID.randomUUID().toString());
         this.userRepository.save(user);
@@ -342,17 +445,16 @@ public class UsersService {
 
     public void resetPassword(String email, String code, String password, UserRole role) {
         User user = this.userRepository.findByEmailAndRole(email, role)
-                                       .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
-                                                                                      "Пользователь не" +
-                                                                                      " найден"));
+                                       .orElseThrow(() -> new NotFoundException("Пользователь не" +
+                                                                                " найден"));
 
         if (this.envVariables.APP_MODE != AppMode.TEST) {
             if (!code.equals(user.getUserResetCode())) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Код не подходит");
+                throw new BadRequestException("Код не подходит");
             }
         } else {
             if (!code.equals("test-reset-code")) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Код не подходит");
+                throw new BadRequestException("Код не подходит");
             }
         }
 
@@ -360,23 +462,20 @@ public class UsersService {
         user.setPasswordCreationTime(Instant.now().toEpochMilli());
         user.setUserResetCode(null);
         this.userRepository.save(user);
+        this.authorizedUsersCache.evictUser(user.getId());
     }
 
-    public void validateAuthRole(String token, List<UserRole> roles) {
-        User user = this.getUserModelFromToken(token);
-
+    public void validateAuthRole(User user, List<UserRole> roles) {
         if (roles.contains(user.getRole())) {
             return;
         }
 
-        throw new ResponseStatusException(HttpStatus.FORBIDDEN, "У текущей роли нет доступа");
+        throw new ForbiddenException("У текущей роли нет доступа");
     }
 
-    public SignInUserResponseDto getUserAccess(String accessToken, Long userId) {
-        User authorizedUser = this.getUserModelFromToken(accessToken);
-
+    public SignInUserResponseDto getUserAccess(User authorizedUser, Long userId) {
         if (authorizedUser.getRole() != UserRole.ADMIN) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+            throw new ForbiddenException();
         }
 
         return this.getUserAccessNoAuth(userId);
@@ -392,50 +491,41 @@ public class UsersService {
         return this.jwtTokenUtil.generateToken(user);
     }
 
-    public List<User> getMastersWithTelegramInRegion(Long regionId) {
-        return this.userRepository.findMastersInRegion(UserRole.MASTER, regionId);
-    }
-
     public List<User> getAdmins() {
         return this.userRepository.findByRole(UserRole.ADMIN);
     }
 
-    public void connectTelegramViaWebApp(String authorization, Long tgId) {
-        User authorizedUser = this.getUserModelFromToken(authorization);
+    @Transactional
+    public void connectTelegramViaWebApp(User authorizedUser, Long tgId) {
+        User user = this.getUserById(authorizedUser.getId());
         TelegramChat chat = this.telegramChatService.getTelegramChatById(tgId);
-        authorizedUser.addTelegramChat(chat);
-        this.userRepository.save(authorizedUser);
-
-        this.telegramSenderService.sendMessage(chat.getTelegramChatId(),
-                                               "Чат подключён к GruzHub",
-                                               null);
+        user.addTelegramChat(chat);
+        this.userRepository.save(user);
+        this.onTelegramChatsChanged(user, chat, "Чат подключён к GruzHub");
     }
 
-    public void connectTelegramChat(User user, String chatUuid) {
+    @Transactional
+    public void connectTelegramChat(User authorizedUser, String chatUuid) {
+        User user = this.getUserById(authorizedUser.getId());
         TelegramChat chat = this.telegramChatService.getTelegramChatByUuid(chatUuid);
         user.addTelegramChat(chat);
         this.userRepository.save(user);
-
-        this.telegramSenderService.sendMessage(chat.getTelegramChatId(),
-                                               "Чат подключён к GruzHub",
-                                               null);
+        this.onTelegramChatsChanged(user, chat, "Чат подключён к GruzHub");
     }
 
-    public void disconnectTelegramChat(User user, String chatUuid) {
+    @Transactional
+    public void disconnectTelegramChat(User authorizedUser, String chatUuid) {
+        User user = this.getUserById(authorizedUser.getId());
         TelegramChat chat = this.telegramChatService.getTelegramChatByUuid(chatUuid);
         user.removeTelegramChat(chat);
         this.userRepository.save(user);
-
-        this.telegramSenderService.sendMessage(chat.getTelegramChatId(),
-                                               "Чат отключён от GruzHub",
-                                               null);
+        this.onTelegramChatsChanged(user, chat, "Чат отключён от GruzHub");
     }
 
-    public List<UserResponseDto> getUsers(String authorization,
+    public List<UserResponseDto> getUsers(User authorizedUser,
                                           GetUsersRequestDto getUsersRequest) {
-        User authorizedUser = this.getUserModelFromToken(authorization);
         if (authorizedUser.getRole() != UserRole.ADMIN) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+            throw new ForbiddenException();
         }
 
         List<User> users;
@@ -458,8 +548,11 @@ public class UsersService {
         return users.stream().map(UserResponseDto::new).collect(Collectors.toList());
     }
 
-    public List<UserInfoChange> getUserInfoChanges(Long userId) {
-        return this.userInfoChangeRepository.findByUserIdOrderByIdDesc(userId);
+    public List<UserInfoChangeDto> getUserInfoChanges(Long userId) {
+        return this.userInfoChangeRepository.findByUserIdOrderByIdDesc(userId)
+                                            .stream()
+                                            .map(UserInfoChangeDto::new)
+                                            .toList();
     }
 
     public List<UserResponseDto> getUsersByIds(List<Long> userIds) {
@@ -492,12 +585,30 @@ public class UsersService {
         return phone != null && this.userRepository.findByPhoneAndRole(phone, role).isPresent();
     }
 
-    private boolean isPasswordValid(String password, String passwordHash) {
-        return BCrypt.checkpw(password, passwordHash);
+    // the cache and the index are read by other threads, they must not get a chat that can
+    // roll back, and the chat is told only about a committed change
+    private void onTelegramChatsChanged(User user, TelegramChat chat, String message) {
+        TransactionCallbacks.afterCommit(() -> {
+            this.authorizedUsersCache.evictUser(user.getId());
+            this.telegramSubscriptionsIndex.updateUser(user);
+            this.telegramSenderService.sendMessage(chat.getTelegramChatId(), message, null);
+        });
+    }
+
+    private void addBalanceOperation(Long userId,
+                                     BigDecimal amount,
+                                     BalanceOperationType type,
+                                     @Nullable Long orderId) {
+        this.balanceOperationRepository.save(new BalanceOperation(null,
+                                                                  userId,
+                                                                  amount,
+                                                                  type,
+                                                                  orderId,
+                                                                  Instant.now().toEpochMilli()));
     }
 
     private String generatePasswordHash(String password) {
-        return BCrypt.hashpw(password, BCrypt.gensalt(10));
+        return this.passwordHasher.hash(password);
     }
 
     private UserInfoChange createUserInfoChange(User user, UpdateUserRequestDto updateRequest) {
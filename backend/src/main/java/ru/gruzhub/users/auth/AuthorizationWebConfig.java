@@ -0,0 +1,18 @@
+package ru.gruzhub.users.auth;
+
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class AuthorizationWebConfig implements WebMvcConfigurer {
+    private final AuthorizedUserArgumentResolver authorizedUserArgumentResolver;
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(this.authorizedUserArgumentResolver);
+    }
+}
@@ -0,0 +1,19 @@
+package ru.gruzhub.users.auth;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Injects the {@link ru.gruzhub.users.models.User} authorized by the "Authorization" header.
+ * The token is verified once per request, see {@link AuthorizedUserArgumentResolver}.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AuthorizedUser {
+    /**
+     * When false, a request without the header gets null instead of 401.
+     */
+    boolean required() default true;
+}
@@ -0,0 +1,68 @@
+package ru.gruzhub.users.auth;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import ru.gruzhub.tools.exceptions.UnauthorizedException;
+import ru.gruzhub.users.UsersService;
+import ru.gruzhub.users.models.User;
+
+/**
+ * Resolves {@link AuthorizedUser} parameters. The user is stored as a request attribute,
+ * so interceptors and controllers of the same request share a single token verification.
+ */
+@Component
+@RequiredArgsConstructor
+public class AuthorizedUserArgumentResolver implements HandlerMethodArgumentResolver {
+    private static final String AUTHORIZED_USER_ATTRIBUTE =
+        AuthorizedUserArgumentResolver.class.getName() + ".USER";
+
+    private final UsersService usersService;
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(AuthorizedUser.class) &&
+               User.class.isAssignableFrom(parameter.getParameterType());
+    }
+
+    @Override
+    public User resolveArgument(MethodParameter parameter,
+                                ModelAndViewContainer mavContainer,
+                                NativeWebRequest webRequest,
+                                WebDataBinderFactory binderFactory) {
+        AuthorizedUser annotation = parameter.getParameterAnnotation(AuthorizedUser.class);
+        HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
+
+        User user = this.getAuthorizedUser(request);
+        if (user == null && annotation != null && annotation.required()) {
+            throw new UnauthorizedException();
+        }
+
+        return user;
+    }
+
+    /**
+     * @return the authorized user or null when the request has no "Authorization" header
+     */
+    public User getAuthorizedUser(HttpServletRequest request) {
+        Object cachedUser = request.getAttribute(AUTHORIZED_USER_ATTRIBUTE);
+        if (cachedUser != null) {
+            return (User) cachedUser;
+        }
+
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization == null) {
+            return null;
+        }
+
+        User user = this.usersService.getUserModelFromToken(authorization);
+        request.setAttribute(AUTHORIZED_USER_ATTRIBUTE, user);
+        return user;
+    }
+}
@@ -0,0 +1,117 @@
+package ru.gruzhub.users.auth;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.gruzhub.users.models.User;
+
+/**
+ * Bounded cache of users whose access token was already verified.
+ * Cached users are detached snapshots, so every code path that changes a user
+ * (password, balance, chats, profile) must call {@link #evictUser(Long)}.
+ * Hit/miss statistics are published as "cache.*" metrics with tag cache=authorized_users.
+ * <p>
+ * A user loaded before an eviction of that user is not cached, so a load racing with a change
+ * can't put back the old snapshot. The tokens are indexed by user, so an eviction touches only
+ * the tokens of its user.
+ */
+@Component
+public class AuthorizedUsersCache {
+    private static final String CACHE_NAME = "authorized_users";
+
+    private final Cache<String, User> usersByToken;
+    // the tokens sets are changed only inside compute of their user
+    private final Map<Long, Set<String>> tokensByUserId = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    // generation of the last eviction by user id, kept longer than any load takes
+    private final Cache<Long, Long> evictionGenerations;
+
+    public AuthorizedUsersCache(MeterRegistry meterRegistry,
+                                @Value("${app.auth_cache_max_size:10000}") long maxSize,
+                                @Value("${app.auth_cache_ttl_seconds:60}") long ttlSeconds) {
+        this.usersByToken = CacheBuilder.newBuilder()
+                                        .maximumSize(maxSize)
+                                        .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                                        .removalListener(this::onRemoval)
+                                        .recordStats()
+                                        .build();
+        this.evictionGenerations = CacheBuilder.newBuilder()
+                                               .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                                               .build();
+        GuavaCacheMetrics.monitor(meterRegistry, this.usersByToken, CACHE_NAME);
+    }
+
+    public User getUser(String token, Function<String, User> loader) {
+        User user = this.usersByToken.getIfPresent(token);
+
+        if (user == null) {
+            long loadGeneration = this.generation.get();
+            user = loader.apply(token);
+            this.put(token, user, loadGeneration);
+        }
+
+        return user;
+    }
+
+    public void evictUser(Long userId) {
+        Set<String> tokens = new HashSet<>();
+        this.tokensByUserId.compute(userId, (ignored, userTokens) -> {
+            this.evictionGenerations.put(userId, this.generation.incrementAndGet());
+            if (userTokens != null) {
+                tokens.addAll(userTokens);
+            }
+            return null;
+        });
+        this.usersByToken.invalidateAll(tokens);
+    }
+
+    private void put(String token, User user, long loadGeneration) {
+        Long userId = user.getId();
+        if (this.isEvictedAfter(userId, loadGeneration)) {
+            return;
+        }
+
+        this.tokensByUserId.compute(userId, (ignored, userTokens) -> {
+            Set<String> tokens = userTokens != null ? userTokens : new HashSet<>();
+            tokens.add(token);
+            return tokens;
+        });
+        this.usersByToken.put(token, user);
+
+        // an eviction that missed the token in the index is seen here
+        if (this.isEvictedAfter(userId, loadGeneration)) {
+            this.usersByToken.invalidate(token);
+        }
+    }
+
+    private boolean isEvictedAfter(Long userId, long loadGeneration) {
+        Long evictionGeneration = this.evictionGenerations.getIfPresent(userId);
+        return evictionGeneration != null && evictionGeneration > loadGeneration;
+    }
+
+    private void onRemoval(RemovalNotification<String, User> notification) {
+        // a replaced token stays cached under the same user
+        if (notification.getCause() == RemovalCause.REPLACED || notification.getValue() == null) {
+            return;
+        }
+
+        String token = notification.getKey();
+        this.tokensByUserId.computeIfPresent(notification.getValue().getId(),
+                                             (ignored, userTokens) -> {
+            userTokens.remove(token);
+            return userTokens.isEmpty() ? null : userTokens;
+        });
+    }
+}
@@ -0,0 +1,76 @@
+package ru.gruzhub.users.auth;
+
+import io.jsonwebtoken.Claims;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import ru.gruzhub.tools.JwtTokenUtil;
+import ru.gruzhub.tools.exceptions.UnauthorizedException;
+import ru.gruzhub.users.UserRepository;
+import ru.gruzhub.users.models.User;
+
+/**
+ * EventSource cannot set headers, so the order events stream is opened with a token in the
+ * query string. It is not the session token, which would end up in access logs: the client
+ * gets a token limited to app.order_events_token_ttl_seconds right before it subscribes, and
+ * the token is accepted once, also across instances. Used tokens are stored the same way as
+ * the tokens of order links, see {@link OrderLinksService}.
+ */
+@Component
+public class OrderEventsTokensService {
+    private final JwtTokenUtil jwtTokenUtil;
+    private final UserRepository userRepository;
+    private final UsedOrderLinkTokenRepository usedTokenRepository;
+    private final long tokenValidityMs;
+
+    public OrderEventsTokensService(JwtTokenUtil jwtTokenUtil,
+                                    UserRepository userRepository,
+                                    UsedOrderLinkTokenRepository usedTokenRepository,
+                                    @Value("${app.order_events_token_ttl_seconds:60}")
+                                    long tokenTtlSeconds) {
+        this.jwtTokenUtil = jwtTokenUtil;
+        this.userRepository = userRepository;
+        this.usedTokenRepository = usedTokenRepository;
+        this.tokenValidityMs = TimeUnit.SECONDS.toMillis(tokenTtlSeconds);
+    }
+
+    public String createToken(User user) {
+        return this.jwtTokenUtil.generateOrderEventsToken(user, this.tokenValidityMs);
+    }
+
+    /**
+     * @return the user of the token, the token is not accepted again
+     */
+    public User useToken(String token) {
+        if (token == null) {
+            throw new UnauthorizedException();
+        }
+
+        Claims claims;
+        try {
+            claims = this.jwtTokenUtil.getClaimsFromToken(token);
+        } catch (Exception e) {
+            throw new UnauthorizedException();
+        }
+        if (!JwtTokenUtil.isOrderEventsToken(claims)) {
+            throw new UnauthorizedException();
+        }
+
+        Long userId = claims.get("id", Long.class);
+        Long passwordCreationTime = claims.get("password_creation_time", Long.class);
+        User user = this.userRepository.findById(userId).orElseThrow(UnauthorizedException::new);
+        if (!Objects.equals(user.getPasswordCreationTime(), passwordCreationTime)) {
+            throw new UnauthorizedException();
+        }
+
+        try {
+            this.usedTokenRepository.insert(claims.getId(), claims.getExpiration().getTime());
+        } catch (DataIntegrityViolationException e) {
+            throw new UnauthorizedException();
+        }
+
+        return user;
+    }
+}
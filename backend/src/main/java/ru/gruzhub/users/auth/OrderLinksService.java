@@ -0,0 +1,172 @@
+package ru.gruzhub.users.auth;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import ru.gruzhub.tools.JwtTokenUtil;
+import ru.gruzhub.tools.concurrent.BackgroundScheduler;
+import ru.gruzhub.tools.exceptions.UnauthorizedException;
+import ru.gruzhub.users.UserRepository;
+import ru.gruzhub.users.dto.SignInUserResponseDto;
+import ru.gruzhub.users.models.User;
+
+/**
+ * Builds "Посмотреть" links for Telegram notifications. A link carries a token of one order,
+ * limited to app.order_link_token_ttl_hours, which is not accepted as a session. The frontend
+ * exchanges it for a session by {@link #signInByOrderLink(String)}, once, so a forwarded link
+ * stops working after it is opened.
+ * <p>
+ * Tokens are cached per user and order for half of their lifetime, so every issued link stays
+ * valid for at least the other half. The password creation time is part of the cache key, so
+ * a password change issues new tokens. A token is dropped from the cache when it is used.
+ */
+@Component
+public class OrderLinksService {
+    private static final String CACHE_NAME = "order_link_tokens";
+    private static final long CLEANUP_INTERVAL_MS = TimeUnit.HOURS.toMillis(1);
+
+    private final JwtTokenUtil jwtTokenUtil;
+    private final UserRepository userRepository;
+    private final UsedOrderLinkTokenRepository usedOrderLinkTokenRepository;
+    private final String appUrl;
+    private final long tokenValidityMs;
+    private final Cache<TokenKey, String> tokens;
+    private final BackgroundScheduler cleanupScheduler =
+        new BackgroundScheduler("order-links-cleanup");
+
+    public OrderLinksService(JwtTokenUtil jwtTokenUtil,
+                             UserRepository userRepository,
+                             UsedOrderLinkTokenRepository usedOrderLinkTokenRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.url}") String appUrl,
+                             @Value("${app.order_link_token_ttl_hours:12}") long tokenTtlHours,
+                             @Value("${app.deep_link_cache_max_size:50000}") long cacheMaxSize) {
+        this.jwtTokenUtil = jwtTokenUtil;
+        this.userRepository = userRepository;
+        this.usedOrderLinkTokenRepository = usedOrderLinkTokenRepository;
+        this.appUrl = appUrl;
+        this.tokenValidityMs = TimeUnit.HOURS.toMillis(tokenTtlHours);
+        this.tokens = CacheBuilder.newBuilder()
+                                  .maximumSize(cacheMaxSize)
+                                  .expireAfterWrite(this.tokenValidityMs / 2, TimeUnit.MILLISECONDS)
+                                  .recordStats()
+                                  .build();
+        GuavaCacheMetrics.monitor(meterRegistry, this.tokens, CACHE_NAME);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        this.cleanupScheduler.repeat(this::deleteExpiredUsedTokens, 0, CLEANUP_INTERVAL_MS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.cleanupScheduler.shutdown();
+    }
+
+    public String getOrderLink(User user, Long orderId) {
+        return this.appUrl +
+               "?orderLinkToken=" +
+               this.getOrderLinkToken(user, orderId) +
+               "&orderId=" +
+               orderId;
+    }
+
+    /**
+     * @return links by user id, in the order of the given users
+     */
+    public Map<Long, String> getOrderLinks(List<User> users, Long orderId) {
+        Map<Long, String> links = new LinkedHashMap<>();
+        for (User user : users) {
+            links.put(user.getId(), this.getOrderLink(user, orderId));
+        }
+        return links;
+    }
+
+    /**
+     * Same as {@link #getOrderLinks(List, Long)}, the users are loaded with a single query.
+     * Ids of missing users are skipped.
+     */
+    public Map<Long, String> getOrderLinksByUsersIds(List<Long> usersIds, Long orderId) {
+        Map<Long, User> usersById =
+            this.userRepository.findByIdIn(usersIds)
+                               .stream()
+                               .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<User> users = usersIds.stream()
+                                   .map(usersById::get)
+                                   .filter(Objects::nonNull)
+                                   .toList();
+        return this.getOrderLinks(users, orderId);
+    }
+
+    /**
+     * Exchanges the token of an order link for a session of its user. Each token is accepted
+     * once, also across instances.
+     */
+    public SignInUserResponseDto signInByOrderLink(String token) {
+        Claims claims;
+        try {
+            claims = this.jwtTokenUtil.getClaimsFromToken(token);
+        } catch (Exception e) {
+            throw new UnauthorizedException();
+        }
+        if (!JwtTokenUtil.isOrderLinkToken(claims)) {
+            throw new UnauthorizedException();
+        }
+
+        Long userId = claims.get("id", Long.class);
+        Long passwordCreationTime = claims.get("password_creation_time", Long.class);
+        User user = this.userRepository.findById(userId).orElseThrow(UnauthorizedException::new);
+        if (!Objects.equals(user.getPasswordCreationTime(), passwordCreationTime)) {
+            throw new UnauthorizedException();
+        }
+
+        try {
+            this.usedOrderLinkTokenRepository.insert(claims.getId(),
+                                                     claims.getExpiration().getTime());
+        } catch (DataIntegrityViolationException e) {
+            throw new UnauthorizedException("Ссылка уже использована, войдите в аккаунт");
+        }
+        // the next notification about the order gets a new link
+        this.tokens.invalidate(new TokenKey(userId,
+                                            passwordCreationTime,
+                                            claims.get("order_id", Long.class)));
+
+        return new SignInUserResponseDto(user.getId(), this.jwtTokenUtil.generateToken(user));
+    }
+
+    private String getOrderLinkToken(User user, Long orderId) {
+        TokenKey key = new TokenKey(user.getId(), user.getPasswordCreationTime(), orderId);
+        try {
+            return this.tokens.get(key,
+                                   () -> this.jwtTokenUtil.generateOrderLinkToken(user,
+                                                                                  orderId,
+                                                                                  this.tokenValidityMs));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void deleteExpiredUsedTokens() {
+        this.usedOrderLinkTokenRepository.deleteExpiredBefore(System.currentTimeMillis());
+    }
+
+    private record TokenKey(Long userId, Long passwordCreationTime, Long orderId) {
+    }
+}
@@ -0,0 +1,114 @@
+package ru.gruzhub.users.auth;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Runs BCrypt on a dedicated pool sized to the number of cores, so that a burst of sign-ins
+ * cannot occupy the request threads. When the queue is full the call is rejected immediately.
+ */
+@Component
+public class PasswordHasher {
+    private static final String OVERLOADED_MESSAGE = "Сервер перегружен, попробуйте позже";
+
+    private final int cost;
+    private final long timeoutMs;
+    private final ThreadPoolExecutor executor;
+    private final Timer hashTimer;
+    private final Timer checkTimer;
+
+    public PasswordHasher(MeterRegistry meterRegistry,
+                          @Value("${app.bcrypt_cost:10}") int cost,
+                          @Value("${app.bcrypt_queue_capacity:64}") int queueCapacity,
+                          @Value("${app.bcrypt_timeout_ms:10000}") long timeoutMs) {
+        this.cost = cost;
+        this.timeoutMs = timeoutMs;
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(threads,
+                                               threads,
+                                               0L,
+                                               TimeUnit.MILLISECONDS,
+                                               new ArrayBlockingQueue<>(queueCapacity),
+                                               new ThreadFactoryBuilder().setNameFormat("bcrypt-%d")
+                                                                         .setDaemon(true)
+                                                                         .build(),
+                                               new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("bcrypt.queue.depth", this.executor, pool -> pool.getQueue().size())
+             .register(meterRegistry);
+        this.hashTimer =
+            Timer.builder("bcrypt.duration").tag("operation", "hash").register(meterRegistry);
+        this.checkTimer =
+            Timer.builder("bcrypt.duration").tag("operation", "check").register(meterRegistry);
+    }
+
+    public String hash(String password) {
+        return this.execute(this.hashTimer,
+                            () -> BCrypt.hashpw(password, BCrypt.gensalt(this.cost)));
+    }
+
+    public boolean matches(String password, String passwordHash) {
+        return this.execute(this.checkTimer, () -> BCrypt.checkpw(password, passwordHash));
+    }
+
+    public boolean needsRehash(String passwordHash) {
+        // BCrypt hash format: $2a$10$<salt and hash>
+        String[] parts = passwordHash.split("\\$");
+        if (parts.length < 4) {
+            return true;
+        }
+
+        try {
+            return Integer.parseInt(parts[2]) != this.cost;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    private <T> T execute(Timer timer, Callable<T> task) {
+        Future<T> future;
+        try {
+            future = this.executor.submit(() -> timer.recordCallable(task));
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, OVERLOADED_MESSAGE);
+        }
+
+        try {
+            return future.get(this.timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, OVERLOADED_MESSAGE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, OVERLOADED_MESSAGE);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
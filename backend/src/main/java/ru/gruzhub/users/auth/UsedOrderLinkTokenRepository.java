@@ -0,0 +1,27 @@
+package ru.gruzhub.users.auth;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.gruzhub.users.auth.models.UsedOrderLinkToken;
+
+@Repository
+public interface UsedOrderLinkTokenRepository extends JpaRepository<UsedOrderLinkToken, String> {
+    /**
+     * Fails with a primary key violation when the token is already used, also when it is used
+     * by another instance at the same moment.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO used_order_link_tokens (token_id, expires_at) " +
+                   "VALUES (:tokenId, :expiresAt)",
+           nativeQuery = true)
+    void insert(String tokenId, Long expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM UsedOrderLinkToken t WHERE t.expiresAt < :time")
+    int deleteExpiredBefore(Long time);
+}
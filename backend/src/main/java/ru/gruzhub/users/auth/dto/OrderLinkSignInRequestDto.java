@@ -0,0 +1,14 @@
+package ru.gruzhub.users.auth.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderLinkSignInRequestDto {
+    private String token;
+}
@@ -0,0 +1,28 @@
+package ru.gruzhub.users.auth.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Table(name = "used_order_link_tokens")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UsedOrderLinkToken {
+    @Id
+    @Column(name = "token_id",
+            nullable = false,
+            columnDefinition = "TEXT")
+    private String tokenId;
+
+    @Column(name = "expires_at",
+            nullable = false)
+    private Long expiresAt;
+}
@@ -0,0 +1,16 @@
+package ru.gruzhub.users.balance;
+
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import ru.gruzhub.users.balance.models.BalanceOperation;
+
+@Repository
+public interface BalanceOperationRepository extends JpaRepository<BalanceOperation, Long> {
+    List<BalanceOperation> findByUserIdOrderByIdDesc(Long userId, Pageable pageable);
+
+    List<BalanceOperation> findByUserIdAndIdLessThanOrderByIdDesc(Long userId,
+                                                                  Long beforeId,
+                                                                  Pageable pageable);
+}
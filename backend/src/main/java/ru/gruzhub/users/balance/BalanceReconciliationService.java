@@ -0,0 +1,75 @@
+package ru.gruzhub.users.balance;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.sentry.Sentry;
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ru.gruzhub.tools.admin.AdminDatabase;
+import ru.gruzhub.tools.concurrent.BackgroundScheduler;
+
+/**
+ * Checks that every balance equals the sum of the user's balance operations. A balance and
+ * its operation are written in one transaction, so any mismatch is a bug or a manual change
+ * of the database. Runs on the admin connection pool, see {@link AdminDatabase}.
+ */
+@Service
+public class BalanceReconciliationService {
+    private static final int MAX_REPORTED_USERS = 100;
+
+    private static final String MISMATCHED_USERS_QUERY = """
+        SELECT u.id
+        FROM users u
+        LEFT JOIN (SELECT user_id, SUM(amount) AS amount
+                   FROM balance_operations
+                   GROUP BY user_id) b ON b.user_id = u.id
+        WHERE u.balance <> COALESCE(b.amount, 0)
+        ORDER BY u.id
+        """;
+
+    private final AdminDatabase adminDatabase;
+    private final long intervalMs;
+    private final AtomicInteger mismatchedUsersCount = new AtomicInteger();
+    private final BackgroundScheduler scheduler =
+        new BackgroundScheduler("balance-reconciliation");
+
+    public BalanceReconciliationService(
+        AdminDatabase adminDatabase,
+        MeterRegistry meterRegistry,
+        @Value("${app.balance_reconciliation_interval_hours:24}") long intervalHours) {
+        this.adminDatabase = adminDatabase;
+        this.intervalMs = TimeUnit.HOURS.toMillis(intervalHours);
+
+        Gauge.builder("balance.reconciliation.mismatches", this.mismatchedUsersCount::get)
+             .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        this.scheduler.repeat(this::reconcileBalances, 0, this.intervalMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.scheduler.shutdown();
+    }
+
+    public void reconcileBalances() {
+        List<Long> usersIds =
+            this.adminDatabase.getJdbcTemplate().queryForList(MISMATCHED_USERS_QUERY, Long.class);
+        this.mismatchedUsersCount.set(usersIds.size());
+
+        if (!usersIds.isEmpty()) {
+            List<Long> reportedUsersIds =
+                usersIds.subList(0, Math.min(usersIds.size(), MAX_REPORTED_USERS));
+            Sentry.captureMessage("Balances of " + usersIds.size() + " users do not match " +
+                                  "their balance operations: " + reportedUsersIds);
+        }
+    }
+}
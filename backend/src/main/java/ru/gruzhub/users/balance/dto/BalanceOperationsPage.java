@@ -0,0 +1,13 @@
+package ru.gruzhub.users.balance.dto;
+
+import jakarta.annotation.Nullable;
+import java.util.List;
+import ru.gruzhub.users.balance.models.BalanceOperation;
+
+/**
+ * @param operations   the newest first
+ * @param nextBeforeId null on the last page
+ */
+public record BalanceOperationsPage(List<BalanceOperation> operations,
+                                    @Nullable Long nextBeforeId) {
+}
@@ -0,0 +1,10 @@
+package ru.gruzhub.users.balance.enums;
+
+public enum BalanceOperationType {
+    // balance of the user when the ledger was introduced
+    OPENING_BALANCE,
+    START_BALANCE,
+    ORDER_TAKEN,
+    ORDER_REFUND,
+    ADJUSTMENT
+}
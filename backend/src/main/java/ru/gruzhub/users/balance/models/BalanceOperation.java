@@ -0,0 +1,58 @@
+package ru.gruzhub.users.balance.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.math.BigDecimal;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Immutable;
+import ru.gruzhub.users.balance.enums.BalanceOperationType;
+
+/**
+ * Change of a user balance, positive for credits and negative for debits. Operations are
+ * never changed or deleted.
+ */
+@Getter
+@Setter
+@Entity
+@Immutable
+@Table(name = "balance_operations")
+@AllArgsConstructor
+@NoArgsConstructor
+public class BalanceOperation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "user_id",
+            nullable = false)
+    private Long userId;
+
+    @Column(name = "amount",
+            precision = 12,
+            scale = 2,
+            nullable = false)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type",
+            nullable = false,
+            columnDefinition = "TEXT")
+    private BalanceOperationType type;
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(name = "created_at",
+            nullable = false)
+    private Long createdAt;
+}
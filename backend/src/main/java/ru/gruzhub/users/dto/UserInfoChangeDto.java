@@ -0,0 +1,35 @@
+package ru.gruzhub.users.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.gruzhub.users.models.UserInfoChange;
+
+@Data
+@NoArgsConstructor
+public class UserInfoChangeDto {
+    private Long id;
+    private Long userId;
+    private String previousName;
+    private String newName;
+    private String previousPhone;
+    private String newPhone;
+    private String previousEmail;
+    private String newEmail;
+    private String previousInn;
+    private String newInn;
+    private Long date;
+
+    public UserInfoChangeDto(UserInfoChange userInfoChange) {
+        this.id = userInfoChange.getId();
+        this.userId = userInfoChange.getUser().getId();
+        this.previousName = userInfoChange.getPreviousName();
+        this.newName = userInfoChange.getNewName();
+        this.previousPhone = userInfoChange.getPreviousPhone();
+        this.newPhone = userInfoChange.getNewPhone();
+        this.previousEmail = userInfoChange.getPreviousEmail();
+        this.newEmail = userInfoChange.getNewEmail();
+        this.previousInn = userInfoChange.getPreviousInn();
+        this.newInn = userInfoChange.getNewInn();
+        this.date = userInfoChange.getDate();
+    }
+}
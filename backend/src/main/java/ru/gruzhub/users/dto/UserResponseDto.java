@@ -5,6 +5,7 @@ import java.util.List;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.Hibernate;
 import ru.gruzhub.address.models.Address;
 import ru.gruzhub.telegram.models.TelegramChat;
 import ru.gruzhub.users.enums.UserRole;
@@ -40,7 +41,7 @@ public class UserResponseDto {
         this.name = user.getName();
         this.inn = user.getInn();
         this.tripRadiusKm = user.getTripRadiusKm();
-        this.address = user.getAddress();
+        this.address = (Address) Hibernate.unproxy(user.getAddress());
         this.registrationDate = user.getRegistrationDate();
         this.connectedTelegramChats = user.getConnectedTelegramChats();
     }
@@ -14,6 +14,8 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.Table;
 import java.math.BigDecimal;
 import java.util.List;
@@ -21,17 +23,24 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.ColumnDefault;
 import ru.gruzhub.address.models.Address;
 import ru.gruzhub.telegram.models.TelegramChat;
 import ru.gruzhub.users.enums.UserRole;
 
 @Entity
 @Table(name = "users")
+@NamedEntityGraph(name = User.WITH_TELEGRAM_CHATS_GRAPH,
+                  attributeNodes = @NamedAttributeNode("connectedTelegramChats"))
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
 @Setter
+@BatchSize(size = 100)
 public class User {
+    public static final String WITH_TELEGRAM_CHATS_GRAPH = "User.withTelegramChats";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id")
@@ -51,10 +60,13 @@ public class User {
             columnDefinition = "TEXT")
     private String phone;
 
+    // changed only by the conditional updates of UserRepository together with a balance
+    // operation, so saving a stale user cannot overwrite a concurrent change
     @Column(name = "balance",
             precision = 12,
             scale = 2,
-            nullable = false)
+            nullable = false,
+            updatable = false)
     private BigDecimal balance;
 
     @Column(name = "name",
@@ -98,11 +110,21 @@ public class User {
     @Column(name = "telegram_access_error_shown")
     private Boolean telegramAccessErrorShown;
 
+    // bumped by OrdersVersionsService only, never written from the entity
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(name = "orders_change_version",
+            nullable = false,
+            insertable = false,
+            updatable = false)
+    private Long ordersChangeVersion;
+
     @ManyToMany(cascade = {CascadeType.DETACH,
                            CascadeType.MERGE,
                            CascadeType.PERSIST,
                            CascadeType.REFRESH},
-                fetch = FetchType.EAGER)
+                fetch = FetchType.LAZY)
+    @BatchSize(size = 100)
     @JoinTable(name = "chat_to_user_assosiation",
                joinColumns = @JoinColumn(name = "order_id"),
                inverseJoinColumns = @JoinColumn(name = "chat_uuid"))
@@ -1,15 +1,17 @@
 package ru.gruzhub.users.statistics;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import lombok.RequiredArgsConstructor;
-import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import ru.gruzhub.tools.admin.AdminBulkhead;
 import ru.gruzhub.users.UsersService;
+import ru.gruzhub.users.auth.AuthorizedUser;
 import ru.gruzhub.users.enums.UserRole;
+import ru.gruzhub.users.models.User;
 import ru.gruzhub.users.statistics.dto.RegistrationDto;
 import ru.gruzhub.users.statistics.enums.UserStatisticsPeriod;
 
@@ -19,12 +21,13 @@ import ru.gruzhub.users.statistics.enums.UserStatisticsPeriod;
 public class UserStatisticsContoller {
     private final UserStatisticsService userStatisticsService;
     private final UsersService usersService;
+    private final AdminBulkhead adminBulkhead;
 
     @GetMapping("/registrations")
-    public List<RegistrationDto> getRegistrations(
-        @RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+    public CompletableFuture<List<RegistrationDto>> getRegistrations(
+        @AuthorizedUser User user,
         @RequestParam UserStatisticsPeriod period) {
-        this.usersService.validateAuthRole(authorization, List.of(UserRole.ADMIN));
-        return this.userStatisticsService.getRegistrations(period);
+        this.usersService.validateAuthRole(user, List.of(UserRole.ADMIN));
+        return this.adminBulkhead.submit(() -> this.userStatisticsService.getRegistrations(period));
     }
 }
@@ -1,15 +1,18 @@
 package ru.gruzhub.users.statistics;
 
 import java.util.List;
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
-import ru.gruzhub.users.models.User;
+import ru.gruzhub.tools.admin.AdminDatabase;
 
+/**
+ * Reports run on the admin connection pool, see {@link AdminDatabase}.
+ */
 @Repository
-public interface UserStatisticsRepository extends JpaRepository<User, Long> {
+@RequiredArgsConstructor
+public class UserStatisticsRepository {
     // Group by Day
-    @Query(value = """
+    private static final String REGISTRATIONS_BY_DAY_QUERY = """
         WITH date_series AS (
             SELECT generate_series(
                 CAST(MIN(TO_TIMESTAMP(u.registration_date / 1000)) AS DATE), 
@@ -26,12 +29,10 @@ public interface UserStatisticsRepository extends JpaRepository<User, Long> {
         ON CAST(TO_TIMESTAMP(u.registration_date / 1000) AS DATE) = ds.period
         GROUP BY ds.period
         ORDER BY ds.period
-        """,
-           nativeQuery = true)
-    List<Object[]> findRegistrationsByDay();
+        """;
 
     // Group by Week
-    @Query(value = """
+    private static final String REGISTRATIONS_BY_WEEK_QUERY = """
         WITH week_series AS (
             SELECT generate_series(
                 CAST(DATE_TRUNC('week', MIN(TO_TIMESTAMP(u.registration_date / 1000))) AS DATE), 
@@ -48,12 +49,10 @@ public interface UserStatisticsRepository extends JpaRepository<User, Long> {
         ON CAST(DATE_TRUNC('week', TO_TIMESTAMP(u.registration_date / 1000)) AS DATE) = ws.period
         GROUP BY ws.period
         ORDER BY ws.period
-        """,
-           nativeQuery = true)
-    List<Object[]> findRegistrationsByWeek();
+        """;
 
     // Group by Month
-    @Query(value = """
+    private static final String REGISTRATIONS_BY_MONTH_QUERY = """
         WITH month_series AS (
             SELECT generate_series(
                 CAST(DATE_TRUNC('month', MIN(TO_TIMESTAMP(u.registration_date / 1000))) AS DATE), 
@@ -70,7 +69,28 @@ public interface UserStatisticsRepository extends JpaRepository<User, Long> {
         ON CAST(DATE_TRUNC('month', TO_TIMESTAMP(u.registration_date / 1000)) AS DATE) = ms.period
         GROUP BY ms.period
         ORDER BY ms.period
-        """,
-           nativeQuery = true)
-    List<Object[]> findRegistrationsByMonth();
+        """;
+
+    private final AdminDatabase adminDatabase;
+
+    public List<Object[]> findRegistrationsByDay() {
+        return this.query(REGISTRATIONS_BY_DAY_QUERY);
+    }
+
+    public List<Object[]> findRegistrationsByWeek() {
+        return this.query(REGISTRATIONS_BY_WEEK_QUERY);
+    }
+
+    public List<Object[]> findRegistrationsByMonth() {
+        return this.query(REGISTRATIONS_BY_MONTH_QUERY);
+    }
+
+    private List<Object[]> query(String sql) {
+        return this.adminDatabase.getJdbcTemplate()
+                                 .query(sql,
+                                        (rs, rowNum) -> new Object[] {
+                                            rs.getTimestamp("period").toInstant(),
+                                            rs.getLong("count")
+                                        });
+    }
 }
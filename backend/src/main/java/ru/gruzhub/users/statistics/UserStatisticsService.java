@@ -4,9 +4,9 @@ import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.util.List;
-import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import ru.gruzhub.tools.concurrent.SingleFlight;
 import ru.gruzhub.users.statistics.dto.RegistrationDto;
 import ru.gruzhub.users.statistics.enums.UserStatisticsPeriod;
 
@@ -14,8 +14,15 @@ import ru.gruzhub.users.statistics.enums.UserStatisticsPeriod;
 @RequiredArgsConstructor
 public class UserStatisticsService {
     private final UserStatisticsRepository userStatisticsRepository;
+    private final SingleFlight<UserStatisticsPeriod, List<RegistrationDto>> statisticsFlight =
+        new SingleFlight<>();
 
     public List<RegistrationDto> getRegistrations(UserStatisticsPeriod period) {
+        // admins refresh the same statistics at once, the heavy query runs once for them
+        return this.statisticsFlight.execute(period, () -> this.loadRegistrations(period));
+    }
+
+    private List<RegistrationDto> loadRegistrations(UserStatisticsPeriod period) {
         List<Object[]> registrations = switch (period) {
             case DAY -> this.findRegistrationsByDay();
             case WEEK -> this.findRegistrationsByWeek();
@@ -43,6 +50,6 @@ public class UserStatisticsService {
             LocalDate date = instant.atZone(ZoneOffset.UTC).toLocalDate(); // Convert to UTC
             String period = date.toString(); // Format as 'YYYY-MM-DD'
             return new RegistrationDto(period, ((Number) row[1]).longValue());
-        }).collect(Collectors.toList());
+        }).toList();
     }
 }
@@ -0,0 +1,181 @@
+package ru.gruzhub.users.subscriptions;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.gruzhub.telegram.models.TelegramChat;
+import ru.gruzhub.tools.concurrent.BackgroundScheduler;
+import ru.gruzhub.users.UserRepository;
+import ru.gruzhub.users.enums.UserRole;
+import ru.gruzhub.users.models.User;
+import ru.gruzhub.users.subscriptions.dto.TelegramSubscription;
+
+/**
+ * Telegram chats of the users notified about new orders: the masters by the region of their
+ * address and the admins. Kept in memory, so that a new order is sent out without loading the
+ * masters of its region, and users without chats are not in the index at all.
+ * <p>
+ * The changes made by this instance are applied by {@link #updateUser(User)} after they are
+ * committed. The index is also rebuilt every app.telegram_subscriptions_refresh_minutes, for
+ * the changes made by the other instances and the chats migrated by Telegram.
+ */
+@Component
+public class TelegramSubscriptionsIndex {
+    private static final List<UserRole> SUBSCRIBED_ROLES = List.of(UserRole.MASTER, UserRole.ADMIN);
+
+    private final UserRepository userRepository;
+    private final long refreshIntervalMs;
+    private final BackgroundScheduler refreshScheduler =
+        new BackgroundScheduler("telegram-subscriptions-refresh");
+
+    // replaced by a rebuild, changed in place by an update, both under the lock of the index
+    @Nullable
+    private volatile Subscriptions subscriptions;
+
+    public TelegramSubscriptionsIndex(
+        UserRepository userRepository,
+        MeterRegistry meterRegistry,
+        @Value("${app.telegram_subscriptions_refresh_minutes:5}") long refreshIntervalMinutes) {
+        this.userRepository = userRepository;
+        this.refreshIntervalMs = TimeUnit.MINUTES.toMillis(refreshIntervalMinutes);
+
+        Gauge.builder("telegram.subscriptions.users", this, index -> {
+            Subscriptions subscriptions = index.subscriptions;
+            return subscriptions != null
+                   ? subscriptions.mastersRegions().size() + subscriptions.adminsChats().size()
+                   : 0;
+        }).register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        this.refreshScheduler.repeat(this::rebuild, this.refreshIntervalMs, this.refreshIntervalMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.refreshScheduler.shutdown();
+    }
+
+    /**
+     * @param regionId only the admins are returned for an order without a region
+     * @return chats ids by user id, the masters of the region first, then the admins
+     */
+    public Map<Long, List<Long>> getRegionRecipientsChats(@Nullable Long regionId) {
+        Subscriptions subscriptions = this.getSubscriptions();
+
+        Map<Long, List<Long>> recipientsChats = new LinkedHashMap<>();
+        if (regionId != null) {
+            recipientsChats.putAll(subscriptions.mastersChatsByRegion()
+                                                .getOrDefault(regionId, Map.of()));
+        }
+        recipientsChats.putAll(subscriptions.adminsChats());
+        return recipientsChats;
+    }
+
+    /**
+     * Applies the current chats, role and region of the user. The chats must be loaded.
+     */
+    public synchronized void updateUser(User user) {
+        Subscriptions subscriptions = this.getSubscriptions();
+        Long userId = user.getId();
+
+        Long previousRegionId = subscriptions.mastersRegions().remove(userId);
+        if (previousRegionId != null) {
+            subscriptions.mastersChatsByRegion().computeIfPresent(previousRegionId,
+                                                                  (ignored, regionChats) -> {
+                regionChats.remove(userId);
+                return regionChats.isEmpty() ? null : regionChats;
+            });
+        }
+        subscriptions.adminsChats().remove(userId);
+
+        List<Long> chatsIds = user.getConnectedTelegramChats()
+                                  .stream()
+                                  .map(TelegramChat::getTelegramChatId)
+                                  .toList();
+        if (chatsIds.isEmpty()) {
+            return;
+        }
+
+        if (user.getRole() == UserRole.ADMIN) {
+            subscriptions.adminsChats().put(userId, chatsIds);
+        }
+        if (user.getRole() == UserRole.MASTER &&
+            user.getAddress() != null &&
+            user.getAddress().getRegion() != null) {
+            subscriptions.addMaster(userId, user.getAddress().getRegion().getId(), chatsIds);
+        }
+    }
+
+    public synchronized void rebuild() {
+        Subscriptions rebuiltSubscriptions = new Subscriptions(new ConcurrentHashMap<>(),
+                                                               new ConcurrentHashMap<>(),
+                                                               new ConcurrentHashMap<>());
+
+        Map<Long, List<Long>> usersChats = new LinkedHashMap<>();
+        Map<Long, TelegramSubscription> usersSubscriptions = new LinkedHashMap<>();
+        for (TelegramSubscription subscription :
+            this.userRepository.findTelegramSubscriptions(SUBSCRIBED_ROLES)) {
+            usersChats.computeIfAbsent(subscription.userId(), ignored -> new ArrayList<>())
+                      .add(subscription.telegramChatId());
+            usersSubscriptions.putIfAbsent(subscription.userId(), subscription);
+        }
+
+        for (TelegramSubscription subscription : usersSubscriptions.values()) {
+            List<Long> chatsIds = List.copyOf(usersChats.get(subscription.userId()));
+            if (subscription.role() == UserRole.ADMIN) {
+                rebuiltSubscriptions.adminsChats().put(subscription.userId(), chatsIds);
+            }
+            if (subscription.role() == UserRole.MASTER && subscription.regionId() != null) {
+                rebuiltSubscriptions.addMaster(subscription.userId(),
+                                               subscription.regionId(),
+                                               chatsIds);
+            }
+        }
+
+        this.subscriptions = rebuiltSubscriptions;
+    }
+
+    private Subscriptions getSubscriptions() {
+        Subscriptions currentSubscriptions = this.subscriptions;
+        if (currentSubscriptions != null) {
+            return currentSubscriptions;
+        }
+
+        // built on the first use, so that nothing is missed before the first refresh
+        synchronized (this) {
+            if (this.subscriptions == null) {
+                this.rebuild();
+            }
+            return this.subscriptions;
+        }
+    }
+
+    /**
+     * @param mastersChatsByRegion chats ids by master id, by region id
+     * @param mastersRegions       region ids by master id, to find a master when it changes
+     * @param adminsChats          chats ids by admin id
+     */
+    private record Subscriptions(Map<Long, Map<Long, List<Long>>> mastersChatsByRegion,
+                                 Map<Long, Long> mastersRegions,
+                                 Map<Long, List<Long>> adminsChats) {
+        private void addMaster(Long userId, Long regionId, List<Long> chatsIds) {
+            this.mastersChatsByRegion.computeIfAbsent(regionId,
+                                                      ignored -> new ConcurrentHashMap<>())
+                                     .put(userId, chatsIds);
+            this.mastersRegions.put(userId, regionId);
+        }
+    }
+}
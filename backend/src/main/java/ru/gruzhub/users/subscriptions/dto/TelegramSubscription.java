@@ -0,0 +1,15 @@
+package ru.gruzhub.users.subscriptions.dto;
+
+import jakarta.annotation.Nullable;
+import ru.gruzhub.users.enums.UserRole;
+
+/**
+ * A connected Telegram chat of a user, one per chat.
+ *
+ * @param regionId the region of the user address, null without an address
+ */
+public record TelegramSubscription(Long userId,
+                                   UserRole role,
+                                   @Nullable Long regionId,
+                                   Long telegramChatId) {
+}
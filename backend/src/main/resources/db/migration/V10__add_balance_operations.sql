@@ -0,0 +1,36 @@
+-- every change of users.balance, so the balance always equals the sum of the user's operations
+CREATE TABLE balance_operations
+(
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    user_id    BIGINT                                  NOT NULL,
+    amount     DECIMAL(12, 2)                          NOT NULL,
+    type       TEXT                                    NOT NULL,
+    order_id   BIGINT,
+    created_at BIGINT                                  NOT NULL,
+    CONSTRAINT pk_balance_operations PRIMARY KEY (id)
+);
+
+ALTER TABLE balance_operations
+    ADD CONSTRAINT FK_BALANCE_OPERATIONS_ON_USER FOREIGN KEY (user_id) REFERENCES users (id);
+
+CREATE INDEX idx_balance_operations_user_id ON balance_operations (user_id, id DESC);
+
+CREATE FUNCTION forbid_balance_operations_change() RETURNS TRIGGER
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    RAISE EXCEPTION 'balance_operations is append-only';
+END;
+$$;
+
+CREATE TRIGGER trg_balance_operations_append_only
+    BEFORE UPDATE OR DELETE
+    ON balance_operations
+    FOR EACH ROW
+EXECUTE FUNCTION forbid_balance_operations_change();
+
+-- balances before the ledger are its first operations
+INSERT INTO balance_operations (user_id, amount, type, created_at)
+SELECT id, balance, 'OPENING_BALANCE', (extract(EPOCH FROM now()) * 1000)::BIGINT
+FROM users
+WHERE balance <> 0;
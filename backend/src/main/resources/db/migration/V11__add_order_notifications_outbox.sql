@@ -0,0 +1,19 @@
+-- telegram notifications written in the transaction of the order change and sent after it,
+-- see OrderNotificationsDispatcher. next_attempt_at is NULL for notifications given up on.
+CREATE TABLE order_notifications_outbox
+(
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    type            TEXT                                    NOT NULL,
+    order_id        BIGINT                                  NOT NULL,
+    recipient_id    BIGINT,
+    message         TEXT,
+    attempts        INTEGER                                 NOT NULL,
+    next_attempt_at BIGINT,
+    last_error      TEXT,
+    created_at      BIGINT                                  NOT NULL,
+    CONSTRAINT pk_order_notifications_outbox PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_order_notifications_outbox_next_attempt_at
+    ON order_notifications_outbox (next_attempt_at)
+    WHERE next_attempt_at IS NOT NULL;
@@ -0,0 +1,9 @@
+-- order link tokens are exchanged for a session once, see OrderLinksService
+CREATE TABLE used_order_link_tokens
+(
+    token_id   TEXT   NOT NULL,
+    expires_at BIGINT NOT NULL,
+    CONSTRAINT pk_used_order_link_tokens PRIMARY KEY (token_id)
+);
+
+CREATE INDEX idx_used_order_link_tokens_expires_at ON used_order_link_tokens (expires_at);
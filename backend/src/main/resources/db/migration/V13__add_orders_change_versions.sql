@@ -0,0 +1,10 @@
+-- counters of changes, the polled orders feeds answer with 304 while they are unchanged,
+-- see OrdersVersionsService
+ALTER TABLE orders
+    ADD COLUMN change_version BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE users
+    ADD COLUMN orders_change_version BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE region
+    ADD COLUMN orders_change_version BIGINT NOT NULL DEFAULT 0;
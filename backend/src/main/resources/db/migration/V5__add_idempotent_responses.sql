@@ -0,0 +1,13 @@
+CREATE TABLE idempotent_responses
+(
+    idempotency_key TEXT    NOT NULL,
+    -- SHA-256 of the request body, a key reused with another body is rejected
+    request_hash    TEXT,
+    status          INTEGER NOT NULL,
+    content_type    TEXT,
+    body            BYTEA   NOT NULL,
+    created_at      BIGINT  NOT NULL,
+    CONSTRAINT pk_idempotent_responses PRIMARY KEY (idempotency_key)
+);
+
+CREATE INDEX idx_idempotent_responses_created_at ON idempotent_responses (created_at);
@@ -0,0 +1,24 @@
+ALTER TABLE orders
+    ADD COLUMN status_rank INTEGER;
+
+UPDATE orders
+SET status_rank = CASE status
+                      WHEN 'CREATED' THEN 1
+                      WHEN 'CALCULATING' THEN 2
+                      WHEN 'REVIEWING' THEN 3
+                      WHEN 'ACCEPTED' THEN 4
+                      WHEN 'COMPLETED' THEN 5
+                      WHEN 'CANCEL' THEN 6
+                      ELSE 7
+    END;
+
+ALTER TABLE orders
+    ALTER COLUMN status_rank SET NOT NULL;
+
+CREATE INDEX idx_orders_status_rank_id ON orders (status_rank, id DESC);
+
+CREATE INDEX idx_orders_master_status_rank_id ON orders (master_id, status_rank, id DESC);
+
+CREATE INDEX idx_orders_customer_status_rank_id ON orders (customer_id, status_rank, id DESC);
+
+CREATE INDEX idx_orders_driver_status_rank_id ON orders (driver_id, status_rank, id DESC);
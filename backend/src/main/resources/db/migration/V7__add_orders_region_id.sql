@@ -0,0 +1,13 @@
+ALTER TABLE orders
+    ADD COLUMN region_id BIGINT;
+
+UPDATE orders
+SET region_id = address.region_id
+FROM address
+WHERE address.id = orders.address_id;
+
+ALTER TABLE orders
+    ADD CONSTRAINT FK_ORDERS_ON_REGION FOREIGN KEY (region_id) REFERENCES region (id);
+
+-- new orders of a region, the master feed reads them page by page
+CREATE INDEX idx_orders_region_created_id ON orders (region_id, id DESC) WHERE status = 'CREATED';
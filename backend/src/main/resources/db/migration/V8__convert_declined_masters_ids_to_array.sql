@@ -0,0 +1,12 @@
+ALTER TABLE orders
+    ALTER COLUMN declined_masters_ids TYPE BIGINT[]
+        USING COALESCE(string_to_array(NULLIF(declined_masters_ids, ''), ',')::BIGINT[], '{}');
+
+-- keep the ids sorted, the application looks a master up by a binary search
+UPDATE orders
+SET declined_masters_ids = ARRAY(SELECT unnest(declined_masters_ids) ORDER BY 1)
+WHERE cardinality(declined_masters_ids) > 1;
+
+ALTER TABLE orders
+    ALTER COLUMN declined_masters_ids SET DEFAULT '{}',
+    ALTER COLUMN declined_masters_ids SET NOT NULL;
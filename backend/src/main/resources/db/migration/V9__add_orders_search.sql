@@ -0,0 +1,119 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- search_text is everything an order is found by: its texts, the autos and the driver's phone.
+-- search_document is the same for the full-text search, identifiers weigh more than texts.
+ALTER TABLE orders
+    ADD COLUMN search_text     TEXT     NOT NULL DEFAULT '',
+    ADD COLUMN search_document TSVECTOR NOT NULL DEFAULT ''::TSVECTOR;
+
+CREATE FUNCTION refresh_orders_search(orders_ids BIGINT[]) RETURNS VOID
+    LANGUAGE sql AS
+$$
+UPDATE orders o
+SET search_text     = concat_ws(' ', s.identifiers, o.description, o.notes),
+    search_document = setweight(to_tsvector('russian', s.identifiers), 'A') ||
+                      setweight(to_tsvector('russian', concat_ws(' ', o.description, o.notes)),
+                                'B')
+FROM (SELECT so.id,
+             concat_ws(' ',
+                       (SELECT string_agg(concat_ws(' ', a.vin, a.number, a.brand, a.model), ' ')
+                        FROM order_to_auto_assosiation oa
+                                 JOIN auto a ON a.id = oa.auto_id
+                        WHERE oa.order_id = so.id),
+                       (SELECT u.phone FROM users u WHERE u.id = so.driver_id)) AS identifiers
+      FROM orders so
+      WHERE so.id = ANY (orders_ids)) s
+WHERE o.id = s.id;
+$$;
+
+CREATE FUNCTION refresh_order_search_on_order_change() RETURNS TRIGGER
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    PERFORM refresh_orders_search(ARRAY [NEW.id]);
+    RETURN NULL;
+END;
+$$;
+
+-- the refresh itself updates only the search columns, so it does not fire these triggers again
+CREATE TRIGGER trg_orders_search_insert
+    AFTER INSERT
+    ON orders
+    FOR EACH ROW
+EXECUTE FUNCTION refresh_order_search_on_order_change();
+
+CREATE TRIGGER trg_orders_search_update
+    AFTER UPDATE OF description, notes, driver_id
+    ON orders
+    FOR EACH ROW
+    WHEN (OLD.description IS DISTINCT FROM NEW.description OR
+          OLD.notes IS DISTINCT FROM NEW.notes OR
+          OLD.driver_id IS DISTINCT FROM NEW.driver_id)
+EXECUTE FUNCTION refresh_order_search_on_order_change();
+
+CREATE FUNCTION refresh_order_search_on_auto_link_change() RETURNS TRIGGER
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        PERFORM refresh_orders_search(ARRAY [OLD.order_id]);
+    ELSE
+        PERFORM refresh_orders_search(ARRAY [NEW.order_id]);
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER trg_order_to_auto_assosiation_search
+    AFTER INSERT OR UPDATE OR DELETE
+    ON order_to_auto_assosiation
+    FOR EACH ROW
+EXECUTE FUNCTION refresh_order_search_on_auto_link_change();
+
+CREATE FUNCTION refresh_order_search_on_auto_change() RETURNS TRIGGER
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    PERFORM refresh_orders_search(ARRAY(SELECT oa.order_id
+                                        FROM order_to_auto_assosiation oa
+                                        WHERE oa.auto_id = NEW.id));
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER trg_auto_search_update
+    AFTER UPDATE OF brand, model, vin, number
+    ON auto
+    FOR EACH ROW
+    WHEN (OLD.brand IS DISTINCT FROM NEW.brand OR
+          OLD.model IS DISTINCT FROM NEW.model OR
+          OLD.vin IS DISTINCT FROM NEW.vin OR
+          OLD.number IS DISTINCT FROM NEW.number)
+EXECUTE FUNCTION refresh_order_search_on_auto_change();
+
+CREATE FUNCTION refresh_order_search_on_driver_change() RETURNS TRIGGER
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    PERFORM refresh_orders_search(ARRAY(SELECT o.id FROM orders o WHERE o.driver_id = NEW.id));
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER trg_users_search_update
+    AFTER UPDATE OF phone
+    ON users
+    FOR EACH ROW
+    WHEN (OLD.phone IS DISTINCT FROM NEW.phone)
+EXECUTE FUNCTION refresh_order_search_on_driver_change();
+
+-- orders of an auto, for the trigger above
+CREATE INDEX idx_order_to_auto_assosiation_auto_id ON order_to_auto_assosiation (auto_id);
+CREATE INDEX idx_order_to_auto_assosiation_order_id ON order_to_auto_assosiation (order_id);
+
+SELECT refresh_orders_search(ARRAY(SELECT id FROM orders));
+
+-- full-text matches: search_document @@ query
+CREATE INDEX idx_orders_search_document ON orders USING GIN (search_document);
+-- fuzzy matches of parts of VINs, plate numbers and phones: :query <% search_text
+CREATE INDEX idx_orders_search_text ON orders USING GIN (search_text gin_trgm_ops);
@@ -0,0 +1,68 @@
+package ru.gruzhub.orders.orders;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.gruzhub.orders.orders.enums.OrderStatus;
+import ru.gruzhub.orders.orders.models.Order;
+import ru.gruzhub.orders.orders.repositories.OrderRepository;
+import ru.gruzhub.orders.orders.services.CreatedOrdersIndex;
+import ru.gruzhub.orders.orders.services.OrdersVersionsService;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class CreatedOrdersIndexTest {
+    private static final Long MASTER_ID = 0L;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private CreatedOrdersIndex createdOrdersIndex;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrdersVersionsService ordersVersionsService;
+
+    @Test
+    void testNewOrderIsLoadedIntoRegion() {
+        Long regionId = new Random().nextLong(20, 50);
+        // loads the region before the order exists
+        this.createdOrdersIndex.getRegionOrders(regionId, MASTER_ID, null, null);
+
+        Long orderId =
+            OrdersWorkflowTestHelper.createOrder(this.restTemplate, regionId, null, null, null)
+                                    .getOrderId();
+
+        assertTrue(this.containsOrder(regionId, orderId));
+    }
+
+    @Test
+    void testRegionIsReloadedOnlyAfterItsVersionChanges() {
+        Long regionId = new Random().nextLong(20, 50);
+        Long orderId =
+            OrdersWorkflowTestHelper.createOrder(this.restTemplate, regionId, null, null, null)
+                                    .getOrderId();
+        assertTrue(this.containsOrder(regionId, orderId));
+
+        // cancelled like by another instance, which bumps the versions in its transaction
+        Order order = this.orderRepository.findById(orderId).orElseThrow();
+        order.setStatus(OrderStatus.CANCEL);
+        this.orderRepository.save(order);
+        assertTrue(this.containsOrder(regionId, orderId));
+
+        this.ordersVersionsService.orderChanged(order);
+        assertFalse(this.containsOrder(regionId, orderId));
+    }
+
+    private boolean containsOrder(Long regionId, Long orderId) {
+        return this.createdOrdersIndex.getRegionOrders(regionId, MASTER_ID, null, null)
+                                      .stream()
+                                      .anyMatch(order -> order.getId().equals(orderId));
+    }
+}
@@ -0,0 +1,119 @@
+package ru.gruzhub.orders.orders;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import ru.gruzhub.orders.orders.dto.CreateOrderResponseDto;
+import ru.gruzhub.orders.orders.dto.OrderEventsTokenResponseDto;
+import ru.gruzhub.users.UserRepository;
+import ru.gruzhub.users.UsersService;
+import ru.gruzhub.users.enums.UserRole;
+import ru.gruzhub.users.testing.UserTestingHelper;
+import ru.gruzhub.users.testing.dto.TestAuthDataDto;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class OrderEventsControllerTest {
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private UsersService usersService;
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void testMasterReceivesRegionOrderEvents() throws Exception {
+        long regionId = new Random().nextLong(20, 50);
+        UserTestingHelper userTestingHelper =
+            new UserTestingHelper(this.usersService, this.userRepository);
+        TestAuthDataDto master = userTestingHelper.signUp(UserRole.MASTER, regionId);
+
+        String token = this.createEventsToken(master.getAccessToken());
+        HttpResponse<Stream<String>> response = this.subscribe(token);
+        assertEquals(200, response.statusCode());
+
+        try (Stream<String> lines = response.body()) {
+            CreateOrderResponseDto order =
+                OrdersWorkflowTestHelper.createOrder(this.restTemplate, regionId, null, null, null);
+
+            String orderCreatedData = assertTimeoutPreemptively(
+                Duration.ofSeconds(10),
+                () -> lines.filter(line -> line.startsWith("data:") &&
+                                           line.contains("\"orderId\":" + order.getOrderId()))
+                           .findFirst()
+                           .orElseThrow());
+
+            assertTrue(orderCreatedData.contains("ORDER_CREATED"));
+        }
+    }
+
+    @Test
+    void testSessionTokenIsNotAcceptedAsParameter() throws Exception {
+        UserTestingHelper userTestingHelper =
+            new UserTestingHelper(this.usersService, this.userRepository);
+        TestAuthDataDto master = userTestingHelper.signUp(UserRole.MASTER, null);
+
+        HttpResponse<Stream<String>> response = this.subscribe(master.getAccessToken());
+        response.body().close();
+
+        assertEquals(401, response.statusCode());
+    }
+
+    @Test
+    void testEventsTokenIsUsedOnce() throws Exception {
+        UserTestingHelper userTestingHelper =
+            new UserTestingHelper(this.usersService, this.userRepository);
+        TestAuthDataDto master = userTestingHelper.signUp(UserRole.MASTER, null);
+        String token = this.createEventsToken(master.getAccessToken());
+
+        HttpResponse<Stream<String>> firstResponse = this.subscribe(token);
+        firstResponse.body().close();
+        HttpResponse<Stream<String>> secondResponse = this.subscribe(token);
+        secondResponse.body().close();
+
+        assertEquals(200, firstResponse.statusCode());
+        assertEquals(401, secondResponse.statusCode());
+    }
+
+    private String createEventsToken(String accessToken) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", accessToken);
+        ResponseEntity<OrderEventsTokenResponseDto> response =
+            this.restTemplate.postForEntity("/orders/events/token",
+                                            new HttpEntity<>(headers),
+                                            OrderEventsTokenResponseDto.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        return response.getBody().getToken();
+    }
+
+    private HttpResponse<Stream<String>> subscribe(String token) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(
+                                             this.restTemplate.getRootUri() +
+                                             "/orders/events?token=" +
+                                             URLEncoder.encode(token, StandardCharsets.UTF_8)))
+                                         .header("Accept", "text/event-stream")
+                                         .GET()
+                                         .build();
+        return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofLines());
+    }
+}
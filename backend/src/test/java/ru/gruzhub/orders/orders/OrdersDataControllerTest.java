@@ -1,15 +1,22 @@
 package ru.gruzhub.orders.orders;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.Random;
 import java.util.UUID;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
@@ -25,6 +32,7 @@ import org.springframework.test.context.ActiveProfiles;
 import ru.gruzhub.orders.auto.dto.AutoResponseDto;
 import ru.gruzhub.orders.orders.dto.CreateOrderRequestDto;
 import ru.gruzhub.orders.orders.dto.CreateOrderResponseDto;
+import ru.gruzhub.orders.orders.dto.GetOrdersRequestDto;
 import ru.gruzhub.orders.orders.dto.OrderResponseDto;
 import ru.gruzhub.orders.orders.dto.OrderStatusChangeDto;
 import ru.gruzhub.orders.orders.dto.UpdateOrderAutoRequestDto;
@@ -85,6 +93,159 @@ public class OrdersDataControllerTest {
         assertEquals(order1BySameDriver.getDriverId(), orders.get(1).getDriverId());
     }
 
+    @Test
+    void testGetDriverOrdersByPages() {
+        CreateOrderRequestDto firstOrderRequest = OrdersWorkflowTestHelper.createOrderRequest();
+        CreateOrderResponseDto firstOrder =
+            OrdersWorkflowTestHelper.createOrder(this.restTemplate, null, firstOrderRequest, null);
+        for (int i = 0; i < 2; i++) {
+            CreateOrderRequestDto orderRequest = OrdersWorkflowTestHelper.createOrderRequest();
+            orderRequest.setDriverPhone(firstOrderRequest.getDriverPhone());
+            OrdersWorkflowTestHelper.createOrder(this.restTemplate, null, orderRequest, null);
+        }
+
+        ResponseEntity<OrderResponseDto[]> firstPage =
+            OrdersDataTestHelper.getOrdersPage(this.restTemplate,
+                                               firstOrder.getAccessToken(),
+                                               2,
+                                               null);
+        String nextCursor = firstPage.getHeaders().getFirst("X-Next-Cursor");
+        assertEquals(2, Objects.requireNonNull(firstPage.getBody()).length);
+        assertNotNull(nextCursor);
+
+        ResponseEntity<OrderResponseDto[]> secondPage =
+            OrdersDataTestHelper.getOrdersPage(this.restTemplate,
+                                               firstOrder.getAccessToken(),
+                                               2,
+                                               nextCursor);
+        assertEquals(1, Objects.requireNonNull(secondPage.getBody()).length);
+        assertNull(secondPage.getHeaders().getFirst("X-Next-Cursor"));
+        assertEquals(firstOrder.getOrderId(), secondPage.getBody()[0].getId());
+        assertTrue(firstPage.getBody()[1].getId() > secondPage.getBody()[0].getId());
+    }
+
+    @Test
+    void testGetDriverOrdersNotModified() {
+        CreateOrderResponseDto order =
+            OrdersWorkflowTestHelper.createOrder(this.restTemplate, null, null, null);
+        String driverToken = order.getAccessToken();
+
+        ResponseEntity<OrderResponseDto[]> firstResponse =
+            OrdersDataTestHelper.getOrdersIfNoneMatch(this.restTemplate, driverToken, null);
+        assertEquals(HttpStatus.OK, firstResponse.getStatusCode());
+        String etag = firstResponse.getHeaders().getETag();
+        assertNotNull(etag);
+
+        ResponseEntity<OrderResponseDto[]> unchangedResponse =
+            OrdersDataTestHelper.getOrdersIfNoneMatch(this.restTemplate, driverToken, etag);
+        assertEquals(HttpStatus.NOT_MODIFIED, unchangedResponse.getStatusCode());
+
+        OrdersWorkflowTestHelper.cancelOrder(this.restTemplate,
+                                             driverToken,
+                                             order.getOrderId(),
+                                             "Cancel comment");
+
+        ResponseEntity<OrderResponseDto[]> changedResponse =
+            OrdersDataTestHelper.getOrdersIfNoneMatch(this.restTemplate, driverToken, etag);
+        assertEquals(HttpStatus.OK, changedResponse.getStatusCode());
+        assertEquals(OrderStatus.CANCEL,
+                     Objects.requireNonNull(changedResponse.getBody())[0].getStatus());
+    }
+
+    @Test
+    void testGetMasterOrdersModifiedByNewRegionOrder() {
+        Long regionId = new Random().nextLong(20, 50);
+        TestAuthDataDto master = this.userTestingHelper.signUp(UserRole.MASTER, regionId);
+
+        ResponseEntity<OrderResponseDto[]> firstResponse =
+            OrdersDataTestHelper.getOrdersIfNoneMatch(this.restTemplate,
+                                                      master.getAccessToken(),
+                                                      null);
+        String etag = firstResponse.getHeaders().getETag();
+        assertNotNull(etag);
+        assertEquals(HttpStatus.NOT_MODIFIED,
+                     OrdersDataTestHelper.getOrdersIfNoneMatch(this.restTemplate,
+                                                               master.getAccessToken(),
+                                                               etag).getStatusCode());
+
+        CreateOrderResponseDto createdOrder =
+            OrdersWorkflowTestHelper.createOrder(this.restTemplate, regionId, null, null, null);
+
+        ResponseEntity<OrderResponseDto[]> changedResponse =
+            OrdersDataTestHelper.getOrdersIfNoneMatch(this.restTemplate,
+                                                      master.getAccessToken(),
+                                                      etag);
+        assertEquals(HttpStatus.OK, changedResponse.getStatusCode());
+        assertTrue(Arrays.stream(Objects.requireNonNull(changedResponse.getBody()))
+                         .anyMatch(order -> order.getId().equals(createdOrder.getOrderId())));
+    }
+
+    @Test
+    void testSearchOrdersRequest() {
+        CreateOrderResponseDto order =
+            OrdersWorkflowTestHelper.createOrder(this.restTemplate, null, null, null);
+        String driverToken = order.getAccessToken();
+
+        // the search itself runs on PostgreSQL only, these checks come before it
+        assertEquals(HttpStatus.BAD_REQUEST,
+                     OrdersDataTestHelper.searchOrders(this.restTemplate, driverToken, " ")
+                                         .getStatusCode());
+        assertEquals(HttpStatus.FORBIDDEN,
+                     OrdersDataTestHelper.searchOrders(this.restTemplate, driverToken, "VIN")
+                                         .getStatusCode());
+    }
+
+    @Test
+    void testAdminGetsOrdersFromBulkhead() {
+        CreateOrderResponseDto order =
+            OrdersWorkflowTestHelper.createOrder(this.restTemplate, null, null, null);
+        TestAuthDataDto admin = this.userTestingHelper.signUp(UserRole.ADMIN);
+
+        ResponseEntity<OrderResponseDto[]> response =
+            OrdersDataTestHelper.getOrdersIfNoneMatch(this.restTemplate,
+                                                      admin.getAccessToken(),
+                                                      null);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        // the admin feed spans all orders and is never answered with 304
+        assertNull(response.getHeaders().getETag());
+        assertTrue(Arrays.stream(Objects.requireNonNull(response.getBody()))
+                         .anyMatch(responseOrder -> responseOrder.getId()
+                                                                 .equals(order.getOrderId())));
+    }
+
+    @Test
+    void testExportOrders() throws Exception {
+        CreateOrderResponseDto order =
+            OrdersWorkflowTestHelper.createOrder(this.restTemplate, null, null, null);
+        TestAuthDataDto admin = this.userTestingHelper.signUp(UserRole.ADMIN);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", admin.getAccessToken());
+        GetOrdersRequestDto filters = new GetOrdersRequestDto();
+        filters.setStatuses(List.of(OrderStatus.CREATED));
+
+        ResponseEntity<byte[]> response =
+            this.restTemplate.exchange("/orders-export/xlsx",
+                                       HttpMethod.POST,
+                                       new HttpEntity<>(filters, headers),
+                                       byte[].class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+
+        try (XSSFWorkbook workbook =
+                 new XSSFWorkbook(new ByteArrayInputStream(response.getBody()))) {
+            Sheet sheet = workbook.getSheetAt(0);
+            boolean isOrderExported = false;
+            for (Row row : sheet) {
+                if (row.getRowNum() > 0 &&
+                    (long) row.getCell(0).getNumericCellValue() == order.getOrderId()) {
+                    assertEquals(OrderStatus.CREATED.name(), row.getCell(1).getStringCellValue());
+                    isOrderExported = true;
+                }
+            }
+            assertTrue(isOrderExported);
+        }
+    }
+
     @Test
     void testGetOrderStatusChanges() {
         CreateOrderResponseDto orderResponse =
@@ -153,6 +314,67 @@ public class OrdersDataControllerTest {
         assertTrue(ordersIds.contains(createdOrder.getOrderId()));
     }
 
+    @Test
+    void testMasterGetsOrdersByIds() {
+        Long regionId = new Random().nextLong(20, 50);
+
+        TestAuthDataDto masterAuthData = this.userTestingHelper.signUp(UserRole.MASTER, regionId);
+        CreateOrderResponseDto regionOrder =
+            OrdersWorkflowTestHelper.createOrder(this.restTemplate, regionId, null, null, null);
+        CreateOrderResponseDto otherRegionOrder =
+            OrdersWorkflowTestHelper.createOrder(this.restTemplate, regionId + 1, null, null, null);
+
+        List<OrderResponseDto> orders =
+            OrdersDataTestHelper.getOrdersByIds(this.restTemplate,
+                                                masterAuthData.getAccessToken(),
+                                                List.of(otherRegionOrder.getOrderId(),
+                                                        regionOrder.getOrderId()));
+
+        assertEquals(1, orders.size());
+        assertEquals(regionOrder.getOrderId(), orders.getFirst().getId());
+        assertFalse(orders.getFirst().getAutos().isEmpty());
+    }
+
+    @Test
+    void testMasterDoesNotGetDeclinedOrder() {
+        Long regionId = new Random().nextLong(20, 50);
+
+        TestAuthDataDto decliningMaster =
+            this.userTestingHelper.signUp(UserRole.MASTER, regionId);
+        TestAuthDataDto otherMaster = this.userTestingHelper.signUp(UserRole.MASTER, regionId);
+        CreateOrderResponseDto createdOrder =
+            OrdersWorkflowTestHelper.createOrder(this.restTemplate, regionId, null, null, null);
+        Long orderId = createdOrder.getOrderId();
+
+        ResponseEntity<String> takeResponse =
+            OrdersWorkflowTestHelper.startCalculationByMaster(this.restTemplate,
+                                                              decliningMaster.getAccessToken(),
+                                                              orderId);
+        assertEquals(HttpStatus.OK, takeResponse.getStatusCode());
+        OrdersWorkflowTestHelper.declineOrderMaster(this.restTemplate,
+                                                    decliningMaster.getAccessToken(),
+                                                    orderId,
+                                                    "Не подходит");
+
+        List<OrderResponseDto> decliningMasterOrders =
+            OrdersDataTestHelper.getOrders(this.restTemplate,
+                                           decliningMaster.getAccessToken(),
+                                           null);
+        assertTrue(decliningMasterOrders.stream()
+                                        .noneMatch(order -> order.getId().equals(orderId)));
+        assertTrue(OrdersDataTestHelper.getOrdersByIds(this.restTemplate,
+                                                       decliningMaster.getAccessToken(),
+                                                       List.of(orderId)).isEmpty());
+
+        List<OrderResponseDto> otherMasterOrders =
+            OrdersDataTestHelper.getOrders(this.restTemplate, otherMaster.getAccessToken(), null);
+        assertTrue(otherMasterOrders.stream().anyMatch(order -> order.getId().equals(orderId)));
+        assertEquals(1,
+                     OrdersDataTestHelper.getOrdersByIds(this.restTemplate,
+                                                         otherMaster.getAccessToken(),
+                                                         List.of(orderId)).size());
+    }
+
     @Test
     void testGetAutoOrders() {
         CreateOrderRequestDto orderToCreate = OrdersWorkflowTestHelper.createOrderRequest();
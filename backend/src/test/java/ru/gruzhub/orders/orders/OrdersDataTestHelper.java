@@ -12,8 +12,10 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import ru.gruzhub.orders.auto.dto.AutoResponseDto;
+import ru.gruzhub.orders.orders.dto.GetOrdersByIdsRequestDto;
 import ru.gruzhub.orders.orders.dto.GetOrdersRequestDto;
 import ru.gruzhub.orders.orders.dto.OrderResponseDto;
+import ru.gruzhub.orders.orders.dto.SearchOrdersRequestDto;
 import ru.gruzhub.orders.orders.enums.OrderStatus;
 
 public class OrdersDataTestHelper {
@@ -56,4 +58,75 @@ public class OrdersDataTestHelper {
         assertEquals(HttpStatus.OK, response.getStatusCode());
         return Arrays.asList(Objects.requireNonNull(response.getBody()));
     }
+
+    public static ResponseEntity<OrderResponseDto[]> getOrdersPage(TestRestTemplate restTemplate,
+                                                                   String accessToken,
+                                                                   Integer limit,
+                                                                   String cursor) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", accessToken);
+
+        GetOrdersRequestDto requestDto = new GetOrdersRequestDto();
+        requestDto.setLimit(limit);
+        requestDto.setCursor(cursor);
+
+        ResponseEntity<OrderResponseDto[]> response =
+            restTemplate.exchange("/orders/orders",
+                                  HttpMethod.POST,
+                                  new HttpEntity<>(requestDto, headers),
+                                  OrderResponseDto[].class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        return response;
+    }
+
+    public static ResponseEntity<OrderResponseDto[]> getOrdersIfNoneMatch(
+        TestRestTemplate restTemplate,
+        String accessToken,
+        String etag) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", accessToken);
+        if (etag != null) {
+            headers.setIfNoneMatch(etag);
+        }
+
+        return restTemplate.exchange("/orders/orders",
+                                     HttpMethod.POST,
+                                     new HttpEntity<>(new GetOrdersRequestDto(), headers),
+                                     OrderResponseDto[].class);
+    }
+
+    public static ResponseEntity<String> searchOrders(TestRestTemplate restTemplate,
+                                                      String accessToken,
+                                                      String query) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", accessToken);
+
+        SearchOrdersRequestDto requestDto = new SearchOrdersRequestDto();
+        requestDto.setQuery(query);
+
+        return restTemplate.exchange("/orders/search",
+                                     HttpMethod.POST,
+                                     new HttpEntity<>(requestDto, headers),
+                                     String.class);
+    }
+
+    public static List<OrderResponseDto> getOrdersByIds(TestRestTemplate restTemplate,
+                                                        String accessToken,
+                                                        List<Long> ordersIds) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", accessToken);
+
+        GetOrdersByIdsRequestDto requestDto = new GetOrdersByIdsRequestDto();
+        requestDto.setOrdersIds(ordersIds);
+
+        ResponseEntity<OrderResponseDto[]> response =
+            restTemplate.exchange("/orders/batch",
+                                  HttpMethod.POST,
+                                  new HttpEntity<>(requestDto, headers),
+                                  OrderResponseDto[].class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        return Arrays.asList(Objects.requireNonNull(response.getBody()));
+    }
 }
@@ -0,0 +1,175 @@
+package ru.gruzhub.orders.orders;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import jakarta.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.gruzhub.orders.auto.dto.AutoResponseDto;
+import ru.gruzhub.orders.messages.OrderMessagesControllerHelper;
+import ru.gruzhub.orders.messages.dto.OrderMessageDto;
+import ru.gruzhub.orders.orders.dto.AuthWithOrderDto;
+import ru.gruzhub.orders.orders.dto.OrderResponseDto;
+import ru.gruzhub.orders.orders.dto.OrderWithUsersDto;
+import ru.gruzhub.orders.tasks.TasksTestHelper;
+import ru.gruzhub.orders.tasks.dto.TaskResponseDto;
+import ru.gruzhub.users.UserRepository;
+import ru.gruzhub.users.UsersService;
+import ru.gruzhub.users.enums.UserRole;
+import ru.gruzhub.users.testing.UserTestingHelper;
+import ru.gruzhub.users.testing.dto.TestAuthDataDto;
+
+/**
+ * Checks that the number of SQL statements of the main reads does not grow with the number
+ * of rows, i.e. that associations are loaded by joins or batches and not one by one.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class OrdersFetchPlanTest {
+    private static final int ROWS_COUNT = 10;
+    private static final BigDecimal ORDERS_TOP_UP_RUB = new BigDecimal("20000");
+    private static final int MAX_STATEMENTS_COUNT = 15;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private UsersService usersService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        this.statistics =
+            this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.statistics.setStatisticsEnabled(true);
+    }
+
+    @Test
+    void testOrdersListStatementsCount() {
+        long regionId = new Random().nextLong(20, 50);
+        UserTestingHelper userTestingHelper =
+            new UserTestingHelper(this.usersService, this.userRepository);
+        TestAuthDataDto master = userTestingHelper.signUp(UserRole.MASTER, regionId);
+        // the start balance pays for fewer orders than the list needs
+        this.usersService.increaseUserBalance(master.getUserId(), ORDERS_TOP_UP_RUB);
+
+        for (int i = 0; i < ROWS_COUNT; i++) {
+            OrdersWorkflowTestHelper.createOrderWithAttachedUsers(this.usersService,
+                                                                  this.userRepository,
+                                                                  this.restTemplate,
+                                                                  UserRole.DRIVER,
+                                                                  master.getAccessToken(),
+                                                                  regionId);
+        }
+
+        long statementsCount = this.countStatements(() -> {
+            List<OrderResponseDto> orders =
+                OrdersDataTestHelper.getOrders(this.restTemplate, master.getAccessToken(), null);
+            assertTrue(orders.size() >= ROWS_COUNT);
+        });
+
+        assertTrue(statementsCount <= MAX_STATEMENTS_COUNT,
+                   "Orders list took " + statementsCount + " statements");
+    }
+
+    @Test
+    void testOrderDetailsStatementsCount() {
+        AuthWithOrderDto masterWithOrder =
+            OrdersWorkflowTestHelper.createMasterWithOrderAndTakeIntoWork(this.restTemplate,
+                                                                          this.usersService,
+                                                                          this.userRepository);
+        String masterToken = masterWithOrder.getAuthData().getAccessToken();
+        Long orderId = masterWithOrder.getOrder().getId();
+
+        long statementsCount = this.countStatements(() -> {
+            OrderResponseDto order =
+                OrdersWorkflowTestHelper.getOrder(this.restTemplate, orderId, masterToken);
+            assertEquals(2, order.getAutos().size());
+        });
+
+        assertTrue(statementsCount <= MAX_STATEMENTS_COUNT,
+                   "Order details took " + statementsCount + " statements");
+    }
+
+    @Test
+    void testOrderMessagesStatementsCount() {
+        OrderWithUsersDto orderWithUsers =
+            OrdersWorkflowTestHelper.createOrderWithAttachedUsers(this.usersService,
+                                                                  this.userRepository,
+                                                                  this.restTemplate,
+                                                                  UserRole.DRIVER,
+                                                                  null,
+                                                                  null);
+
+        for (int i = 0; i < ROWS_COUNT; i++) {
+            String senderToken = i % 2 == 0
+                                 ? orderWithUsers.getOrderOwnerToken()
+                                 : orderWithUsers.getMasterToken();
+            OrderMessagesControllerHelper.sendMessage(this.restTemplate,
+                                                      orderWithUsers.getOrderId(),
+                                                      senderToken);
+        }
+
+        long statementsCount = this.countStatements(() -> {
+            List<OrderMessageDto> messages =
+                OrderMessagesControllerHelper.getOrderMessages(this.restTemplate,
+                                                               orderWithUsers.getOrderId(),
+                                                               orderWithUsers.getMasterToken());
+            assertEquals(ROWS_COUNT, messages.size());
+        });
+
+        assertTrue(statementsCount <= MAX_STATEMENTS_COUNT,
+                   "Chat history took " + statementsCount + " statements");
+    }
+
+    @Test
+    void testTasksStatementsCount() {
+        AuthWithOrderDto masterWithOrder =
+            OrdersWorkflowTestHelper.createMasterWithOrderAndTakeIntoWork(this.restTemplate,
+                                                                          this.usersService,
+                                                                          this.userRepository);
+        String masterToken = masterWithOrder.getAuthData().getAccessToken();
+        Long orderId = masterWithOrder.getOrder().getId();
+        AutoResponseDto auto = masterWithOrder.getOrder().getAutos().get(0);
+
+        for (int i = 0; i < ROWS_COUNT; i++) {
+            TasksTestHelper.createTask(this.restTemplate,
+                                       TasksTestHelper.createTaskSchema(orderId, auto.getId()),
+                                       masterToken);
+        }
+
+        long statementsCount = this.countStatements(() -> {
+            List<TaskResponseDto> tasks = TasksTestHelper.getOrderAutoTasks(this.restTemplate,
+                                                                            orderId,
+                                                                            auto.getId(),
+                                                                            masterToken);
+            assertEquals(ROWS_COUNT, tasks.size());
+        });
+
+        assertTrue(statementsCount <= MAX_STATEMENTS_COUNT,
+                   "Tasks took " + statementsCount + " statements");
+    }
+
+    private long countStatements(Runnable request) {
+        // the first call also loads the authorized user into the users cache
+        request.run();
+
+        this.statistics.clear();
+        request.run();
+        return this.statistics.getPrepareStatementCount();
+    }
+}
@@ -4,13 +4,24 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
@@ -21,10 +32,17 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.gruzhub.orders.auto.dto.AutoResponseDto;
 import ru.gruzhub.orders.auto.enums.AutoType;
+import ru.gruzhub.orders.notifications.OrderNotificationRepository;
+import ru.gruzhub.orders.notifications.OrderNotificationsDispatcher;
+import ru.gruzhub.orders.notifications.OrderNotificationsOutbox;
+import ru.gruzhub.orders.notifications.enums.OrderNotificationType;
+import ru.gruzhub.orders.notifications.models.OrderNotification;
 import ru.gruzhub.orders.orders.dto.CreateOrderRequestDto;
 import ru.gruzhub.orders.orders.dto.CreateOrderResponseDto;
 import ru.gruzhub.orders.orders.dto.OrderAutoDto;
@@ -38,12 +56,28 @@ import ru.gruzhub.users.testing.dto.TestAuthDataDto;
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
 public class OrdersWorkflowControllerTest {
+    private static final int CONCURRENT_MASTERS_COUNT = 4;
+    private static final BigDecimal TAKE_ORDER_PRICE_RUB = new BigDecimal("2000");
+    // as in OrderNotificationsDispatcher
+    private static final int NOTIFICATION_MAX_ATTEMPTS = 10;
+    private static final long NOTIFICATION_FIRST_RETRY_DELAY_MS = TimeUnit.SECONDS.toMillis(10);
+
     @Autowired
     private TestRestTemplate restTemplate;
     @Autowired
     private UsersService usersService;
     @Autowired
     private UserTestingHelper userTestingHelper;
+    @Autowired
+    private OrderNotificationsOutbox orderNotificationsOutbox;
+    @Autowired
+    private OrderNotificationsDispatcher orderNotificationsDispatcher;
+    @Autowired
+    private OrderNotificationRepository orderNotificationRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     @Test
     void testCreateAnonymousOrder() {
@@ -68,6 +102,107 @@ public class OrdersWorkflowControllerTest {
         assertNotNull(response.getOrderId());
     }
 
+    @Test
+    void testCreateOrderRetryWithIdempotencyKey() {
+        TestAuthDataDto authData = this.userTestingHelper.signUp(UserRole.CUSTOMER);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", authData.getAccessToken());
+        headers.set("Idempotency-Key", UUID.randomUUID().toString());
+        HttpEntity<CreateOrderRequestDto> request =
+            new HttpEntity<>(OrdersWorkflowTestHelper.createOrderRequest(), headers);
+
+        ResponseEntity<CreateOrderResponseDto> firstResponse =
+            this.restTemplate.postForEntity("/orders/create",
+                                            request,
+                                            CreateOrderResponseDto.class);
+        ResponseEntity<CreateOrderResponseDto> retryResponse =
+            this.restTemplate.postForEntity("/orders/create",
+                                            request,
+                                            CreateOrderResponseDto.class);
+
+        assertEquals(HttpStatus.OK, firstResponse.getStatusCode());
+        assertEquals(HttpStatus.OK, retryResponse.getStatusCode());
+        assertNull(firstResponse.getHeaders().getFirst("Idempotent-Replayed"));
+        assertEquals("true", retryResponse.getHeaders().getFirst("Idempotent-Replayed"));
+        assertEquals(firstResponse.getBody().getOrderId(), retryResponse.getBody().getOrderId());
+
+        ResponseEntity<String> otherBodyResponse =
+            this.restTemplate.postForEntity("/orders/create",
+                                            new HttpEntity<>(
+                                                OrdersWorkflowTestHelper.createOrderRequest(),
+                                                headers),
+                                            String.class);
+        assertEquals(HttpStatus.CONFLICT, otherBodyResponse.getStatusCode());
+
+        HttpHeaders newKeyHeaders = new HttpHeaders();
+        newKeyHeaders.set("Authorization", authData.getAccessToken());
+        newKeyHeaders.set("Idempotency-Key", UUID.randomUUID().toString());
+        ResponseEntity<CreateOrderResponseDto> newKeyResponse =
+            this.restTemplate.postForEntity("/orders/create",
+                                            new HttpEntity<>(
+                                                OrdersWorkflowTestHelper.createOrderRequest(),
+                                                newKeyHeaders),
+                                            CreateOrderResponseDto.class);
+        assertNotEquals(firstResponse.getBody().getOrderId(),
+                        newKeyResponse.getBody().getOrderId());
+    }
+
+    @Test
+    void testAuthorizedUserIsResolvedOncePerRequest() {
+        TestAuthDataDto authData = this.userTestingHelper.signUp(UserRole.CUSTOMER);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", authData.getAccessToken());
+        headers.set("Idempotency-Key", UUID.randomUUID().toString());
+        double lookupsBefore = this.getAuthorizedUsersLookups();
+
+        // the rate limit and the idempotency interceptors and the controller need the user
+        ResponseEntity<CreateOrderResponseDto> response =
+            this.restTemplate.postForEntity("/orders/create",
+                                            new HttpEntity<>(
+                                                OrdersWorkflowTestHelper.createOrderRequest(),
+                                                headers),
+                                            CreateOrderResponseDto.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, this.getAuthorizedUsersLookups() - lookupsBefore);
+    }
+
+    @Test
+    void testAnonymousCreateOrderIsNotReplayed() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Idempotency-Key", UUID.randomUUID().toString());
+        HttpEntity<CreateOrderRequestDto> request =
+            new HttpEntity<>(OrdersWorkflowTestHelper.createOrderRequest(), headers);
+
+        ResponseEntity<CreateOrderResponseDto> firstResponse =
+            this.restTemplate.postForEntity("/orders/create",
+                                            request,
+                                            CreateOrderResponseDto.class);
+        ResponseEntity<CreateOrderResponseDto> retryResponse =
+            this.restTemplate.postForEntity("/orders/create",
+                                            request,
+                                            CreateOrderResponseDto.class);
+
+        // the response carries an access token, so the retry is deduplicated by the order
+        assertNull(retryResponse.getHeaders().getFirst("Idempotent-Replayed"));
+        assertEquals(firstResponse.getBody().getOrderId(), retryResponse.getBody().getOrderId());
+    }
+
+    @Test
+    void testIdempotentRequestWithInvalidTokenIsUnauthorized() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", "invalid-token");
+        headers.set("Idempotency-Key", UUID.randomUUID().toString());
+
+        ResponseEntity<String> response =
+            this.restTemplate.postForEntity("/orders/create",
+                                            new HttpEntity<>(
+                                                OrdersWorkflowTestHelper.createOrderRequest(),
+                                                headers),
+                                            String.class);
+        assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+    }
+
     @Test
     void testCreateOrderForExistingAuto() {
         List<OrderAutoDto> autos =
@@ -198,6 +333,57 @@ public class OrdersWorkflowControllerTest {
         assertNotEquals(HttpStatus.OK, response2.getStatusCode());
     }
 
+    @Test
+    void testConcurrentMastersTakeOrderOnce() throws Exception {
+        long regionId = new Random().nextLong(20, 50);
+        List<TestAuthDataDto> masters = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_MASTERS_COUNT; i++) {
+            masters.add(this.userTestingHelper.signUp(UserRole.MASTER, regionId));
+        }
+        BigDecimal initialBalance =
+            this.usersService.getUserById(masters.getFirst().getUserId()).getBalance();
+        CreateOrderResponseDto order =
+            OrdersWorkflowTestHelper.createOrder(this.restTemplate, regionId, null, null, null);
+
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_MASTERS_COUNT);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<HttpStatusCode>> responses = new ArrayList<>();
+        try {
+            for (TestAuthDataDto master : masters) {
+                responses.add(executor.submit(() -> {
+                    start.await();
+                    return OrdersWorkflowTestHelper.startCalculationByMaster(
+                        this.restTemplate,
+                        master.getAccessToken(),
+                        order.getOrderId()).getStatusCode();
+                }));
+            }
+            start.countDown();
+
+            int takenCount = 0;
+            for (Future<HttpStatusCode> response : responses) {
+                if (response.get(30, TimeUnit.SECONDS) == HttpStatus.OK) {
+                    takenCount++;
+                }
+            }
+            assertEquals(1, takenCount);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Long winnerId = OrdersWorkflowTestHelper.getOrder(this.restTemplate,
+                                                          order.getOrderId(),
+                                                          order.getAccessToken())
+                                                .getMasterId();
+        for (TestAuthDataDto master : masters) {
+            BigDecimal balance = this.usersService.getUserById(master.getUserId()).getBalance();
+            BigDecimal expectedBalance = master.getUserId().equals(winnerId)
+                                         ? initialBalance.subtract(TAKE_ORDER_PRICE_RUB)
+                                         : initialBalance;
+            assertEquals(0, expectedBalance.compareTo(balance));
+        }
+    }
+
     @Test
     void testMasterCannotGetForeignMasterOrder() {
         long regionId = new Random().nextLong(20, 50);
@@ -320,4 +506,138 @@ public class OrdersWorkflowControllerTest {
             this.usersService.getUserById(masterAuth.getUserId()).getBalance();
         assertEquals(masterInitialBalance, masterBalanceAfter);
     }
+
+    @Test
+    void testOrderNotificationIsSentAfterCommit() {
+        CreateOrderResponseDto createdOrder =
+            OrdersWorkflowTestHelper.createOrder(this.restTemplate, null, null, null);
+
+        Long notificationId = this.transactionTemplate.execute(status -> {
+            this.orderNotificationsOutbox.sendMessage(createdOrder.getOrderId(),
+                                                      createdOrder.getDriverId(),
+                                                      "message");
+            return this.findOrderNotifications(createdOrder.getOrderId(),
+                                               OrderNotificationType.MESSAGE).get(0).getId();
+        });
+
+        this.dispatchNotificationsUntil(notificationId, Optional::isEmpty);
+        this.dispatchOrderNotifications(createdOrder.getOrderId(),
+                                        OrderNotificationType.ORDER_CREATED);
+    }
+
+    @Test
+    void testRolledBackChangeAddsNoNotification() {
+        long orderId = -new Random().nextLong(1, Long.MAX_VALUE);
+
+        this.transactionTemplate.executeWithoutResult(status -> {
+            this.orderNotificationsOutbox.sendMessage(orderId, 1L, "message");
+            assertEquals(1,
+                         this.findOrderNotifications(orderId, OrderNotificationType.MESSAGE)
+                             .size());
+            status.setRollbackOnly();
+        });
+
+        assertTrue(this.findOrderNotifications(orderId, OrderNotificationType.MESSAGE).isEmpty());
+    }
+
+    @Test
+    void testFailedNotificationIsRetriedWithBackoff() {
+        long orderId = -new Random().nextLong(1, Long.MAX_VALUE);
+        long now = System.currentTimeMillis();
+        // the recipient does not exist, so the notification cannot be sent
+        OrderNotification retried = this.orderNotificationRepository.save(
+            new OrderNotification(null,
+                                  OrderNotificationType.MESSAGE,
+                                  orderId,
+                                  -1L,
+                                  "message",
+                                  0,
+                                  now,
+                                  null,
+                                  now));
+        OrderNotification dropped = this.orderNotificationRepository.save(
+            new OrderNotification(null,
+                                  OrderNotificationType.MESSAGE,
+                                  orderId,
+                                  -1L,
+                                  "message",
+                                  NOTIFICATION_MAX_ATTEMPTS - 1,
+                                  now,
+                                  null,
+                                  now));
+
+        OrderNotification retriedAfter = this.dispatchNotificationsUntil(
+            retried.getId(),
+            notification -> notification.orElseThrow().getLastError() != null).orElseThrow();
+        assertEquals(1, retriedAfter.getAttempts());
+        assertTrue(retriedAfter.getNextAttemptAt() >= now + NOTIFICATION_FIRST_RETRY_DELAY_MS);
+        assertTrue(retriedAfter.getNextAttemptAt() < now + TimeUnit.MINUTES.toMillis(1));
+
+        OrderNotification droppedAfter = this.dispatchNotificationsUntil(
+            dropped.getId(),
+            notification -> notification.orElseThrow().getLastError() != null).orElseThrow();
+        assertEquals(NOTIFICATION_MAX_ATTEMPTS, droppedAfter.getAttempts());
+        assertNull(droppedAfter.getNextAttemptAt());
+    }
+
+    private List<OrderNotification> findOrderNotifications(Long orderId,
+                                                           OrderNotificationType type) {
+        return this.orderNotificationRepository.findAll()
+                                               .stream()
+                                               .filter(notification -> notification.getType() ==
+                                                                       type)
+                                               .filter(notification -> orderId.equals(
+                                                   notification.getOrderId()))
+                                               .toList();
+    }
+
+    /**
+     * The background dispatcher may take the notification first, the result is the same.
+     */
+    private Optional<OrderNotification> dispatchNotificationsUntil(
+        Long notificationId,
+        Predicate<Optional<OrderNotification>> condition) {
+        for (int i = 0; i < 100; i++) {
+            this.orderNotificationsDispatcher.dispatchNotifications();
+            Optional<OrderNotification> notification =
+                this.orderNotificationRepository.findById(notificationId);
+            if (condition.test(notification)) {
+                return notification;
+            }
+            sleep(100);
+        }
+
+        throw new AssertionError("Notification " + notificationId + " was not dispatched");
+    }
+
+    private void dispatchOrderNotifications(Long orderId, OrderNotificationType type) {
+        for (int i = 0; i < 100; i++) {
+            this.orderNotificationsDispatcher.dispatchNotifications();
+            if (this.findOrderNotifications(orderId, type).isEmpty()) {
+                return;
+            }
+            sleep(100);
+        }
+
+        throw new AssertionError("Notification " + type + " of order " + orderId +
+                                 " was not dispatched");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private double getAuthorizedUsersLookups() {
+        return this.meterRegistry.find("cache.gets")
+                                 .tag("cache", "authorized_users")
+                                 .functionCounters()
+                                 .stream()
+                                 .mapToDouble(FunctionCounter::count)
+                                 .sum();
+    }
 }
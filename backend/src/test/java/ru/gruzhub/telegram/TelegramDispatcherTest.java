@@ -0,0 +1,154 @@
+package ru.gruzhub.telegram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.ResponseParameters;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import ru.gruzhub.telegram.services.TelegramDispatcher;
+
+class TelegramDispatcherTest {
+    @Test
+    void testSendsMessagesOfChatInOrder() throws Exception {
+        TelegramBotController bot = mock(TelegramBotController.class);
+        List<String> sentMessages = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            SendMessage sendMessage = invocation.getArgument(0);
+            sentMessages.add(sendMessage.getChatId() + ":" + sendMessage.getText());
+            return null;
+        }).when(bot).sendMessage(any(SendMessage.class));
+
+        TelegramDispatcher dispatcher =
+            new TelegramDispatcher(bot, new SimpleMeterRegistry(), 4, 1000, 0);
+        dispatcher.initialize();
+
+        List<CompletableFuture<Void>> sendings = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            for (long chatId = 1; chatId <= 3; chatId++) {
+                sendings.add(dispatcher.send(chatId, createMessage(chatId, String.valueOf(i))));
+            }
+        }
+        CompletableFuture.allOf(sendings.toArray(CompletableFuture[]::new))
+                         .get(10, TimeUnit.SECONDS);
+
+        for (long chatId = 1; chatId <= 3; chatId++) {
+            String prefix = chatId + ":";
+            List<String> expectedMessages =
+                IntStream.range(0, 20).mapToObj(i -> prefix + i).toList();
+            assertEquals(expectedMessages,
+                         sentMessages.stream().filter(m -> m.startsWith(prefix)).toList(),
+                         "Messages of a chat should be sent in the order they were queued");
+        }
+    }
+
+    @Test
+    void testResendsMessageAfterRetryAfter() throws Exception {
+        TelegramApiRequestException tooManyRequests = mock(TelegramApiRequestException.class);
+        ResponseParameters parameters = mock(ResponseParameters.class);
+        when(tooManyRequests.getErrorCode()).thenReturn(429);
+        when(tooManyRequests.getParameters()).thenReturn(parameters);
+        when(parameters.getRetryAfter()).thenReturn(1);
+
+        TelegramBotController bot = mock(TelegramBotController.class);
+        List<String> sentMessages = Collections.synchronizedList(new ArrayList<>());
+        AtomicBoolean rateLimited = new AtomicBoolean();
+        doAnswer(invocation -> {
+            if (rateLimited.compareAndSet(false, true)) {
+                throw tooManyRequests;
+            }
+            sentMessages.add(((SendMessage) invocation.getArgument(0)).getText());
+            return null;
+        }).when(bot).sendMessage(any(SendMessage.class));
+
+        TelegramDispatcher dispatcher =
+            new TelegramDispatcher(bot, new SimpleMeterRegistry(), 2, 1000, 0);
+        dispatcher.initialize();
+
+        long startNanos = System.nanoTime();
+        CompletableFuture<Void> first = dispatcher.send(1L, createMessage(1L, "first"));
+        CompletableFuture<Void> second = dispatcher.send(1L, createMessage(1L, "second"));
+        CompletableFuture.allOf(first, second).get(10, TimeUnit.SECONDS);
+
+        assertEquals(List.of("first", "second"), sentMessages);
+        assertTrue(System.nanoTime() - startNanos >= TimeUnit.SECONDS.toNanos(1),
+                   "The chat should wait for retry_after");
+    }
+
+    @Test
+    void testDropsCancelledMessage() throws Exception {
+        TelegramBotController bot = mock(TelegramBotController.class);
+        List<String> sentMessages = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch firstSending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            String text = ((SendMessage) invocation.getArgument(0)).getText();
+            if (text.equals("first")) {
+                firstSending.countDown();
+                release.await(10, TimeUnit.SECONDS);
+            }
+            sentMessages.add(text);
+            return null;
+        }).when(bot).sendMessage(any(SendMessage.class));
+
+        TelegramDispatcher dispatcher =
+            new TelegramDispatcher(bot, new SimpleMeterRegistry(), 1, 1000, 0);
+        dispatcher.initialize();
+
+        CompletableFuture<Void> first = dispatcher.send(1L, createMessage(1L, "first"));
+        assertTrue(firstSending.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Void> second = dispatcher.send(1L, createMessage(1L, "second"));
+        CompletableFuture<Void> third = dispatcher.send(1L, createMessage(1L, "third"));
+        second.cancel(false);
+        release.countDown();
+        CompletableFuture.allOf(first, third).get(10, TimeUnit.SECONDS);
+
+        assertEquals(List.of("first", "third"), sentMessages);
+    }
+
+    @Test
+    void testShutdownStopsWorkers() throws Exception {
+        TelegramBotController bot = mock(TelegramBotController.class);
+        List<String> sentMessages = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            sentMessages.add(((SendMessage) invocation.getArgument(0)).getText());
+            return null;
+        }).when(bot).sendMessage(any(SendMessage.class));
+
+        TelegramDispatcher dispatcher =
+            new TelegramDispatcher(bot, new SimpleMeterRegistry(), 2, 1000, 0);
+        dispatcher.initialize();
+        dispatcher.send(1L, createMessage(1L, "before")).get(10, TimeUnit.SECONDS);
+
+        dispatcher.shutdown();
+        // a worker still finishing the chat of the first message stops at its next take
+        Thread.sleep(200);
+        CompletableFuture<Void> afterShutdown = dispatcher.send(1L, createMessage(1L, "after"));
+        Thread.sleep(200);
+
+        assertFalse(afterShutdown.isDone());
+        assertEquals(List.of("before"), sentMessages);
+    }
+
+    private static SendMessage createMessage(long chatId, String text) {
+        SendMessage sendMessage = new SendMessage();
+        sendMessage.setChatId(String.valueOf(chatId));
+        sendMessage.setText(text);
+        return sendMessage;
+    }
+}
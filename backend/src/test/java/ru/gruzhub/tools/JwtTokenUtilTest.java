@@ -0,0 +1,84 @@
+package ru.gruzhub.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import ru.gruzhub.tools.env.EnvVariables;
+import ru.gruzhub.users.models.User;
+
+class JwtTokenUtilTest {
+    private static final String ACTIVE_SECRET = "active-secret-key-long-enough-for-hmac-sha256";
+    private static final String RETIRED_SECRET = "retired-secret-key-long-enough-for-hmac-sha256";
+    private static final String UNKNOWN_SECRET = "unknown-secret-key-long-enough-for-hmac-sha256";
+
+    @Test
+    void testTokenSignedWithRetiredKeyIsValid() {
+        JwtTokenUtil retiredKeyUtil = createJwtTokenUtil(RETIRED_SECRET, "");
+        JwtTokenUtil jwtTokenUtil = createJwtTokenUtil(ACTIVE_SECRET, RETIRED_SECRET);
+        String token = retiredKeyUtil.generateToken(createUser());
+
+        assertEquals(1L, jwtTokenUtil.getClaimsFromToken(token).get("id", Long.class));
+    }
+
+    @Test
+    void testTokenWithoutKeyIdSignedWithRetiredKeyIsValid() {
+        JwtTokenUtil jwtTokenUtil = createJwtTokenUtil(ACTIVE_SECRET, RETIRED_SECRET);
+        String token = Jwts.builder()
+                           .claim("id", 1L)
+                           .signWith(Keys.hmacShaKeyFor(RETIRED_SECRET.getBytes(
+                               StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+                           .compact();
+
+        assertEquals(1L, jwtTokenUtil.getClaimsFromToken(token).get("id", Long.class));
+    }
+
+    @Test
+    void testTokenWithUnknownKeyIdIsRejected() {
+        JwtTokenUtil unknownKeyUtil = createJwtTokenUtil(UNKNOWN_SECRET, "");
+        JwtTokenUtil jwtTokenUtil = createJwtTokenUtil(ACTIVE_SECRET, RETIRED_SECRET);
+        String token = unknownKeyUtil.generateToken(createUser());
+
+        assertThrows(JwtException.class, () -> jwtTokenUtil.getClaimsFromToken(token));
+    }
+
+    @Test
+    void testTokenOfRemovedRetiredKeyIsRejected() {
+        JwtTokenUtil retiredKeyUtil = createJwtTokenUtil(RETIRED_SECRET, "");
+        JwtTokenUtil jwtTokenUtil = createJwtTokenUtil(ACTIVE_SECRET, "");
+        String token = retiredKeyUtil.generateToken(createUser());
+
+        assertThrows(JwtException.class, () -> jwtTokenUtil.getClaimsFromToken(token));
+    }
+
+    private static JwtTokenUtil createJwtTokenUtil(String secret, String retiredSecrets) {
+        MockEnvironment env = new MockEnvironment().withProperty("app.telegram_bot_token", "token")
+                                                   .withProperty("app.telegram_bot_username", "bot")
+                                                   .withProperty("app.mode", "test")
+                                                   .withProperty("app.admin_tg_id", "1")
+                                                   .withProperty("app.email_host", "localhost")
+                                                   .withProperty("app.email_port", "465")
+                                                   .withProperty("app.email_login", "login")
+                                                   .withProperty("app.email_password", "password")
+                                                   .withProperty("app.application_server",
+                                                                 "http://localhost")
+                                                   .withProperty("app.jwt_secret_key", secret)
+                                                   .withProperty("app.jwt_retired_secret_keys",
+                                                                 retiredSecrets)
+                                                   .withProperty("sentry.dsn", "");
+        return new JwtTokenUtil(new EnvVariables(env));
+    }
+
+    private static User createUser() {
+        User user = new User();
+        user.setId(1L);
+        user.setPasswordCreationTime(System.currentTimeMillis());
+        return user;
+    }
+}
@@ -0,0 +1,65 @@
+package ru.gruzhub.tools.admin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.gruzhub.tools.exceptions.ServiceUnavailableException;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class AdminBulkheadTest {
+    @Autowired
+    private AdminBulkhead adminBulkhead;
+    @Autowired
+    private AdminDatabase adminDatabase;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testFullQueueIsRejected() throws Exception {
+        AdminBulkhead bulkhead = new AdminBulkhead(new SimpleMeterRegistry(), 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // one task runs, one waits in the queue
+            bulkhead.submit(() -> awaitQuietly(release));
+            bulkhead.submit(() -> awaitQuietly(release));
+
+            assertThrows(ServiceUnavailableException.class,
+                         () -> bulkhead.submit(() -> awaitQuietly(release)));
+        } finally {
+            release.countDown();
+            bulkhead.shutdown();
+        }
+    }
+
+    @Test
+    void testTasksUseAdminConnections() throws Exception {
+        ConnectionCallback<Integer> activeAdminConnections =
+            connection -> this.adminDatabase.getDataSource()
+                                            .getHikariPoolMXBean()
+                                            .getActiveConnections();
+
+        assertEquals(1,
+                     this.adminBulkhead.submit(() -> this.jdbcTemplate.execute(
+                         activeAdminConnections)).get(10, TimeUnit.SECONDS));
+        assertEquals(0, this.jdbcTemplate.execute(activeAdminConnections));
+    }
+
+    private static boolean awaitQuietly(CountDownLatch latch) {
+        try {
+            return latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
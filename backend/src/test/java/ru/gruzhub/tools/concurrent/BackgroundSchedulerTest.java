@@ -0,0 +1,66 @@
+package ru.gruzhub.tools.concurrent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class BackgroundSchedulerTest {
+    @Test
+    void testFailedRunDoesNotStopRepeating() throws Exception {
+        BackgroundScheduler scheduler = new BackgroundScheduler("test-scheduler");
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch repeated = new CountDownLatch(3);
+
+        scheduler.repeat(() -> {
+            runs.incrementAndGet();
+            repeated.countDown();
+            throw new IllegalStateException("run failed");
+        }, 0, 10);
+
+        assertTrue(repeated.await(5, TimeUnit.SECONDS));
+        scheduler.shutdown();
+        assertTrue(runs.get() >= 3);
+    }
+
+    @Test
+    void testRunsOnNamedDaemonThread() throws Exception {
+        BackgroundScheduler scheduler = new BackgroundScheduler("test-scheduler");
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        CountDownLatch ran = new CountDownLatch(1);
+
+        scheduler.repeat(() -> {
+            thread.set(Thread.currentThread());
+            ran.countDown();
+        }, 0, 1000);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        scheduler.shutdown();
+        assertEquals("test-scheduler", thread.get().getName());
+        assertTrue(thread.get().isDaemon());
+    }
+
+    @Test
+    void testShutdownInterruptsRun() throws Exception {
+        BackgroundScheduler scheduler = new BackgroundScheduler("test-scheduler");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        scheduler.repeat(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        }, 0, 1000);
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        scheduler.shutdown();
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+}
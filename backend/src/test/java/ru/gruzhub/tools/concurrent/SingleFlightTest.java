@@ -0,0 +1,83 @@
+package ru.gruzhub.tools.concurrent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTest {
+    @Test
+    void testConcurrentCallsShareOneExecution() throws Exception {
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoader = new CountDownLatch(1);
+
+        int callers = 32;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        List<Future<String>> results = new ArrayList<>();
+
+        results.add(executor.submit(() -> singleFlight.execute(1L, () -> {
+            executions.incrementAndGet();
+            loaderStarted.countDown();
+            awaitUninterruptibly(releaseLoader);
+            return "region-1";
+        })));
+        assertTrue(loaderStarted.await(5, TimeUnit.SECONDS));
+
+        for (int i = 1; i < callers; i++) {
+            results.add(executor.submit(() -> singleFlight.execute(1L, () -> {
+                executions.incrementAndGet();
+                return "region-1";
+            })));
+        }
+        // let the waiters reach the in-flight call before it completes
+        Thread.sleep(200);
+        releaseLoader.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("region-1", result.get(5, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void testCallAfterCompletionRunsLoaderAgain() {
+        SingleFlight<Long, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+
+        singleFlight.execute(1L, executions::incrementAndGet);
+        singleFlight.execute(1L, executions::incrementAndGet);
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void testFailureIsNotRemembered() {
+        SingleFlight<Long, Integer> singleFlight = new SingleFlight<>();
+
+        assertThrows(IllegalStateException.class, () -> singleFlight.execute(1L, () -> {
+            throw new IllegalStateException("database is unavailable");
+        }));
+        assertEquals(1, singleFlight.execute(1L, () -> 1));
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package ru.gruzhub.tools.exceptions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+class DomainExceptionTest {
+    @Test
+    void testDomainExceptionHasNoStackTrace() {
+        ForbiddenException exception = new ForbiddenException("Заказ в другом регионе");
+
+        assertEquals(0, exception.getStackTrace().length);
+        assertEquals(HttpStatus.FORBIDDEN, exception.getStatusCode());
+        assertEquals("Заказ в другом регионе", exception.getReason());
+    }
+}
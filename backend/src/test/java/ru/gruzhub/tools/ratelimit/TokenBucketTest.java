@@ -0,0 +1,52 @@
+package ru.gruzhub.tools.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class TokenBucketTest {
+    @Test
+    void testRejectsAfterCapacityAndRefills() {
+        long now = 0;
+        TokenBucket bucket = new TokenBucket(2, 60, now);
+
+        assertEquals(0, bucket.tryAcquire(now));
+        assertEquals(0, bucket.tryAcquire(now));
+
+        long waitNanos = bucket.tryAcquire(now);
+        assertTrue(waitNanos > 0 && waitNanos <= TimeUnit.SECONDS.toNanos(1));
+
+        assertEquals(0, bucket.tryAcquire(now + waitNanos));
+    }
+
+    @Test
+    void testConcurrentRequestsNeverExceedCapacity() throws InterruptedException {
+        int capacity = 100;
+        long now = System.nanoTime();
+        TokenBucket bucket = new TokenBucket(capacity, 1, now);
+        AtomicInteger acquired = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < 1000; i++) {
+            executor.submit(() -> {
+                start.await();
+                if (bucket.tryAcquire(now) == 0) {
+                    acquired.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(capacity, acquired.get());
+    }
+}
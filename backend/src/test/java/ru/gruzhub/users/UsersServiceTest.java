@@ -1,16 +1,27 @@
 package ru.gruzhub.users;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
+import ru.gruzhub.telegram.TelegramChatRepository;
+import ru.gruzhub.telegram.models.TelegramChat;
+import ru.gruzhub.users.balance.enums.BalanceOperationType;
+import ru.gruzhub.users.balance.models.BalanceOperation;
 import ru.gruzhub.users.enums.UserRole;
 import ru.gruzhub.users.models.User;
+import ru.gruzhub.users.subscriptions.TelegramSubscriptionsIndex;
 import ru.gruzhub.users.testing.UserTestingHelper;
 import ru.gruzhub.users.testing.dto.TestAuthDataDto;
 
@@ -20,6 +31,10 @@ public class UsersServiceTest {
     private UsersService usersService;
     @Autowired
     private UserRepository userRepository;
+    @Autowired
+    private TelegramChatRepository telegramChatRepository;
+    @Autowired
+    private TelegramSubscriptionsIndex telegramSubscriptionsIndex;
 
     @Test
     public void testIncreaseBalance() {
@@ -118,4 +133,91 @@ public class UsersServiceTest {
 
         assertEquals(expectedMessage, actualMessage, "Exception message should match");
     }
+
+    @Test
+    public void testBalanceOperationsMatchBalance() {
+        UserTestingHelper userTestingHelper =
+            new UserTestingHelper(this.usersService, this.userRepository);
+        TestAuthDataDto authDto = userTestingHelper.signUp(UserRole.MASTER, null);
+        Long userId = authDto.getUserId();
+
+        this.usersService.increaseUserBalance(userId,
+                                              new BigDecimal("300.00"),
+                                              BalanceOperationType.ORDER_REFUND,
+                                              1L);
+        this.usersService.decreaseUserBalance(userId,
+                                              new BigDecimal("125.33"),
+                                              BalanceOperationType.ORDER_TAKEN,
+                                              1L);
+
+        User user = this.userRepository.findById(userId).orElseThrow();
+        List<BalanceOperation> operations =
+            this.usersService.getBalanceOperations(user, null, null, null).operations();
+
+        assertEquals(List.of(BalanceOperationType.ORDER_TAKEN,
+                             BalanceOperationType.ORDER_REFUND,
+                             BalanceOperationType.START_BALANCE),
+                     operations.stream().map(BalanceOperation::getType).toList(),
+                     "Operations should be listed newest first");
+        BigDecimal operationsSum =
+            operations.stream().map(BalanceOperation::getAmount).reduce(BigDecimal.ZERO,
+                                                                        BigDecimal::add);
+        assertEquals(0,
+                     user.getBalance().compareTo(operationsSum),
+                     "Balance should equal the sum of its operations");
+    }
+
+    @Test
+    public void testAuthorizedUserIsCachedUntilPasswordReset() {
+        UserTestingHelper userTestingHelper =
+            new UserTestingHelper(this.usersService, this.userRepository);
+        TestAuthDataDto authDto = userTestingHelper.signUp(UserRole.MASTER, null);
+
+        User firstLookup = this.usersService.getUserFromToken(authDto.getAccessToken());
+        User secondLookup = this.usersService.getUserFromToken(authDto.getAccessToken());
+        assertSame(firstLookup, secondLookup, "Verified user should be served from cache");
+
+        this.usersService.resetPassword(authDto.getEmail(),
+                                        "test-reset-code",
+                                        "new-password",
+                                        UserRole.MASTER);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
+            this.usersService.getUserFromToken(authDto.getAccessToken());
+        });
+
+        assertEquals(HttpStatus.UNAUTHORIZED,
+                     exception.getStatusCode(),
+                     "Token should be rejected after password reset");
+    }
+
+    @Test
+    public void testConnectedChatIsInRegionSubscriptions() {
+        Long regionId = 42L;
+        UserTestingHelper userTestingHelper =
+            new UserTestingHelper(this.usersService, this.userRepository);
+        TestAuthDataDto authDto = userTestingHelper.signUp(UserRole.MASTER, regionId);
+        User user = this.userRepository.findById(authDto.getUserId()).orElseThrow();
+
+        Long telegramChatId = new Random().nextLong();
+        String chatUuid = UUID.randomUUID().toString();
+        this.telegramChatRepository.save(new TelegramChat(chatUuid, telegramChatId, "title"));
+
+        this.usersService.connectTelegramChat(user, chatUuid);
+        assertEquals(List.of(telegramChatId),
+                     this.telegramSubscriptionsIndex.getRegionRecipientsChats(regionId)
+                                                    .get(user.getId()),
+                     "Connected chat should be indexed by the region of the master");
+
+        this.telegramSubscriptionsIndex.rebuild();
+        assertEquals(List.of(telegramChatId),
+                     this.telegramSubscriptionsIndex.getRegionRecipientsChats(regionId)
+                                                    .get(user.getId()),
+                     "Rebuilt index should keep the connected chat");
+
+        this.usersService.disconnectTelegramChat(user, chatUuid);
+        assertFalse(this.telegramSubscriptionsIndex.getRegionRecipientsChats(regionId)
+                                                   .containsKey(user.getId()),
+                    "Master without chats should not be indexed");
+    }
 }
@@ -0,0 +1,61 @@
+package ru.gruzhub.users.auth;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import ru.gruzhub.users.models.User;
+
+class AuthorizedUsersCacheTest {
+    @Test
+    void testUserLoadedBeforeEvictionIsNotCached() {
+        AuthorizedUsersCache cache = new AuthorizedUsersCache(new SimpleMeterRegistry(), 100, 60);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.getUser("token", token -> {
+            loads.incrementAndGet();
+            // the user is changed while its old snapshot is being loaded
+            cache.evictUser(1L);
+            return createUser(1L);
+        });
+        cache.getUser("token", token -> {
+            loads.incrementAndGet();
+            return createUser(1L);
+        });
+        cache.getUser("token", token -> {
+            loads.incrementAndGet();
+            return createUser(1L);
+        });
+
+        assertEquals(2, loads.get(), "A snapshot loaded before the eviction should not be cached");
+    }
+
+    @Test
+    void testEvictUserDropsOnlyTokensOfUser() {
+        AuthorizedUsersCache cache = new AuthorizedUsersCache(new SimpleMeterRegistry(), 100, 60);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (String token : new String[]{"first", "second", "another"}) {
+            cache.getUser(token, ignored -> {
+                loads.incrementAndGet();
+                return createUser(token.equals("another") ? 2L : 1L);
+            });
+        }
+        cache.evictUser(1L);
+        for (String token : new String[]{"first", "second", "another"}) {
+            cache.getUser(token, ignored -> {
+                loads.incrementAndGet();
+                return createUser(token.equals("another") ? 2L : 1L);
+            });
+        }
+
+        assertEquals(5, loads.get(), "Only the two tokens of the evicted user should be reloaded");
+    }
+
+    private static User createUser(Long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+}
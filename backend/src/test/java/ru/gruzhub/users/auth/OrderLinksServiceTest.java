@@ -0,0 +1,78 @@
+package ru.gruzhub.users.auth;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.util.UriComponentsBuilder;
+import ru.gruzhub.tools.exceptions.UnauthorizedException;
+import ru.gruzhub.users.UserRepository;
+import ru.gruzhub.users.UsersService;
+import ru.gruzhub.users.enums.UserRole;
+import ru.gruzhub.users.models.User;
+import ru.gruzhub.users.testing.UserTestingHelper;
+import ru.gruzhub.users.testing.dto.TestAuthDataDto;
+
+@SpringBootTest
+public class OrderLinksServiceTest {
+    @Autowired
+    private OrderLinksService orderLinksService;
+    @Autowired
+    private UsersService usersService;
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    public void testOrderLinkTokenIsExchangedForSessionOnce() {
+        UserTestingHelper userTestingHelper =
+            new UserTestingHelper(this.usersService, this.userRepository);
+        TestAuthDataDto authDto = userTestingHelper.signUp(UserRole.MASTER, null);
+        User user = this.usersService.getUserById(authDto.getUserId());
+
+        String link = this.orderLinksService.getOrderLink(user, 1L);
+        String linkToken = UriComponentsBuilder.fromUriString(link)
+                                               .build()
+                                               .getQueryParams()
+                                               .getFirst("orderLinkToken");
+
+        assertTrue(link.endsWith("&orderId=1"));
+        assertThrows(UnauthorizedException.class,
+                     () -> this.usersService.getUserFromToken(linkToken),
+                     "An order link token should not be accepted as a session");
+
+        String accessToken = this.orderLinksService.signInByOrderLink(linkToken).getAccessToken();
+        assertEquals(user.getId(), this.usersService.getUserFromToken(accessToken).getId());
+        assertThrows(UnauthorizedException.class,
+                     () -> this.orderLinksService.signInByOrderLink(linkToken),
+                     "An order link token should be exchanged only once");
+        assertNotEquals(link, this.orderLinksService.getOrderLink(user, 1L));
+    }
+
+    @Test
+    public void testOrderLinksAreCachedPerUserAndOrder() {
+        UserTestingHelper userTestingHelper =
+            new UserTestingHelper(this.usersService, this.userRepository);
+        Long firstUserId = userTestingHelper.signUp(UserRole.MASTER, null).getUserId();
+        Long secondUserId = userTestingHelper.signUp(UserRole.MASTER, null).getUserId();
+
+        Map<Long, String> links =
+            this.orderLinksService.getOrderLinksByUsersIds(List.of(firstUserId, secondUserId), 1L);
+        Map<Long, String> sameOrderLinks =
+            this.orderLinksService.getOrderLinksByUsersIds(List.of(firstUserId, secondUserId), 1L);
+        Map<Long, String> reversedLinks =
+            this.orderLinksService.getOrderLinksByUsersIds(List.of(secondUserId, firstUserId), 1L);
+        Map<Long, String> anotherOrderLinks =
+            this.orderLinksService.getOrderLinksByUsersIds(List.of(firstUserId), 2L);
+
+        assertEquals(List.of(firstUserId, secondUserId), List.copyOf(links.keySet()));
+        assertEquals(links, sameOrderLinks);
+        assertEquals(List.of(secondUserId, firstUserId), List.copyOf(reversedLinks.keySet()));
+        assertNotEquals(links.get(firstUserId), anotherOrderLinks.get(firstUserId));
+    }
+}
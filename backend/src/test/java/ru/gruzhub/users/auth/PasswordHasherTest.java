@@ -0,0 +1,43 @@
+package ru.gruzhub.users.auth;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+class PasswordHasherTest {
+    private static final int COST = 4;
+
+    private PasswordHasher passwordHasher;
+
+    @BeforeEach
+    void setUp() {
+        this.passwordHasher = new PasswordHasher(new SimpleMeterRegistry(), COST, 8, 10_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.passwordHasher.shutdown();
+    }
+
+    @Test
+    void testHashAndMatch() {
+        String hash = this.passwordHasher.hash("password");
+
+        assertTrue(this.passwordHasher.matches("password", hash));
+        assertFalse(this.passwordHasher.matches("another-password", hash));
+    }
+
+    @Test
+    void testNeedsRehashWhenCostDiffers() {
+        String currentCostHash = this.passwordHasher.hash("password");
+        String previousCostHash = BCrypt.hashpw("password", BCrypt.gensalt(COST + 1));
+
+        assertFalse(this.passwordHasher.needsRehash(currentCostHash));
+        assertTrue(this.passwordHasher.needsRehash(previousCostHash));
+    }
+}
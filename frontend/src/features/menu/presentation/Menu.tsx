@@ -94,6 +94,29 @@ export const Menu = ({ userApiRepository, children }: Props): JSX.Element => {
     })();
   }, []);
 
+  // Sign in by the link of an order from Telegram, the link token is valid once
+  useEffect(() => {
+    (async () => {
+      const urlParams = new URLSearchParams(window.location.search);
+      const orderLinkToken = urlParams.get("orderLinkToken");
+      if (!orderLinkToken) return;
+
+      urlParams.delete("orderLinkToken");
+      const search = urlParams.toString();
+      window.history.replaceState(
+        undefined,
+        "",
+        window.location.pathname + (search ? "?" + search : "")
+      );
+
+      try {
+        await userApiRepository.signInByOrderLink(orderLinkToken);
+      } catch (e) {
+        alert((e as Error).message);
+      }
+    })();
+  }, [userApiRepository]);
+
   // Sign in by admin token
   useEffect(() => {
     const urlParams = new URLSearchParams(window.location.search);
@@ -95,6 +95,24 @@ export default class UserApiRepository {
       });
   }
 
+  async signInByOrderLink(token: string): Promise<SignInResponse> {
+    const requestOptions: RequestOptions = new RequestOptions();
+    requestOptions.setBody(JSON.stringify({ token }));
+
+    return this.apiHelper
+      .fetchPostJson(
+        `${APPLICATION_SERVER}/api/users/order-link-signin`,
+        requestOptions,
+        true
+      )
+      .then((response: unknown): SignInResponse => {
+        const typedResponse = response as SignInResponse;
+        this.saveAuthorizedData(typedResponse.accessToken, typedResponse.id);
+        this.notifyAuthListeners();
+        return typedResponse;
+      });
+  }
+
   async getUserById(userId: number): Promise<User> {
     const requestOptions: RequestOptions = new RequestOptions();
     requestOptions.addHeader(